@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cc.recommenders.io.MappedUsageArchive;
+import cc.recommenders.io.ReadingArchive;
+import cc.recommenders.io.UsageReadingArchive;
+import cc.recommenders.io.UsageWritingArchive;
+import cc.recommenders.io.WritingArchive;
+import cc.recommenders.testutils.UsageGenerator;
+import cc.recommenders.usages.ProjectFoldedUsage;
+
+/**
+ * reads all usages of an archive in the json format and in the binary formats.
+ * Every invocation reads the complete archive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int numUsages;
+
+	private File jsonFile;
+	private File binaryFile;
+	private File compressedFile;
+	private MappedUsageArchive mapped;
+
+	@Setup
+	public void setup() throws IOException {
+		jsonFile = File.createTempFile("usages", ".zip");
+		binaryFile = File.createTempFile("usages", ".bin");
+		compressedFile = File.createTempFile("usages", ".bin");
+
+		WritingArchive json = new WritingArchive(jsonFile);
+		UsageWritingArchive binary = new UsageWritingArchive(binaryFile, false);
+		UsageWritingArchive compressed = new UsageWritingArchive(compressedFile, true);
+		UsageGenerator generator = new UsageGenerator().setNumMethods(100).setNumClassContexts(500).setNumProjects(100);
+		Iterator<ProjectFoldedUsage> it = generator.generate(generator.getTypes().get(0), numUsages);
+		while (it.hasNext()) {
+			ProjectFoldedUsage pfu = it.next();
+			json.add(pfu);
+			binary.add(pfu);
+			compressed.add(pfu);
+		}
+		json.close();
+		binary.close();
+		compressed.close();
+
+		mapped = new MappedUsageArchive(binaryFile);
+	}
+
+	@TearDown
+	public void teardown() {
+		jsonFile.delete();
+		binaryFile.delete();
+		compressedFile.delete();
+	}
+
+	@Benchmark
+	public void readJson(Blackhole bh) throws IOException {
+		ReadingArchive ra = new ReadingArchive(jsonFile);
+		try {
+			while (ra.hasNext()) {
+				bh.consume(ra.getNext(ProjectFoldedUsage.class));
+			}
+		} finally {
+			ra.close();
+		}
+	}
+
+	@Benchmark
+	public void readCompressed(Blackhole bh) throws IOException {
+		UsageReadingArchive ra = new UsageReadingArchive(compressedFile);
+		try {
+			while (ra.hasNext()) {
+				bh.consume(ra.getNext());
+			}
+		} finally {
+			ra.close();
+		}
+	}
+
+	@Benchmark
+	public void readMapped(Blackhole bh) {
+		for (int i = 0; i < mapped.numberOfEntries(); i++) {
+			bh.consume(mapped.get(i));
+		}
+	}
+
+	/**
+	 * all threads decode the same archive, so they all intern the same names
+	 */
+	@Benchmark
+	@Threads(4)
+	public void readMappedConcurrently(Blackhole bh) {
+		readMapped(bh);
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.mining.calls.QueryOptions;
+import cc.recommenders.mining.calls.bmn.BMNRecommender;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.testutils.UsageGenerator;
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BMNRecommenderBenchmark {
+
+	private static final int NUM_QUERIES = 256;
+
+	@Param({ "1000", "10000" })
+	public int numUsages;
+
+	@Param({ "20", "100" })
+	public int numMethods;
+
+	private BMNRecommender recommender;
+	private List<Query> queries;
+	private int next;
+
+	@Setup
+	public void setup() {
+		UsageGenerator generator = new UsageGenerator().setNumMethods(numMethods);
+		List<Usage> all = generator.createUsages(generator.getTypes().get(0), numUsages + NUM_QUERIES);
+		List<Usage> usages = all.subList(0, numUsages);
+		recommender = Miners.createBMNMiner(new QueryOptions()).createRecommender(usages);
+		queries = Queries.createFirstCallQueries(all.subList(numUsages, all.size()));
+	}
+
+	@Benchmark
+	public Set<Tuple<IMethodName, Double>> query() {
+		return recommender.query(queries.get(next++ % NUM_QUERIES));
+	}
+}
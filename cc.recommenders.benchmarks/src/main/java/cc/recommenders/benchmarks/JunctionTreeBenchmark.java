@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cc.recommenders.mining.calls.MiningOptions;
+import cc.recommenders.mining.calls.QueryOptions;
+import cc.recommenders.mining.calls.pbn.CompiledPBNModel;
+import cc.recommenders.testutils.UsageGenerator;
+import cc.recommenders.usages.Usage;
+
+/**
+ * inference in networks that were mined from synthetic usages. The evidence
+ * changes with every invocation, so no invocation can reuse the propagation of
+ * the one before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JunctionTreeBenchmark {
+
+	private static final int NUM_EVIDENCE_SETS = 64;
+
+	@Param({ "1000", "10000" })
+	public int numUsages;
+
+	@Param({ "20", "100" })
+	public int numMethods;
+
+	@Param({ "1", "4" })
+	public int numEvidence;
+
+	@Param({ "true", "false" })
+	public boolean useDoublePrecision;
+
+	private BayesNet net;
+	private JunctionTreeAlgorithm jta;
+	private List<Map<BayesNode, String>> evidence;
+	private int next;
+
+	@Setup
+	public void setup() {
+		UsageGenerator generator = new UsageGenerator().setNumMethods(numMethods);
+		List<Usage> usages = generator.createUsages(generator.getTypes().get(0), numUsages);
+		BayesianNetwork network = Miners.createPBNMiner(new MiningOptions(), new QueryOptions()).learnModel(usages);
+		CompiledPBNModel model = CompiledPBNModel.compile(network);
+		net = model.getBayesNet();
+
+		jta = createAlgorithm();
+		jta.setNetwork(net, model.getJunctionTree());
+
+		Random rnd = new Random(0);
+		List<BayesNode> nodes = net.getNodes();
+		evidence = newArrayList();
+		for (int i = 0; i < NUM_EVIDENCE_SETS; i++) {
+			Map<BayesNode, String> e = newHashMap();
+			for (int j = 0; j < numEvidence; j++) {
+				BayesNode node = nodes.get(rnd.nextInt(nodes.size()));
+				e.put(node, node.getOutcomeName(rnd.nextInt(node.getOutcomeCount())));
+			}
+			evidence.add(e);
+		}
+	}
+
+	private JunctionTreeAlgorithm createAlgorithm() {
+		JunctionTreeAlgorithm algorithm = new JunctionTreeAlgorithm();
+		if (!useDoublePrecision) {
+			algorithm.getFactory().setFloatingPointType(float.class);
+		}
+		return algorithm;
+	}
+
+	/**
+	 * builds the junction tree and the initial potentials
+	 */
+	@Benchmark
+	public JunctionTreeAlgorithm setNetwork() {
+		JunctionTreeAlgorithm algorithm = createAlgorithm();
+		algorithm.setNetwork(net);
+		return algorithm;
+	}
+
+	/**
+	 * queries all nodes, like the recommender does
+	 */
+	@Benchmark
+	public void getBeliefs(Blackhole bh) {
+		jta.setEvidence(evidence.get(next++ % NUM_EVIDENCE_SETS));
+		for (BayesNode node : net.getNodes()) {
+			bh.consume(jta.getBeliefs(node));
+		}
+	}
+}
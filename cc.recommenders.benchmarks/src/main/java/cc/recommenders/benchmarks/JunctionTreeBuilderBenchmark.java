@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTree;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeBuilder;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * triangulation and junction tree construction for wide networks. A star has
+ * the shape of the networks mined by the PBN miner, one pattern node is the
+ * parent of all other nodes. In a band, every node has up to three parents
+ * among the five nodes created before it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JunctionTreeBuilderBenchmark {
+
+	private static final int NUM_PATTERNS = 20;
+	private static final int MAX_PARENTS = 3;
+	private static final int BAND_WIDTH = 5;
+
+	@Param({ "100", "1000", "10000" })
+	public int numNodes;
+
+	@Param({ "star", "band" })
+	public String shape;
+
+	private BayesNet net;
+	private JunctionTreeBuilder builder;
+
+	@Setup
+	public void setup() {
+		net = "star".equals(shape) ? createStar() : createBand();
+		builder = JunctionTreeBuilder.forHeuristic(new MinFillIn());
+	}
+
+	private BayesNet createStar() {
+		BayesNet star = new BayesNet();
+		BayesNode center = createNode(star, NUM_PATTERNS);
+		for (int i = 1; i < numNodes; i++) {
+			createNode(star, 2).setParents(Collections.singletonList(center));
+		}
+		return star;
+	}
+
+	private BayesNet createBand() {
+		Random rnd = new Random(0);
+		BayesNet band = new BayesNet();
+		for (int i = 0; i < numNodes; i++) {
+			BayesNode node = createNode(band, 2 + rnd.nextInt(2));
+			List<BayesNode> parents = newArrayList();
+			int numParents = rnd.nextInt(Math.min(i, MAX_PARENTS) + 1);
+			while (parents.size() < numParents) {
+				BayesNode parent = band.getNode(i - 1 - rnd.nextInt(Math.min(i, BAND_WIDTH)));
+				if (!parents.contains(parent)) {
+					parents.add(parent);
+				}
+			}
+			node.setParents(parents);
+		}
+		return band;
+	}
+
+	private static BayesNode createNode(BayesNet net, int numOutcomes) {
+		BayesNode node = net.createNode("n" + net.getNodes().size());
+		for (int i = 0; i < numOutcomes; i++) {
+			node.addOutcome("o" + i);
+		}
+		return node;
+	}
+
+	@Benchmark
+	public JunctionTree buildJunctionTree() {
+		return builder.buildJunctionTree(net);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.LikelihoodWeightedSampling;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cc.recommenders.mining.calls.MiningOptions;
+import cc.recommenders.mining.calls.QueryOptions;
+import cc.recommenders.mining.calls.pbn.CompiledPBNModel;
+import cc.recommenders.testutils.UsageGenerator;
+import cc.recommenders.usages.Usage;
+
+/**
+ * approximate inference by likelihood weighting in networks that were mined
+ * from synthetic usages, the counterpart of {@link JunctionTreeBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LikelihoodWeightingBenchmark {
+
+	private static final int NUM_EVIDENCE_SETS = 64;
+	private static final int NUM_EVIDENCE = 4;
+
+	@Param({ "20", "100" })
+	public int numMethods;
+
+	@Param({ "10000" })
+	public int sampleCount;
+
+	@Param({ "1", "4" })
+	public int numThreads;
+
+	private BayesNet net;
+	private ExecutorService executor;
+	private LikelihoodWeightedSampling sampling;
+	private List<Map<BayesNode, String>> evidence;
+	private int next;
+
+	@Setup
+	public void setup() {
+		UsageGenerator generator = new UsageGenerator().setNumMethods(numMethods);
+		List<Usage> usages = generator.createUsages(generator.getTypes().get(0), 10000);
+		BayesianNetwork network = Miners.createPBNMiner(new MiningOptions(), new QueryOptions()).learnModel(usages);
+		net = CompiledPBNModel.compile(network).getBayesNet();
+
+		sampling = new LikelihoodWeightedSampling();
+		sampling.setNetwork(net);
+		sampling.setSampleCount(sampleCount);
+		// the calling thread draws samples as well
+		executor = Executors.newFixedThreadPool(numThreads);
+		sampling.setExecutor(executor, numThreads);
+		sampling.seed(0);
+
+		Random rnd = new Random(0);
+		List<BayesNode> nodes = net.getNodes();
+		evidence = newArrayList();
+		for (int i = 0; i < NUM_EVIDENCE_SETS; i++) {
+			Map<BayesNode, String> e = newHashMap();
+			for (int j = 0; j < NUM_EVIDENCE; j++) {
+				BayesNode node = nodes.get(rnd.nextInt(nodes.size()));
+				e.put(node, node.getOutcomeName(rnd.nextInt(node.getOutcomeCount())));
+			}
+			evidence.add(e);
+		}
+	}
+
+	@TearDown
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * queries all nodes, like the recommender does
+	 */
+	@Benchmark
+	public void getBeliefs(Blackhole bh) {
+		sampling.setEvidence(evidence.get(next++ % NUM_EVIDENCE_SETS));
+		for (BayesNode node : net.getNodes()) {
+			bh.consume(sampling.getBeliefs(node));
+		}
+	}
+}
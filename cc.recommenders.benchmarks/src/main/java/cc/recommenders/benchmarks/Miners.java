@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import cc.recommenders.mining.calls.DictionaryBuilder;
+import cc.recommenders.mining.calls.DistanceMeasureFactory;
+import cc.recommenders.mining.calls.MiningOptions;
+import cc.recommenders.mining.calls.PatternFinderFactory;
+import cc.recommenders.mining.calls.QueryOptions;
+import cc.recommenders.mining.calls.bmn.BMNMiner;
+import cc.recommenders.mining.calls.pbn.PBNMiner;
+import cc.recommenders.mining.calls.pbn.PBNModelBuilder;
+import cc.recommenders.mining.features.FeatureExtractor;
+import cc.recommenders.mining.features.OptionAwareFeaturePredicate;
+import cc.recommenders.mining.features.RareFeatureDropper;
+import cc.recommenders.mining.features.UsageFeatureExtractor;
+import cc.recommenders.mining.features.UsageFeatureWeighter;
+import cc.recommenders.usages.Usage;
+import cc.recommenders.usages.features.UsageFeature;
+
+/**
+ * wires the miners like the guice modules of the evaluation do
+ */
+public class Miners {
+
+	public static PBNMiner createPBNMiner(MiningOptions mOpts, QueryOptions qOpts) {
+		FeatureExtractor<Usage, UsageFeature> extractor = new UsageFeatureExtractor(mOpts);
+		PatternFinderFactory<UsageFeature> patternFinderFactory = new PatternFinderFactory<UsageFeature>(
+				new UsageFeatureWeighter(mOpts), mOpts, new DistanceMeasureFactory(mOpts));
+		return new PBNMiner(extractor, new DictionaryBuilder<Usage, UsageFeature>(extractor), patternFinderFactory,
+				new PBNModelBuilder(), qOpts, mOpts, new RareFeatureDropper<UsageFeature>(),
+				new OptionAwareFeaturePredicate(qOpts));
+	}
+
+	public static BMNMiner createBMNMiner(QueryOptions qOpts) {
+		MiningOptions mOpts = MiningOptions.newMiningOptions("BMN+MANHATTAN+W[0;0;0;0]-INIT-DROP");
+		FeatureExtractor<Usage, UsageFeature> extractor = new UsageFeatureExtractor(mOpts);
+		return new BMNMiner(mOpts, qOpts, new DictionaryBuilder<Usage, UsageFeature>(extractor), extractor);
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * looks up names from several threads, like the parallel deserialization of
+ * usages does. The identifiers are copied, so every lookup has to hash and
+ * compare the string instead of hitting an identical instance.
+ * 
+ * The method names are either interned by {@link VmMethodName} or, for
+ * comparison, by {@link SynchronizedMethodName}, which reproduces the former
+ * synchronized and eagerly parsing implementation. The single-threaded
+ * variants show the cost of the lookup without contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(4)
+public class NameBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Names {
+
+		@Param({ "1000", "100000" })
+		public int numNames;
+
+		@Param({ "concurrent", "synchronized" })
+		public String interning;
+
+		private String[] methods;
+		private String[] types;
+		// keeps the weakly interned names alive during the measurement
+		private Object[] interned;
+		private boolean isSynchronized;
+
+		@Setup
+		public void setup() {
+			isSynchronized = "synchronized".equals(interning);
+			methods = new String[numNames];
+			types = new String[numNames];
+			interned = new Object[2 * numNames];
+			for (int i = 0; i < numNames; i++) {
+				types[i] = "Lbench/pkg" + (i % 100) + "/Type" + i;
+				methods[i] = types[i] + ".method" + i + "(ILjava/lang/String;)V";
+				// the first lookup of a name is not measured
+				interned[2 * i] = VmTypeName.get(types[i]);
+				interned[2 * i + 1] = getMethod(methods[i]);
+			}
+		}
+
+		IMethodName getMethod(String identifier) {
+			return isSynchronized ? SynchronizedMethodName.intern(identifier) : VmMethodName.get(identifier);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+
+		int next(int max) {
+			next = (next + 1) % max;
+			return next;
+		}
+	}
+
+	/**
+	 * types are interned the same way in both variants
+	 */
+	@Benchmark
+	public ITypeName getType(Names names, Cursor cursor) {
+		return VmTypeName.get(new String(names.types[cursor.next(names.numNames)]));
+	}
+
+	@Benchmark
+	public IMethodName getMethod(Names names, Cursor cursor) {
+		return names.getMethod(new String(names.methods[cursor.next(names.numNames)]));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public IMethodName getMethodSingleThreaded(Names names, Cursor cursor) {
+		return names.getMethod(new String(names.methods[cursor.next(names.numNames)]));
+	}
+
+	/**
+	 * the declaring type is parsed on first access and cached in the interned
+	 * name, the former implementation parsed it on every access
+	 */
+	@Benchmark
+	public ITypeName getDeclaringType(Names names, Cursor cursor) {
+		return names.getMethod(new String(names.methods[cursor.next(names.numNames)])).getDeclaringType();
+	}
+
+	/**
+	 * the method names as they were interned before: lookups are synchronized
+	 * and a new name is parsed completely when it is created
+	 */
+	static class SynchronizedMethodName extends VmMethodName {
+		private static final long serialVersionUID = 1L;
+
+		private static Map<String, SynchronizedMethodName> index = new MapMaker().weakValues().makeMap();
+
+		static synchronized SynchronizedMethodName intern(String identifier) {
+			SynchronizedMethodName res = index.get(identifier);
+			if (res == null) {
+				res = new SynchronizedMethodName(identifier);
+				index.put(identifier, res);
+			}
+			return res;
+		}
+
+		private SynchronizedMethodName(String identifier) {
+			super(identifier);
+			getDeclaringType();
+			getParameterTypes();
+			getReturnType();
+		}
+
+		@Override
+		public ITypeName getDeclaringType() {
+			String identifier = getIdentifier();
+			int bracket = identifier.lastIndexOf('(');
+			int methodSeperator = identifier.lastIndexOf('.', bracket);
+			return VmTypeName.get(identifier.substring(0, methodSeperator));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cc.recommenders.mining.calls.MiningOptions;
+import cc.recommenders.mining.calls.QueryOptions;
+import cc.recommenders.mining.calls.pbn.PBNMiner;
+import cc.recommenders.testutils.UsageGenerator;
+import cc.recommenders.usages.Usage;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PBNMinerBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int numUsages;
+
+	@Param({ "20", "100" })
+	public int numMethods;
+
+	private PBNMiner miner;
+	private List<Usage> usages;
+
+	@Setup
+	public void setup() {
+		UsageGenerator generator = new UsageGenerator().setNumMethods(numMethods);
+		usages = generator.createUsages(generator.getTypes().get(0), numUsages);
+		miner = Miners.createPBNMiner(new MiningOptions(), new QueryOptions());
+	}
+
+	@Benchmark
+	public BayesianNetwork learnModel() {
+		return miner.learnModel(usages);
+	}
+}
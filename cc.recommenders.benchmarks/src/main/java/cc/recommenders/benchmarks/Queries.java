@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.benchmarks;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+public class Queries {
+
+	/**
+	 * @return queries that contain the context and the first call of the
+	 *         usages, like the queries of a developer who just started to use
+	 *         an object
+	 */
+	public static List<Query> createFirstCallQueries(List<Usage> usages) {
+		List<Query> queries = newArrayList();
+		for (Usage u : usages) {
+			Query q = Query.createAsCopyFrom(u);
+			q.resetCallsites();
+			q.addCallSite(u.getReceiverCallsites().iterator().next());
+			queries.add(q);
+		}
+		return queries;
+	}
+}
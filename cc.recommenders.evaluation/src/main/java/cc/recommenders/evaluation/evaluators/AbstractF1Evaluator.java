@@ -13,6 +13,7 @@ package cc.recommenders.evaluation.evaluators;
 import static cc.recommenders.evaluation.data.Measure.newMeasure;
 import static com.google.common.collect.Sets.newLinkedHashSet;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -41,10 +42,13 @@ public abstract class AbstractF1Evaluator {
 
 			startProcessingOfNewUsage(usage);
 
-			for (Query query : queryBuilder.get().createQueries(usage)) {
+			List<Query> queries = queryBuilder.get().createQueries(usage);
+			Iterator<Set<Tuple<IMethodName, Double>>> allProposals = rec.queryAll(queries).iterator();
+
+			for (Query query : queries) {
 
 				Set<IMethodName> expected = getExpected(usage, query);
-				Set<IMethodName> proposed = getProposed(rec, query);
+				Set<IMethodName> proposed = getProposed(allProposals.next());
 
 				if (qOpts.isIgnoringAfterFullRecall) {
 					proposed = Measure.dropAfterTotalRecall(expected, proposed);
@@ -72,8 +76,7 @@ public abstract class AbstractF1Evaluator {
 		return expected;
 	}
 
-	private Set<IMethodName> getProposed(ICallsRecommender<Query> rec, Query query) {
-		Set<Tuple<IMethodName, Double>> proposals = rec.query(query);
+	private Set<IMethodName> getProposed(Set<Tuple<IMethodName, Double>> proposals) {
 		Set<IMethodName> ms = newLinkedHashSet();
 		for (Tuple<IMethodName, ?> t : proposals) {
 			ms.add(t.getFirst());
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.io;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.io.MappedUsageArchive;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Usage;
+
+/**
+ * a {@link TypeStore} that is backed by a memory-mapped archive. Consecutive
+ * usages of projects in the same fold form a run, the training and validation
+ * data of a fold are read-only views on these runs. Usages are decoded on
+ * access and not kept in memory.
+ */
+public class MappedTypeStore extends TypeStore {
+
+	private final MappedUsageArchive archive;
+
+	/** first usage of each run, the last entry is the number of usages */
+	private final int[] runStarts;
+	private final int[] runFolds;
+	private final int numRuns;
+
+	public MappedTypeStore(MappedUsageArchive archive, Map<String, Integer> mapping) {
+		super(new AllUsages(archive), mapping);
+		this.archive = archive;
+
+		int numUsages = archive.numberOfEntries();
+		int[] starts = new int[16];
+		int[] folds = new int[16];
+		int runs = 0;
+		for (int i = 0; i < numUsages; i++) {
+			Integer fold = mapping.get(archive.getProjectName(i));
+			Asserts.assertNotNull(fold);
+			if (runs == 0 || folds[runs - 1] != fold) {
+				if (runs == starts.length) {
+					starts = Arrays.copyOf(starts, runs * 2);
+					folds = Arrays.copyOf(folds, runs * 2);
+				}
+				starts[runs] = i;
+				folds[runs] = fold;
+				runs++;
+			}
+		}
+		runStarts = Arrays.copyOf(starts, runs + 1);
+		runStarts[runs] = numUsages;
+		runFolds = Arrays.copyOf(folds, runs);
+		numRuns = runs;
+	}
+
+	@Override
+	public List<Usage> getTrainingData(int foldNum) {
+		return createView(foldNum, false);
+	}
+
+	@Override
+	public List<Usage> getValidationData(int foldNum) {
+		return createView(foldNum, true);
+	}
+
+	private List<Usage> createView(int foldNum, boolean isInFold) {
+		int[] starts = new int[numRuns];
+		int[] ends = new int[numRuns + 1];
+		int numSelected = 0;
+		for (int r = 0; r < numRuns; r++) {
+			if ((runFolds[r] == foldNum) == isInFold) {
+				starts[numSelected] = runStarts[r];
+				ends[numSelected + 1] = ends[numSelected] + runStarts[r + 1] - runStarts[r];
+				numSelected++;
+			}
+		}
+		return new FoldView(archive, starts, ends, numSelected);
+	}
+
+	private static class AllUsages extends AbstractList<ProjectFoldedUsage> implements RandomAccess {
+
+		private final MappedUsageArchive archive;
+
+		public AllUsages(MappedUsageArchive archive) {
+			this.archive = archive;
+		}
+
+		@Override
+		public ProjectFoldedUsage get(int index) {
+			return archive.get(index);
+		}
+
+		@Override
+		public int size() {
+			return archive.numberOfEntries();
+		}
+	}
+
+	private static class FoldView extends AbstractList<Usage> implements RandomAccess {
+
+		private final MappedUsageArchive archive;
+		private final int[] starts;
+		/** first view index of each range, the last entry is the size */
+		private final int[] viewEnds;
+		private final int numRanges;
+
+		public FoldView(MappedUsageArchive archive, int[] starts, int[] viewEnds, int numRanges) {
+			this.archive = archive;
+			this.starts = starts;
+			this.viewEnds = viewEnds;
+			this.numRanges = numRanges;
+		}
+
+		@Override
+		public Usage get(int index) {
+			if (index < 0 || index >= size()) {
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+			}
+			int range = Arrays.binarySearch(viewEnds, 0, numRanges + 1, index);
+			// an exact match is the first index of the range, otherwise the
+			// insertion point is the end of the containing range
+			range = range >= 0 ? range : -range - 2;
+			return archive.get(starts[range] + index - viewEnds[range]).getRawUsage();
+		}
+
+		@Override
+		public int size() {
+			return viewEnds[numRanges];
+		}
+	}
+}
@@ -18,9 +18,11 @@ import java.util.Set;
 import cc.recommenders.assertions.Asserts;
 import cc.recommenders.io.Directory;
 import cc.recommenders.io.ReadingArchive;
+import cc.recommenders.io.UsageReadingArchive;
 import cc.recommenders.names.ITypeName;
 import cc.recommenders.usages.ProjectFoldedUsage;
 import cc.recommenders.usages.ProjectFoldingIndex;
+import cc.recommenders.usages.Usage;
 
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
@@ -32,6 +34,7 @@ public class ProjectFoldedUsageStore {
 	private final ProjectFoldingStrategy foldingStrategy;
 
 	private ProjectFoldingIndex index;
+	private boolean isMemoryMapping = false;
 
 	@Inject
 	public ProjectFoldedUsageStore(@Named("projectIndexed") Directory in, ProjectFoldingStrategy foldingStrategy) {
@@ -41,6 +44,14 @@ public class ProjectFoldedUsageStore {
 		this.foldingStrategy = foldingStrategy;
 	}
 
+	/**
+	 * type stores of types with an uncompressed binary archive will map the
+	 * archive into memory instead of loading all usages
+	 */
+	public void setMemoryMapping(boolean isMemoryMapping) {
+		this.isMemoryMapping = isMemoryMapping;
+	}
+
 	public Set<ITypeName> getTypes() {
 		lazyReadIndex();
 		return index.getTypes();
@@ -57,25 +68,80 @@ public class ProjectFoldedUsageStore {
 		return projectsWithAtLeastOneUsage >= numFolds;
 	}
 
+	/**
+	 * the number of usages of the type in all projects, which can be used to
+	 * estimate the memory that is needed to train a model
+	 */
+	public int getNumberOfUsages(ITypeName type) {
+		lazyReadIndex();
+		int numUsages = 0;
+		for (int count : index.getCounts(type).values()) {
+			numUsages += count;
+		}
+		return numUsages;
+	}
+
 	public TypeStore createTypeStore(ITypeName type, int numFolds) throws IOException {
 		Asserts.assertGreaterThan(numFolds, 0);
 		Asserts.assertTrue(isAvailable(type, numFolds));
 
-		List<ProjectFoldedUsage> usages = Lists.newLinkedList();
+		Map<String, Integer> counts = index.getCounts(type);
+		Map<String, Integer> mapping = foldingStrategy.createMapping(counts, numFolds);
 
-		String fileName = type.toString().replace('/', '_') + ".zip";
+		String binaryFileName = getFileName(type, UsageArchiveConverter.BINARY_SUFFIX);
+		if (isMemoryMapping && in.exists(binaryFileName)) {
+			return new MappedTypeStore(in.getMappedUsageArchive(binaryFileName), mapping);
+		}
+		List<ProjectFoldedUsage> usages = readUsages(type);
+		return new TypeStore(usages, mapping);
+	}
+
+	/**
+	 * all usages of the type, without any folding
+	 */
+	public List<Usage> getUsages(ITypeName type) throws IOException {
+		List<Usage> usages = Lists.newLinkedList();
+		for (ProjectFoldedUsage pfu : readUsages(type)) {
+			usages.add(pfu.getRawUsage());
+		}
+		return usages;
+	}
+
+	private List<ProjectFoldedUsage> readUsages(ITypeName type) throws IOException {
+		String binaryFileName = getFileName(type, UsageArchiveConverter.BINARY_SUFFIX);
+		if (in.exists(binaryFileName)) {
+			return readBinaryUsages(binaryFileName);
+		}
+
+		List<ProjectFoldedUsage> usages = Lists.newLinkedList();
+		String fileName = getFileName(type, ".zip");
 		ReadingArchive ra = in.getReadingArchive(fileName);
 		while (ra.hasNext()) {
 			ProjectFoldedUsage pfu = ra.getNext(ProjectFoldedUsage.class);
 			usages.add(pfu);
 		}
 		ra.close();
-		Map<String, Integer> counts = index.getCounts(type);
-		Map<String, Integer> mapping = foldingStrategy.createMapping(counts, numFolds);
-		return new TypeStore(usages, mapping);
+		return usages;
+	}
+
+	private static String getFileName(ITypeName type, String suffix) {
+		return type.toString().replace('/', '_') + suffix;
+	}
+
+	private List<ProjectFoldedUsage> readBinaryUsages(String fileName) throws IOException {
+		UsageReadingArchive ra = in.getUsageReadingArchive(fileName);
+		try {
+			List<ProjectFoldedUsage> usages = Lists.newArrayListWithCapacity(ra.numberOfEntries());
+			while (ra.hasNext()) {
+				usages.add(ra.getNext());
+			}
+			return usages;
+		} finally {
+			ra.close();
+		}
 	}
 
-	private void lazyReadIndex() {
+	private synchronized void lazyReadIndex() {
 		if (index == null) {
 			try {
 				Asserts.assertTrue(in.list().contains("index.json"));
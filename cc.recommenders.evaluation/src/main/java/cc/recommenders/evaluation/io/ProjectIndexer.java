@@ -11,9 +11,17 @@
 package cc.recommenders.evaluation.io;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 
+import cc.recommenders.assertions.Asserts;
 import cc.recommenders.io.Directory;
 import cc.recommenders.io.Logger;
 import cc.recommenders.io.ReadingArchive;
@@ -27,21 +35,49 @@ import com.codetrails.data.ObjectUsage;
 import com.codetrails.data.ObjectUsageValidator;
 import com.codetrails.data.UsageConverter;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 
+/**
+ * sorts the usages of all project archives into per-type archives. The input
+ * archives are read, validated and converted in parallel; the results are
+ * handed over in batches to a single writer (the calling thread), which
+ * buffers them per type and keeps a limited number of archives open.
+ * 
+ * The writer takes the batches in the order of the sorted input file names,
+ * so every type archive contains its usages in the same order as a sequential
+ * run. The converter and the predicate are called concurrently and have to be
+ * thread-safe, the validator stores its last error and is locked.
+ */
 public class ProjectIndexer {
 
 	public static final String READING_ERROR = "reading error in '%s'";
 	public static final String INVALID = "ignoring invalid ObjectUsage in '%s': %s";
 
+	private static final int BATCH_SIZE = 100;
+	private static final int BATCHES_PER_FILE = 64;
+	private static final int FLUSH_SIZE = 1000;
+
+	// marks the end of an input file, compared by identity
+	private static final List<ProjectFoldedUsage> END_OF_FILE = Lists.newArrayList();
+
 	private final Directory in;
 	private final Directory out;
 	private final UsageConverter converter;
 
-	private Map<ITypeName, WritingArchive> archives = Maps.newHashMap();
 	private Predicate<Usage> isInterestingPredicate;
 	private ObjectUsageValidator ouValidator;
 
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private int maxOpenArchives = 512;
+	private int maxBufferedUsages = 100000;
+
+	private Map<ITypeName, List<ProjectFoldedUsage>> buffers;
+	private int numBuffered;
+	private LinkedHashMap<ITypeName, WritingArchive> openArchives;
+	private Map<ITypeName, Integer> numParts;
+
 	public ProjectIndexer(Directory in, Directory out, UsageConverter converter, ObjectUsageValidator ouValidator,
 			Predicate<Usage> isInterestingPredicate) {
 		this.in = in;
@@ -51,49 +87,113 @@ public class ProjectIndexer {
 		this.isInterestingPredicate = isInterestingPredicate;
 	}
 
+	public void setNumberOfThreads(int numThreads) {
+		Asserts.assertGreaterThan(numThreads, 0);
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * if more type archives would be open, the least recently used one is
+	 * closed. Usages of that type that follow are written to a new part file,
+	 * all parts are merged at the end.
+	 */
+	public void setMaxOpenArchives(int maxOpenArchives) {
+		Asserts.assertGreaterThan(maxOpenArchives, 0);
+		this.maxOpenArchives = maxOpenArchives;
+	}
+
+	/**
+	 * if more usages would be buffered, the largest type buffer is written
+	 */
+	public void setMaxBufferedUsages(int maxBufferedUsages) {
+		Asserts.assertGreaterThan(maxBufferedUsages, 0);
+		this.maxBufferedUsages = maxBufferedUsages;
+	}
+
 	public void createIndex() throws IOException {
 		Logger.log("clearing index...");
 		out.clear();
 
 		Logger.log("creating index...");
-		ProjectFoldingIndex index = new ProjectFoldingIndex();
-		for (String fileName : allZipsFromIn()) {
-			Logger.log("\tprocessing '%s'...", fileName);
-			int numInvalid = 0;
-			int numFiltered = 0;
-			int numRemaining = 0;
-			ReadingArchive ra = in.getReadingArchive(fileName);
-			try {
-				while (ra.hasNext()) {
-					ObjectUsage ou = ra.getNext(ObjectUsage.class);
-					if (!ouValidator.isValid(ou)) {
-						numInvalid++;
-						Logger.err(INVALID, fileName, ouValidator.getLastError());
-						continue;
-					}
-					Usage u = converter.toRecommenderUsage(ou);
-					if (!isInterestingPredicate.apply(u)) {
-						numFiltered++;
-						continue;
+		buffers = Maps.newLinkedHashMap();
+		numBuffered = 0;
+		openArchives = new LinkedHashMap<ITypeName, WritingArchive>(16, 0.75f, true);
+		numParts = Maps.newLinkedHashMap();
+
+		// the tasks are started in this order, so a reader only waits for the
+		// writer when its file is not the next one to be written
+		List<String> fileNames = Ordering.natural().sortedCopy(allZipsFromIn());
+		List<BlockingQueue<List<ProjectFoldedUsage>>> queues = Lists.newArrayList();
+		ExecutorService readers = Executors.newFixedThreadPool(numThreads);
+		try {
+			for (String fileName : fileNames) {
+				BlockingQueue<List<ProjectFoldedUsage>> queue = new LinkedBlockingQueue<List<ProjectFoldedUsage>>(
+						BATCHES_PER_FILE);
+				queues.add(queue);
+				readers.submit(new ReadingTask(fileName, queue));
+			}
+			readers.shutdown();
+
+			ProjectFoldingIndex index = new ProjectFoldingIndex();
+			for (BlockingQueue<List<ProjectFoldedUsage>> queue : queues) {
+				List<ProjectFoldedUsage> batch;
+				while ((batch = queue.take()) != END_OF_FILE) {
+					for (ProjectFoldedUsage pfu : batch) {
+						index.count(pfu.getType(), pfu.getProjectName());
+						buffer(pfu);
 					}
-					index.count(u.getType(), fileName);
-					numRemaining++;
-					ProjectFoldedUsage pfu = new ProjectFoldedUsage(u, fileName);
-					store(pfu);
 				}
-				String msg = "\t\tfinished: %d invalid, %d filtered, %d remaining";
-				Logger.log(msg, numInvalid, numFiltered, numRemaining);
-			} catch (Exception e) {
-				Logger.err(READING_ERROR, fileName);
 			}
-			ra.close();
+
+			for (ITypeName type : Lists.newArrayList(buffers.keySet())) {
+				flush(type);
+			}
+			closeOpenArchives();
+			mergeParts();
+			out.write(index, "index.json");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			readers.shutdownNow();
+			closeOpenArchives();
 		}
+	}
 
-		out.write(index, "index.json");
-		
-		for (WritingArchive wa : archives.values()) {
+	private void closeOpenArchives() throws IOException {
+		for (WritingArchive wa : openArchives.values()) {
 			wa.close();
 		}
+		openArchives.clear();
+	}
+
+	/**
+	 * appends the parts of every type that was written in several parts to the
+	 * first one, so each usage is copied at most once
+	 */
+	private void mergeParts() throws IOException {
+		for (Map.Entry<ITypeName, Integer> e : numParts.entrySet()) {
+			if (e.getValue() == 1) {
+				continue;
+			}
+			WritingArchive wa = out.reopenWritingArchive(getFileName(e.getKey(), 0), ProjectFoldedUsage.class);
+			try {
+				for (int part = 1; part < e.getValue(); part++) {
+					String partName = getFileName(e.getKey(), part);
+					ReadingArchive ra = out.getReadingArchive(partName);
+					try {
+						while (ra.hasNext()) {
+							wa.add(ra.getNext(ProjectFoldedUsage.class));
+						}
+					} finally {
+						ra.close();
+					}
+					out.delete(partName);
+				}
+			} finally {
+				wa.close();
+			}
+		}
 	}
 
 	private Set<String> allZipsFromIn() {
@@ -105,13 +205,145 @@ public class ProjectIndexer {
 		});
 	}
 
-	private void store(ProjectFoldedUsage pfu) throws IOException {
-		WritingArchive wa = archives.get(pfu.getType());
+	private void buffer(ProjectFoldedUsage pfu) throws IOException {
+		List<ProjectFoldedUsage> buffer = buffers.get(pfu.getType());
+		if (buffer == null) {
+			buffer = Lists.newArrayList();
+			buffers.put(pfu.getType(), buffer);
+		}
+		buffer.add(pfu);
+		numBuffered++;
+
+		if (buffer.size() >= FLUSH_SIZE) {
+			flush(pfu.getType());
+		} else if (numBuffered > maxBufferedUsages) {
+			flush(findLargestBuffer());
+		}
+	}
+
+	private ITypeName findLargestBuffer() {
+		ITypeName largest = null;
+		int largestSize = -1;
+		for (Map.Entry<ITypeName, List<ProjectFoldedUsage>> e : buffers.entrySet()) {
+			if (e.getValue().size() > largestSize) {
+				largest = e.getKey();
+				largestSize = e.getValue().size();
+			}
+		}
+		return largest;
+	}
+
+	private void flush(ITypeName type) throws IOException {
+		List<ProjectFoldedUsage> buffer = buffers.remove(type);
+		WritingArchive wa = getArchive(type);
+		for (ProjectFoldedUsage pfu : buffer) {
+			wa.add(pfu);
+		}
+		numBuffered -= buffer.size();
+	}
+
+	private WritingArchive getArchive(ITypeName type) throws IOException {
+		WritingArchive wa = openArchives.get(type);
 		if (wa == null) {
-			String fileName = pfu.getType().toString().replace("/", "_") + ".zip";
-			wa = out.getWritingArchive(fileName);
-			archives.put(pfu.getType(), wa);
+			if (openArchives.size() >= maxOpenArchives) {
+				Iterator<WritingArchive> leastRecentlyUsed = openArchives.values().iterator();
+				leastRecentlyUsed.next().close();
+				leastRecentlyUsed.remove();
+			}
+			Integer part = numParts.get(type);
+			if (part == null) {
+				part = 0;
+			}
+			wa = out.getWritingArchive(getFileName(type, part));
+			numParts.put(type, part + 1);
+			openArchives.put(type, wa);
+		}
+		return wa;
+	}
+
+	private static String getFileName(ITypeName type, int part) {
+		String baseName = type.toString().replace("/", "_");
+		return part == 0 ? baseName + ".zip" : baseName + "-" + part + ".zip";
+	}
+
+	private class ReadingTask implements Runnable {
+
+		private final String fileName;
+		private final BlockingQueue<List<ProjectFoldedUsage>> queue;
+
+		public ReadingTask(String fileName, BlockingQueue<List<ProjectFoldedUsage>> queue) {
+			this.fileName = fileName;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			try {
+				read();
+			} finally {
+				try {
+					queue.put(END_OF_FILE);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void read() {
+			Logger.log("\tprocessing '%s'...", fileName);
+			int numInvalid = 0;
+			int numFiltered = 0;
+			int numRemaining = 0;
+			List<ProjectFoldedUsage> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+			try {
+				ReadingArchive ra = in.getReadingArchive(fileName);
+				try {
+					while (ra.hasNext()) {
+						ObjectUsage ou = ra.getNext(ObjectUsage.class);
+						String error = validate(ou);
+						if (error != null) {
+							numInvalid++;
+							Logger.err(INVALID, fileName, error);
+							continue;
+						}
+						Usage u = converter.toRecommenderUsage(ou);
+						if (!isInterestingPredicate.apply(u)) {
+							numFiltered++;
+							continue;
+						}
+						numRemaining++;
+						batch.add(new ProjectFoldedUsage(u, fileName));
+						if (batch.size() == BATCH_SIZE) {
+							queue.put(batch);
+							batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+						}
+					}
+					String msg = "\t\tfinished: %d invalid, %d filtered, %d remaining";
+					Logger.log(msg, numInvalid, numFiltered, numRemaining);
+				} catch (Exception e) {
+					Logger.err(READING_ERROR, fileName);
+				} finally {
+					ra.close();
+				}
+				// usages that were read before an error are kept
+				if (!batch.isEmpty()) {
+					queue.put(batch);
+				}
+			} catch (IOException e) {
+				Logger.err(READING_ERROR, fileName);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * @return the validation error or null, if the usage is valid
+		 */
+		private String validate(ObjectUsage ou) {
+			// the validator stores the last error
+			synchronized (ouValidator) {
+				return ouValidator.isValid(ou) ? null : ouValidator.getLastError();
+			}
 		}
-		wa.add(pfu);
 	}
-}
\ No newline at end of file
+}
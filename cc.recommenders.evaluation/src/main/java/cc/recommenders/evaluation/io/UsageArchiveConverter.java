@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.io;
+
+import java.io.IOException;
+import java.util.Set;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.io.Directory;
+import cc.recommenders.io.Logger;
+import cc.recommenders.io.ReadingArchive;
+import cc.recommenders.io.UsageWritingArchive;
+import cc.recommenders.usages.ProjectFoldedUsage;
+
+import com.google.common.base.Predicate;
+
+/**
+ * converts the zip archives of a project indexed directory into binary usage
+ * archives, which are then preferred by the {@link ProjectFoldedUsageStore}.
+ * The zip archives are left untouched.
+ */
+public class UsageArchiveConverter {
+
+	public static final String BINARY_SUFFIX = ".bin";
+
+	private final Directory dir;
+	private final boolean isCompressed;
+
+	public UsageArchiveConverter(Directory dir, boolean isCompressed) {
+		Asserts.assertNotNull(dir);
+		this.dir = dir;
+		this.isCompressed = isCompressed;
+	}
+
+	public void convertAll() throws IOException {
+		for (String fileName : allZips()) {
+			convert(fileName);
+		}
+	}
+
+	public void convert(String zipFileName) throws IOException {
+		Asserts.assertTrue(zipFileName.endsWith(".zip"));
+		String binaryFileName = zipFileName.substring(0, zipFileName.length() - 4) + BINARY_SUFFIX;
+		Logger.log("\tconverting '%s'...", zipFileName);
+
+		ReadingArchive ra = dir.getReadingArchive(zipFileName);
+		UsageWritingArchive wa = dir.getUsageWritingArchive(binaryFileName, isCompressed);
+		boolean isComplete = false;
+		try {
+			while (ra.hasNext()) {
+				wa.add(ra.<ProjectFoldedUsage> getNext(ProjectFoldedUsage.class));
+			}
+			isComplete = true;
+		} finally {
+			ra.close();
+			wa.close();
+			if (!isComplete) {
+				// an incomplete archive would be preferred over the zip
+				dir.delete(binaryFileName);
+			}
+		}
+	}
+
+	private Set<String> allZips() {
+		return dir.list(new Predicate<String>() {
+			@Override
+			public boolean apply(String fileName) {
+				return fileName.endsWith(".zip");
+			}
+		});
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.training;
+
+import cc.recommenders.names.ITypeName;
+
+/**
+ * receives the results of a {@link ParallelModelTrainer}, the methods are
+ * called concurrently from the training threads
+ */
+public interface ITrainingListener {
+
+	void modelTrained(ITypeName type, Object model);
+
+	void trainingFailed(ITypeName type, Exception e);
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.training;
+
+import static cc.recommenders.assertions.Asserts.assertGreaterThan;
+import static cc.recommenders.assertions.Asserts.assertNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import cc.recommenders.evaluation.io.ProjectFoldedUsageStore;
+import cc.recommenders.mining.calls.Miner;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Provider;
+
+/**
+ * trains the models of many types concurrently on a bounded thread pool. The
+ * number of usages of a type is used as an estimate for the memory its
+ * training needs, types are only trained at the same time as long as their
+ * usages fit into the budget, so huge types are not co-scheduled.
+ */
+public class ParallelModelTrainer {
+
+	private final ProjectFoldedUsageStore store;
+	private final Provider<Miner<Usage, Query>> minerProvider;
+	private final int numThreads;
+	private final int maxUsagesInMemory;
+
+	/**
+	 * @param minerProvider
+	 *            miners are not thread-safe, so a new one is requested for
+	 *            every type
+	 * @param maxUsagesInMemory
+	 *            the maximum sum of usages of all types that are trained at
+	 *            the same time, a bigger type is trained alone
+	 */
+	public ParallelModelTrainer(ProjectFoldedUsageStore store, Provider<Miner<Usage, Query>> minerProvider,
+			int numThreads, int maxUsagesInMemory) {
+		assertNotNull(store);
+		assertNotNull(minerProvider);
+		assertGreaterThan(numThreads, 0);
+		assertGreaterThan(maxUsagesInMemory, 0);
+		this.store = store;
+		this.minerProvider = minerProvider;
+		this.numThreads = numThreads;
+		this.maxUsagesInMemory = maxUsagesInMemory;
+	}
+
+	public void trainAll(ITrainingListener listener) throws InterruptedException {
+		train(store.getTypes(), listener);
+	}
+
+	/**
+	 * blocks until the models of all types are trained
+	 */
+	public void train(Collection<ITypeName> types, ITrainingListener listener) throws InterruptedException {
+		assertNotNull(listener);
+
+		final Map<ITypeName, Integer> sizes = Maps.newHashMap();
+		for (ITypeName type : types) {
+			sizes.put(type, store.getNumberOfUsages(type));
+		}
+		// the biggest types are started first, so they do not delay the end
+		List<ITypeName> orderedTypes = Lists.newArrayList(types);
+		Collections.sort(orderedTypes, new Comparator<ITypeName>() {
+			@Override
+			public int compare(ITypeName a, ITypeName b) {
+				return sizes.get(b).compareTo(sizes.get(a));
+			}
+		});
+
+		Semaphore memoryBudget = new Semaphore(maxUsagesInMemory);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> futures = Lists.newLinkedList();
+			for (ITypeName type : orderedTypes) {
+				int permits = Math.max(1, Math.min(sizes.get(type), maxUsagesInMemory));
+				futures.add(executor.submit(new TrainingTask(type, permits, memoryBudget, listener)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			// failures of a type are reported to the listener
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private class TrainingTask implements Runnable {
+
+		private final ITypeName type;
+		private final int permits;
+		private final Semaphore memoryBudget;
+		private final ITrainingListener listener;
+
+		public TrainingTask(ITypeName type, int permits, Semaphore memoryBudget, ITrainingListener listener) {
+			this.type = type;
+			this.permits = permits;
+			this.memoryBudget = memoryBudget;
+			this.listener = listener;
+		}
+
+		@Override
+		public void run() {
+			try {
+				memoryBudget.acquire(permits);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				List<Usage> usages = store.getUsages(type);
+				Object model = minerProvider.get().learnModel(usages);
+				listener.modelTrained(type, model);
+			} catch (Exception e) {
+				listener.trainingFailed(type, e);
+			} finally {
+				memoryBudget.release(permits);
+			}
+		}
+	}
+}
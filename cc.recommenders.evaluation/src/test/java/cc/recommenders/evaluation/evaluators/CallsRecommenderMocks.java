@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.evaluators;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.mining.calls.ICallsRecommender;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.usages.Query;
+
+public class CallsRecommenderMocks {
+
+	/**
+	 * lets a mocked recommender answer batched queries with the stubbed
+	 * results of the single queries
+	 */
+	public static void delegateQueryAllToQuery(final ICallsRecommender<Query> rec) {
+		when(rec.queryAll(anyListOf(Query.class))).thenAnswer(new Answer<List<Set<Tuple<IMethodName, Double>>>>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public List<Set<Tuple<IMethodName, Double>>> answer(InvocationOnMock invocation) {
+				List<Set<Tuple<IMethodName, Double>>> proposals = newArrayList();
+				for (Query query : (List<Query>) invocation.getArguments()[0]) {
+					proposals.add(rec.query(query));
+				}
+				return proposals;
+			}
+		});
+	}
+}
@@ -10,6 +10,7 @@
  */
 package cc.recommenders.evaluation.evaluators;
 
+import static cc.recommenders.evaluation.evaluators.CallsRecommenderMocks.delegateQueryAllToQuery;
 import static cc.recommenders.datastructures.Tuple.newTuple;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -74,6 +75,7 @@ public class F1EvaluatorTest {
 		sut = new F1Evaluator(queryBuilderFactory, queryOptions);
 
 		recommender = mock(ICallsRecommender.class);
+		delegateQueryAllToQuery(recommender);
 
 		usages = Lists.newLinkedList();
 
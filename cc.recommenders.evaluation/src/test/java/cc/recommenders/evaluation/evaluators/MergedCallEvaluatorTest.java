@@ -10,6 +10,7 @@
  */
 package cc.recommenders.evaluation.evaluators;
 
+import static cc.recommenders.evaluation.evaluators.CallsRecommenderMocks.delegateQueryAllToQuery;
 import static cc.recommenders.assertions.Throws.throwNotImplemented;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.junit.Assert.assertFalse;
@@ -54,6 +55,7 @@ public class MergedCallEvaluatorTest {
 		when(queryBuilder.createQueries(any(Usage.class))).thenReturn(newArrayList(query));
 
 		recommender = mock(ICallsRecommender.class);
+		delegateQueryAllToQuery(recommender);
 		ous = newArrayList();
 		QueryBuilderFactory queryBuilderFactory = new QueryBuilderFactory(new QueryOptions(), null, queryBuilder);
 		sut = new F1Evaluator(queryBuilderFactory, new QueryOptions());
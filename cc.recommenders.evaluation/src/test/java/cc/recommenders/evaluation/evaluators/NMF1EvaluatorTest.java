@@ -10,6 +10,7 @@
  */
 package cc.recommenders.evaluation.evaluators;
 
+import static cc.recommenders.evaluation.evaluators.CallsRecommenderMocks.delegateQueryAllToQuery;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -56,6 +57,7 @@ public class NMF1EvaluatorTest {
 	@Before
 	public void setup() {
 		MockitoAnnotations.initMocks(this);
+		delegateQueryAllToQuery(rec);
 		usages = Lists.newLinkedList();
 		qOpts = new QueryOptions();
 
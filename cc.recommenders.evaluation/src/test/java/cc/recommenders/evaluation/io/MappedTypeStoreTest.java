@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.io.MappedUsageArchive;
+import cc.recommenders.io.UsageWritingArchive;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class MappedTypeStoreTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private Map<String, Integer> mapping;
+	private List<ProjectFoldedUsage> usages;
+
+	@Before
+	public void setup() {
+		mapping = Maps.newHashMap();
+		mapping.put("p1", 0);
+		mapping.put("p2", 1);
+		mapping.put("p3", 1);
+		mapping.put("p4", 2);
+		usages = Lists.newArrayList();
+	}
+
+	@Test
+	public void foldsAreEqualToInMemoryStore() throws IOException {
+		addUsages(1, 1, 2, 3, 3, 3, 4, 1, 4, 2);
+		assertSameFolds(3);
+	}
+
+	@Test
+	public void singleRun() throws IOException {
+		addUsages(2, 3, 2);
+		assertSameFolds(3);
+	}
+
+	@Test
+	public void allUsagesAreAvailable() throws IOException {
+		addUsages(1, 2, 4);
+		MappedTypeStore sut = createStore();
+		assertEquals(usages, Lists.newArrayList(sut.getAllUsages()));
+		assertEquals(mapping, sut.getMapping());
+	}
+
+	@Test(expected = AssertionException.class)
+	public void unknownProjectsAreRejected() throws IOException {
+		addUsages(1, 5);
+		createStore();
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void viewsAreBounded() throws IOException {
+		addUsages(1, 2, 1);
+		createStore().getValidationData(0).get(2);
+	}
+
+	private void assertSameFolds(int numFolds) throws IOException {
+		TypeStore expected = new TypeStore(usages, mapping);
+		MappedTypeStore sut = createStore();
+		for (int foldNum = 0; foldNum < numFolds; foldNum++) {
+			assertEquals(expected.getTrainingData(foldNum), copy(sut.getTrainingData(foldNum)));
+			assertEquals(expected.getValidationData(foldNum), copy(sut.getValidationData(foldNum)));
+		}
+	}
+
+	private static List<Usage> copy(List<Usage> view) {
+		List<Usage> usages = Lists.newArrayList();
+		for (int i = 0; i < view.size(); i++) {
+			usages.add(view.get(i));
+		}
+		return usages;
+	}
+
+	private MappedTypeStore createStore() throws IOException {
+		File file = tempFolder.newFile();
+		UsageWritingArchive writer = new UsageWritingArchive(file);
+		for (ProjectFoldedUsage pfu : usages) {
+			writer.add(pfu);
+		}
+		writer.close();
+		return new MappedTypeStore(new MappedUsageArchive(file), mapping);
+	}
+
+	private void addUsages(int... projectNums) {
+		int i = 0;
+		for (int projectNum : projectNums) {
+			Query q = new Query();
+			q.setType(VmTypeName.get("LT"));
+			q.setMethodContext(VmMethodName.get("LC.m" + (i++) + "()V"));
+			usages.add(new ProjectFoldedUsage(q, "p" + projectNum));
+		}
+	}
+}
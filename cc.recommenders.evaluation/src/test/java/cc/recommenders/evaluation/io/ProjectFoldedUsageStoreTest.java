@@ -35,7 +35,9 @@ import org.junit.Test;
 
 import cc.recommenders.exceptions.AssertionException;
 import cc.recommenders.io.Directory;
+import cc.recommenders.io.MappedUsageArchive;
 import cc.recommenders.io.ReadingArchive;
+import cc.recommenders.io.UsageReadingArchive;
 import cc.recommenders.names.ITypeName;
 import cc.recommenders.names.VmTypeName;
 import cc.recommenders.usages.ProjectFoldedUsage;
@@ -183,4 +185,58 @@ public class ProjectFoldedUsageStoreTest {
 		assertEquals(usages, actual.getAllUsages());
 		assertEquals(mapping, actual.getMapping());
 	}
+
+	@Test
+	public void numberOfUsagesIsSummedUpOverAllProjects() {
+		assertEquals(12 + 23 + 34, sut.getNumberOfUsages(TYPE));
+	}
+
+	@Test
+	public void rawUsagesCanBeReadWithoutFolding() throws IOException {
+		List<Usage> actual = sut.getUsages(TYPE);
+
+		verify(dir).getReadingArchive("LA_B_C.zip");
+		verify(readingArchive).close();
+		assertEquals(Lists.newArrayList(usages.get(0).getRawUsage()), actual);
+	}
+
+	@Test
+	public void binaryArchiveIsPreferred() throws IOException {
+		UsageReadingArchive binaryArchive = mock(UsageReadingArchive.class);
+		when(dir.exists("LA_B_C.bin")).thenReturn(true);
+		when(dir.getUsageReadingArchive("LA_B_C.bin")).thenReturn(binaryArchive);
+		when(binaryArchive.numberOfEntries()).thenReturn(1);
+		when(binaryArchive.hasNext()).thenReturn(true).thenReturn(false);
+		when(binaryArchive.getNext()).thenReturn(usages.get(0));
+
+		TypeStore actual = sut.createTypeStore(TYPE, 3);
+
+		verify(dir, times(0)).getReadingArchive(anyString());
+		verify(binaryArchive).close();
+		assertEquals(usages, actual.getAllUsages());
+	}
+
+	@Test
+	public void binaryArchiveIsMappedIfRequested() throws IOException {
+		MappedUsageArchive mappedArchive = mock(MappedUsageArchive.class);
+		when(dir.exists("LA_B_C.bin")).thenReturn(true);
+		when(dir.getMappedUsageArchive("LA_B_C.bin")).thenReturn(mappedArchive);
+
+		sut.setMemoryMapping(true);
+		TypeStore actual = sut.createTypeStore(TYPE, 3);
+
+		verify(dir, times(0)).getReadingArchive(anyString());
+		verify(dir, times(0)).getUsageReadingArchive(anyString());
+		assertTrue(actual instanceof MappedTypeStore);
+		assertEquals(mapping, actual.getMapping());
+	}
+
+	@Test
+	public void zipArchiveIsNotMapped() throws IOException {
+		sut.setMemoryMapping(true);
+		TypeStore actual = sut.createTypeStore(TYPE, 3);
+
+		verify(dir).getReadingArchive("LA_B_C.zip");
+		assertFalse(actual instanceof MappedTypeStore);
+	}
 }
\ No newline at end of file
@@ -16,7 +16,10 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -32,11 +35,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import cc.recommenders.exceptions.AssertionException;
 import cc.recommenders.io.Directory;
 import cc.recommenders.io.Logger;
 import cc.recommenders.io.ReadingArchive;
@@ -96,6 +101,8 @@ public class ProjectIndexerTest {
 		expectedWrites = Sets.newLinkedHashSet();
 
 		when(out.getWritingArchive(anyString())).thenReturn(writingArchive);
+		when(out.reopenWritingArchive(anyString(), any(Type.class))).thenReturn(writingArchive);
+		when(out.getReadingArchive(anyString())).thenReturn(mock(ReadingArchive.class));
 		when(isInterestingPred.apply(any(Usage.class))).then(new Answer<Boolean>() {
 			@Override
 			public Boolean answer(InvocationOnMock invocation) throws Throwable {
@@ -280,6 +287,140 @@ public class ProjectIndexerTest {
 		assertEquals(expCounts, actCounts);
 	}
 
+	@Test
+	public void allUsagesAreIndexedWithManyThreads() throws IOException {
+		String[] fileNames = new String[20];
+		for (int i = 0; i < fileNames.length; i++) {
+			fileNames[i] = i + ".zip";
+		}
+		givenTheListOfFiles(fileNames);
+		for (int i = 0; i < fileNames.length; i++) {
+			withContents(fileNames[i], 10 + i);
+		}
+
+		sut.setNumberOfThreads(4);
+		sut.createIndex();
+
+		verify(out).write(pfiCaptor.capture(), eq("index.json"));
+		Map<String, Integer> actCounts = pfiCaptor.getValue().getCounts(TYPE);
+		for (int i = 0; i < fileNames.length; i++) {
+			assertEquals(10 + i, (int) actCounts.get(fileNames[i]));
+		}
+		for (ProjectFoldedUsage u : expectedWrites) {
+			verify(writingArchive).add(u);
+		}
+		verify(writingArchive).close();
+	}
+
+	@Test
+	public void leastRecentlyUsedArchiveIsClosedAndContinuedInNewPart() throws IOException {
+		ITypeName type2 = VmTypeName.get("Lpackage/Type2");
+		WritingArchive wa1 = mock(WritingArchive.class);
+		WritingArchive wa1Part = mock(WritingArchive.class);
+		WritingArchive wa2 = mock(WritingArchive.class);
+		WritingArchive wa2Part = mock(WritingArchive.class);
+		when(out.getWritingArchive(TYPE_FILENAME)).thenReturn(wa1);
+		when(out.getWritingArchive("Lpackage_Type-1.zip")).thenReturn(wa1Part);
+		when(out.getWritingArchive("Lpackage_Type2.zip")).thenReturn(wa2);
+		when(out.getWritingArchive("Lpackage_Type2-1.zip")).thenReturn(wa2Part);
+
+		givenTheListOfFiles("a.zip");
+		withContents("a.zip", TYPE, type2, TYPE, type2);
+
+		sut.setNumberOfThreads(1);
+		sut.setMaxOpenArchives(1);
+		sut.setMaxBufferedUsages(1);
+		sut.createIndex();
+
+		// both types are written alternately, as only one usage is buffered
+		verify(out).getWritingArchive(TYPE_FILENAME);
+		verify(out).getWritingArchive("Lpackage_Type-1.zip");
+		verify(out).getWritingArchive("Lpackage_Type2.zip");
+		verify(out).getWritingArchive("Lpackage_Type2-1.zip");
+		verify(wa1).close();
+		verify(wa1Part).close();
+		verify(wa2).close();
+		verify(wa2Part).close();
+	}
+
+	@Test
+	public void partsAreMergedOnceAndDeleted() throws IOException {
+		ITypeName type2 = VmTypeName.get("Lpackage/Type2");
+		ProjectFoldedUsage pfu1 = mock(ProjectFoldedUsage.class);
+		ProjectFoldedUsage pfu2 = mock(ProjectFoldedUsage.class);
+		WritingArchive merged = mock(WritingArchive.class);
+		when(out.reopenWritingArchive(eq(TYPE_FILENAME), any(Type.class))).thenReturn(merged);
+		whenPartContains("Lpackage_Type-1.zip", pfu1);
+		whenPartContains("Lpackage_Type-2.zip", pfu2);
+
+		givenTheListOfFiles("a.zip");
+		withContents("a.zip", TYPE, type2, TYPE, type2, TYPE);
+
+		sut.setNumberOfThreads(1);
+		sut.setMaxOpenArchives(1);
+		sut.setMaxBufferedUsages(1);
+		sut.createIndex();
+
+		verify(out, times(1)).reopenWritingArchive(TYPE_FILENAME, ProjectFoldedUsage.class);
+		verify(out, times(1)).reopenWritingArchive("Lpackage_Type2.zip", ProjectFoldedUsage.class);
+		InOrder inOrder = inOrder(merged, out);
+		inOrder.verify(merged).add(pfu1);
+		inOrder.verify(out).delete("Lpackage_Type-1.zip");
+		inOrder.verify(merged).add(pfu2);
+		inOrder.verify(out).delete("Lpackage_Type-2.zip");
+		inOrder.verify(merged).close();
+	}
+
+	@Test
+	public void typesWithOnePartAreNotMerged() throws IOException {
+		givenTheListOfFiles("a.zip");
+		withContents("a.zip", 3);
+
+		sut.createIndex();
+
+		verify(out, never()).reopenWritingArchive(anyString(), any(Type.class));
+	}
+
+	@Test
+	public void usagesAreWrittenInOrderOfTheInputFiles() throws IOException {
+		givenTheListOfFiles("c.zip", "a.zip", "b.zip");
+		// the first file is the slowest one to open
+		final ReadingArchive slowArchive = readingArchives.get("a.zip");
+		when(in.getReadingArchive("a.zip")).thenAnswer(new Answer<ReadingArchive>() {
+			@Override
+			public ReadingArchive answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(100);
+				return slowArchive;
+			}
+		});
+		withContents("a.zip", 3);
+		withContents("b.zip", 3);
+		withContents("c.zip", 3);
+
+		sut.setNumberOfThreads(3);
+		sut.createIndex();
+
+		InOrder inOrder = inOrder(writingArchive);
+		for (ProjectFoldedUsage u : expectedWrites) {
+			inOrder.verify(writingArchive).add(u);
+		}
+	}
+
+	@Test(expected = AssertionException.class)
+	public void numberOfThreadsMustBePositive() {
+		sut.setNumberOfThreads(0);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void maxOpenArchivesMustBePositive() {
+		sut.setMaxOpenArchives(0);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void maxBufferedUsagesMustBePositive() {
+		sut.setMaxBufferedUsages(0);
+	}
+
 	private void givenTheListOfFiles(String... fileNames) throws IOException {
 		when(in.list(predicate.capture())).thenReturn(Sets.<String> newHashSet(fileNames));
 
@@ -290,14 +431,30 @@ public class ProjectIndexerTest {
 		}
 	}
 
-	private void withContents(String fileName, final int numUsages) throws IOException {
+	private void whenPartContains(String partName, ProjectFoldedUsage pfu) throws IOException {
+		ReadingArchive ra = mock(ReadingArchive.class);
+		when(ra.hasNext()).thenReturn(true).thenReturn(false);
+		when(ra.getNext(ProjectFoldedUsage.class)).thenReturn(pfu);
+		when(out.getReadingArchive(partName)).thenReturn(ra);
+	}
+
+	private void withContents(String fileName, int numUsages) throws IOException {
+		ITypeName[] types = new ITypeName[numUsages];
+		for (int i = 0; i < numUsages; i++) {
+			types[i] = TYPE;
+		}
+		withContents(fileName, types);
+	}
+
+	private void withContents(String fileName, ITypeName... types) throws IOException {
 		ReadingArchive ra = readingArchives.get(fileName);
+		final int numUsages = types.length;
 		final ObjectUsage[] ous = new ObjectUsage[numUsages];
 
 		for (int i = 0; i < numUsages; i++) {
 			ous[i] = mock(ObjectUsage.class);
 			Usage u = mock(Usage.class);
-			when(u.getType()).thenReturn(TYPE);
+			when(u.getType()).thenReturn(types[i]);
 
 			when(converter.toRecommenderUsage(ous[i])).thenReturn(u);
 			expectedConverts.add(ous[i]);
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.io.Directory;
+import cc.recommenders.io.UsageReadingArchive;
+import cc.recommenders.io.WritingArchive;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSites;
+import cc.recommenders.usages.DefinitionSites;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Query;
+
+import com.google.common.collect.Lists;
+
+public class UsageArchiveConverterTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private Directory dir;
+	private UsageArchiveConverter sut;
+
+	@Before
+	public void setup() {
+		dir = new Directory(tempFolder.getRoot().getAbsolutePath());
+		sut = new UsageArchiveConverter(dir, true);
+	}
+
+	@Test
+	public void allZipsAreConverted() throws IOException {
+		List<ProjectFoldedUsage> a = write("LA.zip", 3);
+		List<ProjectFoldedUsage> b = write("LB.zip", 5);
+		dir.write("x", "index.json");
+
+		sut.convertAll();
+
+		assertEquals(a, read("LA.bin"));
+		assertEquals(b, read("LB.bin"));
+		assertFalse(dir.exists("index.bin"));
+	}
+
+	@Test
+	public void zipsAreKept() throws IOException {
+		write("LA.zip", 1);
+		sut.convertAll();
+		assertTrue(dir.exists("LA.zip"));
+	}
+
+	@Test
+	public void uncompressedConversion() throws IOException {
+		List<ProjectFoldedUsage> a = write("LA.zip", 3);
+		new UsageArchiveConverter(dir, false).convert("LA.zip");
+		assertEquals(a, read("LA.bin"));
+	}
+
+	@Test(expected = AssertionException.class)
+	public void onlyZipsCanBeConverted() throws IOException {
+		sut.convert("index.json");
+	}
+
+	private List<ProjectFoldedUsage> write(String fileName, int num) throws IOException {
+		List<ProjectFoldedUsage> usages = Lists.newArrayList();
+		WritingArchive wa = dir.getWritingArchive(fileName);
+		for (int i = 0; i < num; i++) {
+			Query q = new Query();
+			q.setType(VmTypeName.get("La/B"));
+			q.setClassContext(VmTypeName.get("La/C"));
+			q.setMethodContext(VmMethodName.get("La/C.m()V"));
+			q.setDefinition(DefinitionSites.createDefinitionByReturn("La/D.get()La/B;"));
+			q.addCallSite(CallSites.createReceiverCallSite("La/B.m" + i + "()V"));
+			ProjectFoldedUsage pfu = new ProjectFoldedUsage(q, "p" + i);
+			wa.add(pfu);
+			usages.add(pfu);
+		}
+		wa.close();
+		return usages;
+	}
+
+	private List<ProjectFoldedUsage> read(String fileName) throws IOException {
+		List<ProjectFoldedUsage> usages = Lists.newArrayList();
+		UsageReadingArchive ra = dir.getUsageReadingArchive(fileName);
+		while (ra.hasNext()) {
+			usages.add(ra.getNext());
+		}
+		ra.close();
+		return usages;
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.evaluation.training;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cc.recommenders.evaluation.io.ProjectFoldedUsageStore;
+import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.mining.calls.ICallsRecommender;
+import cc.recommenders.mining.calls.Miner;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Provider;
+
+public class ParallelModelTrainerTest {
+
+	private static final ITypeName BIG = VmTypeName.get("LBig");
+	private static final ITypeName MEDIUM = VmTypeName.get("LMedium");
+	private static final ITypeName SMALL1 = VmTypeName.get("LSmall1");
+	private static final ITypeName SMALL2 = VmTypeName.get("LSmall2");
+
+	private ProjectFoldedUsageStore store;
+	private Map<ITypeName, List<Usage>> usages;
+	private RecordingListener listener;
+
+	private AtomicInteger usagesInTraining;
+	private AtomicInteger maxUsagesInTraining;
+	private AtomicInteger numMiners;
+
+	@Before
+	public void setup() throws IOException {
+		store = mock(ProjectFoldedUsageStore.class);
+		usages = Maps.newHashMap();
+		addType(BIG, 10);
+		addType(MEDIUM, 6);
+		addType(SMALL1, 2);
+		addType(SMALL2, 2);
+		when(store.getTypes()).thenReturn(usages.keySet());
+
+		listener = new RecordingListener();
+		usagesInTraining = new AtomicInteger();
+		maxUsagesInTraining = new AtomicInteger();
+		numMiners = new AtomicInteger();
+	}
+
+	private void addType(ITypeName type, int numUsages) throws IOException {
+		List<Usage> us = Lists.newArrayList();
+		for (int i = 0; i < numUsages; i++) {
+			us.add(mock(Usage.class));
+		}
+		usages.put(type, us);
+		when(store.getNumberOfUsages(type)).thenReturn(numUsages);
+		when(store.getUsages(type)).thenReturn(us);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void atLeastOneThreadIsNeeded() {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 0, 10);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void memoryBudgetMustBePositive() {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 2, 0);
+	}
+
+	@Test
+	public void allTypesAreTrained() throws InterruptedException {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 4, 100).trainAll(listener);
+
+		assertEquals(usages.keySet(), listener.trainedTypes);
+		for (ITypeName type : usages.keySet()) {
+			assertEquals(usages.get(type).size(), listener.models.get(type));
+		}
+		assertTrue(listener.failedTypes.isEmpty());
+	}
+
+	@Test
+	public void aNewMinerIsUsedForEveryType() throws InterruptedException {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 4, 100).trainAll(listener);
+		assertEquals(4, numMiners.get());
+	}
+
+	@Test
+	public void selectedTypesCanBeTrained() throws InterruptedException {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 4, 100).train(Sets.newHashSet(SMALL1), listener);
+		assertEquals(Sets.newHashSet(SMALL1), listener.trainedTypes);
+	}
+
+	@Test
+	public void memoryBudgetIsRespected() throws InterruptedException {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 4, 12).trainAll(listener);
+
+		assertEquals(usages.keySet(), listener.trainedTypes);
+		assertTrue(maxUsagesInTraining.get() <= 12);
+	}
+
+	@Test
+	public void typesBiggerThanTheBudgetAreTrainedAlone() throws InterruptedException {
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 4, 5).trainAll(listener);
+
+		assertEquals(usages.keySet(), listener.trainedTypes);
+		assertEquals(10, maxUsagesInTraining.get());
+	}
+
+	@Test
+	public void failuresAreReportedAndDoNotStopTheTraining() throws Exception {
+		when(store.getUsages(MEDIUM)).thenThrow(new IOException());
+
+		new ParallelModelTrainer(store, new SlowMinerProvider(), 2, 100).trainAll(listener);
+
+		assertEquals(Sets.newHashSet(BIG, SMALL1, SMALL2), listener.trainedTypes);
+		assertEquals(Sets.newHashSet(MEDIUM), listener.failedTypes);
+	}
+
+	private class SlowMinerProvider implements Provider<Miner<Usage, Query>> {
+		@Override
+		public Miner<Usage, Query> get() {
+			numMiners.incrementAndGet();
+			return new Miner<Usage, Query>() {
+				@Override
+				public Object learnModel(List<Usage> in) {
+					int current = usagesInTraining.addAndGet(in.size());
+					updateMax(current);
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					usagesInTraining.addAndGet(-in.size());
+					return in.size();
+				}
+
+				@Override
+				public ICallsRecommender<Query> createRecommender(List<Usage> in) {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		private void updateMax(int current) {
+			int max;
+			do {
+				max = maxUsagesInTraining.get();
+			} while (current > max && !maxUsagesInTraining.compareAndSet(max, current));
+		}
+	}
+
+	private static class RecordingListener implements ITrainingListener {
+
+		private final Set<ITypeName> trainedTypes = Collections.newSetFromMap(new ConcurrentHashMap<ITypeName, Boolean>());
+		private final Set<ITypeName> failedTypes = Collections.newSetFromMap(new ConcurrentHashMap<ITypeName, Boolean>());
+		private final Map<ITypeName, Object> models = Maps.newConcurrentMap();
+
+		@Override
+		public void modelTrained(ITypeName type, Object model) {
+			trainedTypes.add(type);
+			models.put(type, model);
+		}
+
+		@Override
+		public void trainingFailed(ITypeName type, Exception e) {
+			failedTypes.add(type);
+		}
+	}
+}
@@ -152,6 +152,22 @@ public class Directory {
         return archive;
     }
 
+    public UsageWritingArchive getUsageWritingArchive(String relativePath, boolean isCompressed) throws IOException {
+        File file = new File(rootDir + "/" + relativePath);
+        file.createNewFile();
+        return new UsageWritingArchive(file, isCompressed);
+    }
+
+    public UsageReadingArchive getUsageReadingArchive(String relativePath) throws IOException {
+        File file = new File(rootDir + "/" + relativePath);
+        return new UsageReadingArchive(file);
+    }
+
+    public MappedUsageArchive getMappedUsageArchive(String relativePath) throws IOException {
+        File file = new File(rootDir + "/" + relativePath);
+        return new MappedUsageArchive(file);
+    }
+
     public void delete(String relativePath) {
         File file = new File(rootDir + "/" + relativePath);
         file.delete();
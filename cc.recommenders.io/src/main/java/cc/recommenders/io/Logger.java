@@ -29,24 +29,24 @@ public class Logger {
 
 	// TODO add info(String msg) method
 
-	public static void log(String rawmsg, Object... args) {
+	public static synchronized void log(String rawmsg, Object... args) {
 		out = System.out;
 		reallyLog("\n" + getTimeStamp() + "    " + rawmsg, args);
 	}
 
-	public static void err(String rawmsg, Object... args) {
+	public static synchronized void err(String rawmsg, Object... args) {
 		out = System.err;
 		reallyLog("\n" + getTimeStamp() + " EE " + rawmsg, args);
 	}
 
-	public static void debug(String rawmsg, Object... args) {
+	public static synchronized void debug(String rawmsg, Object... args) {
 		out = System.out;
 		if (isDebugging) {
 			reallyLog("\n" + getTimeStamp() + " ~~ " + rawmsg, args);
 		}
 	}
 
-	public static void append(String rawmsg, Object... args) {
+	public static synchronized void append(String rawmsg, Object... args) {
 		reallyLog(rawmsg, args);
 	}
 
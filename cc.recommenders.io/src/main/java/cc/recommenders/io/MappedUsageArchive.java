@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sebastian Proksch - initial API and implementation
+ ******************************************************************************/
+package cc.recommenders.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.io.UsageDecoder.IntSource;
+import cc.recommenders.usages.ProjectFoldedUsage;
+
+import com.google.common.io.CountingInputStream;
+
+/**
+ * random access to the usages of an uncompressed archive that was created by
+ * a {@link UsageWritingArchive}. The records are memory-mapped and a usage is
+ * only decoded when it is requested, so the usages do not need to fit into
+ * the heap. Archives are limited to 2GB.
+ */
+public class MappedUsageArchive {
+
+	private final UsageDecoder decoder;
+	private final IntBuffer offsets;
+	private final IntBuffer records;
+
+	public MappedUsageArchive(File file) throws IOException {
+		CountingInputStream header = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			decoder = new UsageDecoder(new DataInputStream(header), file.toString());
+		} finally {
+			header.close();
+		}
+		Asserts.assertFalse(decoder.isCompressed(), "compressed archives cannot be mapped: " + file);
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			// the mapping stays valid after the file is closed
+			FileChannel channel = raf.getChannel();
+			long start = header.getCount();
+			ByteBuffer content = channel.map(MapMode.READ_ONLY, start, channel.size() - start);
+
+			int offsetsLength = 4 * decoder.numberOfEntries();
+			ByteBuffer offsetBytes = content.duplicate();
+			offsetBytes.limit(offsetsLength);
+			offsets = offsetBytes.slice().asIntBuffer();
+			ByteBuffer recordBytes = content.duplicate();
+			recordBytes.position(offsetsLength);
+			records = recordBytes.slice().asIntBuffer();
+		} finally {
+			raf.close();
+		}
+	}
+
+	public int numberOfEntries() {
+		return decoder.numberOfEntries();
+	}
+
+	/**
+	 * @return the project name of the i-th usage, without decoding the usage
+	 */
+	public String getProjectName(int i) {
+		return decoder.name(records.get(offsets.get(i)));
+	}
+
+	public ProjectFoldedUsage get(int i) {
+		final int start = offsets.get(i);
+		try {
+			return decoder.decode(new IntSource() {
+				private int pos = start;
+
+				@Override
+				public int nextInt() {
+					return records.get(pos++);
+				}
+			});
+		} catch (IOException e) {
+			// reading from memory does not throw
+			throw new RuntimeException(e);
+		}
+	}
+}
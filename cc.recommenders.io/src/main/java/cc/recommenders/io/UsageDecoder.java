@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sebastian Proksch - initial API and implementation
+ ******************************************************************************/
+package cc.recommenders.io;
+
+import static cc.recommenders.io.UsageWritingArchive.MAGIC;
+import static cc.recommenders.io.UsageWritingArchive.MAGIC_V1;
+import static cc.recommenders.io.UsageWritingArchive.NONE;
+import static cc.recommenders.io.UsageWritingArchive.NO_KIND;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Set;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.names.IFieldName;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.names.VmFieldName;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSite;
+import cc.recommenders.usages.CallSiteKind;
+import cc.recommenders.usages.CallSites;
+import cc.recommenders.usages.DefinitionSite;
+import cc.recommenders.usages.DefinitionSiteKind;
+import cc.recommenders.usages.DefinitionSites;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Query;
+
+import com.google.common.collect.Sets;
+
+/**
+ * the header of a binary usage archive and the decoding of its records. Every
+ * name of the dictionary is parsed at most once, all usages that refer to it
+ * share the same instance.
+ */
+class UsageDecoder {
+
+	interface IntSource {
+		int nextInt() throws IOException;
+	}
+
+	private static final CallSiteKind[] CALL_SITE_KINDS = CallSiteKind.values();
+	private static final DefinitionSiteKind[] DEFINITION_KINDS = DefinitionSiteKind.values();
+	private static final IMethodName PLACEHOLDER = VmMethodName.get("LT.m()V");
+
+	private final boolean isCompressed;
+	private final int numberOfEntries;
+
+	private final String[] names;
+	private final ITypeName[] types;
+	private final IMethodName[] methods;
+	private final IFieldName[] fields;
+
+	/**
+	 * reads the header of an archive, "in" is positioned at the offset table
+	 * afterwards
+	 */
+	UsageDecoder(DataInput in, String source) throws IOException {
+		int magic = in.readInt();
+		Asserts.assertFalse(magic == MAGIC_V1, "usage archive of an outdated format, it has to be written again: "
+				+ source);
+		Asserts.assertEquals(MAGIC, magic, "not a usage archive: " + source);
+		isCompressed = in.readBoolean();
+		numberOfEntries = in.readInt();
+		names = new String[in.readInt()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = in.readUTF();
+		}
+		types = new ITypeName[names.length];
+		methods = new IMethodName[names.length];
+		fields = new IFieldName[names.length];
+	}
+
+	boolean isCompressed() {
+		return isCompressed;
+	}
+
+	int numberOfEntries() {
+		return numberOfEntries;
+	}
+
+	String name(int id) {
+		return id == NONE ? null : names[id];
+	}
+
+	ProjectFoldedUsage decode(IntSource in) throws IOException {
+		String projectName = name(in.nextInt());
+
+		Query q = new Query();
+		q.setType(type(in.nextInt()));
+		q.setClassContext(type(in.nextInt()));
+		q.setMethodContext(method(in.nextInt()));
+		q.setDefinition(decodeDefinition(in));
+		q.setAllCallsites(decodeCallSites(in));
+
+		return new ProjectFoldedUsage(q, projectName);
+	}
+
+	private DefinitionSite decodeDefinition(IntSource in) throws IOException {
+		int kind = in.nextInt();
+		if (kind == NONE) {
+			return null;
+		}
+		DefinitionSite def = DefinitionSites.createUnknownDefinitionSite();
+		def.setKind(kind == NO_KIND ? null : DEFINITION_KINDS[kind]);
+		def.setMethod(method(in.nextInt()));
+		def.setField(field(in.nextInt()));
+		def.setArgIndex(in.nextInt());
+		return def;
+	}
+
+	private Set<CallSite> decodeCallSites(IntSource in) throws IOException {
+		int numSites = in.nextInt();
+		if (numSites == NONE) {
+			return null;
+		}
+		Set<CallSite> sites = Sets.newLinkedHashSetWithExpectedSize(numSites);
+		for (int i = 0; i < numSites; i++) {
+			int kind = in.nextInt();
+			CallSite site = CallSites.createReceiverCallSite(PLACEHOLDER);
+			site.setKind(kind == NONE ? null : CALL_SITE_KINDS[kind]);
+			site.setMethod(method(in.nextInt()));
+			site.setArgIndex(in.nextInt());
+			sites.add(site);
+		}
+		return sites;
+	}
+
+	private ITypeName type(int id) {
+		if (id == NONE) {
+			return null;
+		}
+		if (types[id] == null) {
+			types[id] = VmTypeName.get(names[id]);
+		}
+		return types[id];
+	}
+
+	private IMethodName method(int id) {
+		if (id == NONE) {
+			return null;
+		}
+		if (methods[id] == null) {
+			methods[id] = VmMethodName.get(names[id]);
+		}
+		return methods[id];
+	}
+
+	private IFieldName field(int id) {
+		if (id == NONE) {
+			return null;
+		}
+		if (fields[id] == null) {
+			fields[id] = VmFieldName.get(names[id]);
+		}
+		return fields[id];
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sebastian Proksch - initial API and implementation
+ ******************************************************************************/
+package cc.recommenders.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.io.UsageDecoder.IntSource;
+import cc.recommenders.usages.ProjectFoldedUsage;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * reads the usages of an archive that was created by a
+ * {@link UsageWritingArchive} in a single sequential scan.
+ * 
+ * @see MappedUsageArchive
+ */
+public class UsageReadingArchive implements Closeable {
+
+	private final UsageDecoder decoder;
+	private final DataInputStream in;
+	private final IntSource source;
+	private int numberRead = 0;
+
+	public UsageReadingArchive(File file) throws IOException {
+		InputStream fileIn = new BufferedInputStream(new FileInputStream(file));
+		boolean isOpened = false;
+		try {
+			DataInputStream header = new DataInputStream(fileIn);
+			decoder = new UsageDecoder(header, file.toString());
+			// the offsets are only needed for random access
+			ByteStreams.skipFully(header, 4L * decoder.numberOfEntries());
+			in = decoder.isCompressed() ? new DataInputStream(new BufferedInputStream(new InflaterInputStream(
+					fileIn))) : header;
+			isOpened = true;
+		} finally {
+			if (!isOpened) {
+				fileIn.close();
+			}
+		}
+		source = new IntSource() {
+			@Override
+			public int nextInt() throws IOException {
+				return in.readInt();
+			}
+		};
+	}
+
+	public boolean hasNext() {
+		return numberRead < decoder.numberOfEntries();
+	}
+
+	public ProjectFoldedUsage getNext() throws IOException {
+		Asserts.assertTrue(hasNext());
+		numberRead++;
+		return decoder.decode(source);
+	}
+
+	public int numberOfEntries() {
+		return decoder.numberOfEntries();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sebastian Proksch - initial API and implementation
+ ******************************************************************************/
+package cc.recommenders.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+
+import cc.recommenders.usages.CallSite;
+import cc.recommenders.usages.DefinitionSite;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Usage;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * writes usages to a compact binary archive. All names (types, methods,
+ * fields, projects) are stored once in a dictionary at the beginning of the
+ * file, the usages follow as records of int values that refer to this
+ * dictionary. The position of each record is stored in an offset table, so
+ * uncompressed archives can be accessed randomly (see
+ * {@link MappedUsageArchive}). The records can optionally be compressed.
+ * 
+ * As the dictionary is only complete after the last usage has been added, the
+ * records are buffered and the archive is written on {@link #close()}.
+ * 
+ * @see UsageReadingArchive
+ */
+public class UsageWritingArchive implements Closeable {
+
+	static final int MAGIC = 0x55534732; // "USG2"
+	// the first version had no offset table
+	static final int MAGIC_V1 = 0x55534731; // "USG1"
+	static final int NONE = -1;
+	static final int NO_KIND = -2;
+
+	private final OutputStream out;
+	private final boolean isCompressed;
+
+	private final Map<String, Integer> nameIds = Maps.newHashMap();
+	private final List<String> names = Lists.newArrayList();
+
+	private int[] records = new int[1024];
+	private int recordsLength = 0;
+	private int[] offsets = new int[64];
+	private int count = 0;
+
+	public UsageWritingArchive(File file) throws FileNotFoundException {
+		this(file, false);
+	}
+
+	public UsageWritingArchive(File file, boolean isCompressed) throws FileNotFoundException {
+		out = new FileOutputStream(file);
+		this.isCompressed = isCompressed;
+	}
+
+	public void add(Usage usage) {
+		add(usage, null);
+	}
+
+	public void add(ProjectFoldedUsage pfu) {
+		add(pfu.getRawUsage(), pfu.getProjectName());
+	}
+
+	private void add(Usage usage, String projectName) {
+		if (count == offsets.length) {
+			offsets = Arrays.copyOf(offsets, count * 2);
+		}
+		offsets[count] = recordsLength;
+
+		append(id(projectName));
+		append(id(usage.getType()));
+		append(id(usage.getClassContext()));
+		append(id(usage.getMethodContext()));
+
+		DefinitionSite def = usage.getDefinitionSite();
+		if (def == null) {
+			append(NONE);
+		} else {
+			append(def.getKind() == null ? NO_KIND : def.getKind().ordinal());
+			append(id(def.getMethod()));
+			append(id(def.getField()));
+			append(def.getArgIndex());
+		}
+
+		Set<CallSite> sites = usage.getAllCallsites();
+		if (sites == null) {
+			append(NONE);
+		} else {
+			append(sites.size());
+			for (CallSite site : sites) {
+				append(site.getKind() == null ? NONE : site.getKind().ordinal());
+				append(id(site.getMethod()));
+				append(site.getArgIndex());
+			}
+		}
+		count++;
+	}
+
+	private int id(Object name) {
+		if (name == null) {
+			return NONE;
+		}
+		String s = name.toString();
+		Integer id = nameIds.get(s);
+		if (id == null) {
+			id = names.size();
+			nameIds.put(s, id);
+			names.add(s);
+		}
+		return id;
+	}
+
+	private void append(int value) {
+		if (recordsLength == records.length) {
+			records = Arrays.copyOf(records, records.length * 2);
+		}
+		records[recordsLength++] = value;
+	}
+
+	public int numberOfEntries() {
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out));
+		header.writeInt(MAGIC);
+		header.writeBoolean(isCompressed);
+		header.writeInt(count);
+		header.writeInt(names.size());
+		for (String name : names) {
+			header.writeUTF(name);
+		}
+		for (int i = 0; i < count; i++) {
+			header.writeInt(offsets[i]);
+		}
+		header.flush();
+
+		DataOutputStream body = header;
+		if (isCompressed) {
+			body = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(out)));
+		}
+		for (int i = 0; i < recordsLength; i++) {
+			body.writeInt(records[i]);
+		}
+		body.close();
+	}
+}
@@ -29,6 +29,10 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSites;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Query;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Lists;
@@ -242,6 +246,26 @@ public class DirectoryTest {
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	public void usageArchiveRoundtrip() throws IOException {
+		setup();
+
+		Query q = new Query();
+		q.setType(VmTypeName.get("La/B"));
+		q.addCallSite(CallSites.createReceiverCallSite("La/B.m()V"));
+
+		UsageWritingArchive writingArchive = uut.getUsageWritingArchive("LA_B.bin", true);
+		writingArchive.add(new ProjectFoldedUsage(q, "p.zip"));
+		writingArchive.close();
+
+		UsageReadingArchive readingArchive = uut.getUsageReadingArchive("LA_B.bin");
+		assertEquals(1, readingArchive.numberOfEntries());
+		ProjectFoldedUsage actual = readingArchive.getNext();
+		readingArchive.close();
+
+		assertEquals(new ProjectFoldedUsage(q, "p.zip"), actual);
+	}
+
 	@Test
 	public void writeReopenReadRoundtrip() throws IOException {
 		setup();
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sebastian Proksch - initial API and implementation
+ ******************************************************************************/
+package cc.recommenders.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSites;
+import cc.recommenders.usages.DefinitionSites;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Query;
+
+import com.google.common.collect.Lists;
+
+public class MappedUsageArchiveTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File file;
+	private List<ProjectFoldedUsage> usages;
+
+	@Before
+	public void setup() throws IOException {
+		file = tempFolder.newFile("LType.bin");
+		usages = Lists.newArrayList();
+		for (int i = 0; i < 20; i++) {
+			Query q = new Query();
+			q.setType(VmTypeName.get("La/B"));
+			q.setMethodContext(VmMethodName.get("La/C.m" + (i % 4) + "()V"));
+			q.setDefinition(DefinitionSites.createDefinitionByConstructor("La/B.<init>()V"));
+			for (int j = 0; j < i % 5; j++) {
+				q.addCallSite(CallSites.createReceiverCallSite("La/B.m" + j + "()V"));
+			}
+			usages.add(new ProjectFoldedUsage(q, "p" + (i / 7)));
+		}
+	}
+
+	@Test
+	public void usagesCanBeAccessedRandomly() throws IOException {
+		write(false);
+		MappedUsageArchive sut = new MappedUsageArchive(file);
+
+		assertEquals(usages.size(), sut.numberOfEntries());
+		for (int i = usages.size() - 1; i >= 0; i--) {
+			assertEquals(usages.get(i), sut.get(i));
+		}
+		assertEquals(usages.get(3), sut.get(3));
+	}
+
+	@Test
+	public void projectNamesCanBeReadWithoutUsage() throws IOException {
+		write(false);
+		MappedUsageArchive sut = new MappedUsageArchive(file);
+
+		for (int i = 0; i < usages.size(); i++) {
+			assertEquals(usages.get(i).getProjectName(), sut.getProjectName(i));
+		}
+	}
+
+	@Test
+	public void emptyArchive() throws IOException {
+		new UsageWritingArchive(file).close();
+		MappedUsageArchive sut = new MappedUsageArchive(file);
+		assertEquals(0, sut.numberOfEntries());
+	}
+
+	@Test(expected = AssertionException.class)
+	public void compressedArchivesCannotBeMapped() throws IOException {
+		write(true);
+		new MappedUsageArchive(file);
+	}
+
+	private void write(boolean isCompressed) throws IOException {
+		UsageWritingArchive writer = new UsageWritingArchive(file, isCompressed);
+		for (ProjectFoldedUsage pfu : usages) {
+			writer.add(pfu);
+		}
+		writer.close();
+	}
+}
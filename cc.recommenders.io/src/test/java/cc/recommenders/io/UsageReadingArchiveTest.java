@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Sebastian Proksch - initial API and implementation
+ ******************************************************************************/
+package cc.recommenders.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSites;
+import cc.recommenders.usages.DefinitionSite;
+import cc.recommenders.usages.DefinitionSites;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+import com.google.common.collect.Lists;
+
+public class UsageReadingArchiveTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void setup() throws IOException {
+		file = tempFolder.newFile("LType.bin");
+	}
+
+	@Test
+	public void emptyArchive() throws IOException {
+		new UsageWritingArchive(file).close();
+
+		UsageReadingArchive sut = new UsageReadingArchive(file);
+		assertEquals(0, sut.numberOfEntries());
+		assertFalse(sut.hasNext());
+		sut.close();
+	}
+
+	@Test
+	public void usagesCanBeRoundtripped() throws IOException {
+		List<ProjectFoldedUsage> expected = Lists.newArrayList();
+		expected.add(new ProjectFoldedUsage(createUsage("La/B", "La/B.m()V"), "p1.zip"));
+		expected.add(new ProjectFoldedUsage(createUsage("La/C", "La/B.n()V"), "p2.zip"));
+		expected.add(new ProjectFoldedUsage(createUsage("La/B", "La/B.m()V"), "p1.zip"));
+
+		assertEquals(expected, roundtrip(expected, false));
+	}
+
+	@Test
+	public void compressedUsagesCanBeRoundtripped() throws IOException {
+		List<ProjectFoldedUsage> expected = Lists.newArrayList();
+		for (int i = 0; i < 100; i++) {
+			expected.add(new ProjectFoldedUsage(createUsage("La/B", "La/B.m" + i + "()V"), "p" + (i % 3) + ".zip"));
+		}
+
+		assertEquals(expected, roundtrip(expected, true));
+	}
+
+	@Test
+	public void missingValuesAreRoundtripped() throws IOException {
+		Query q = new Query();
+		q.setAllCallsites(null);
+
+		List<ProjectFoldedUsage> actual = roundtrip(Lists.newArrayList(new ProjectFoldedUsage(q, null)), false);
+
+		assertEquals(q, actual.get(0).getRawUsage());
+		assertNull(actual.get(0).getProjectName());
+	}
+
+	@Test
+	public void definitionsWithoutKindAreRoundtripped() throws IOException {
+		Query q = createUsage("La/B", "La/B.m()V");
+		DefinitionSite def = DefinitionSites.createUnknownDefinitionSite();
+		def.setKind(null);
+		q.setDefinition(def);
+
+		List<ProjectFoldedUsage> actual = roundtrip(Lists.newArrayList(new ProjectFoldedUsage(q, "p")), false);
+
+		assertEquals(q, actual.get(0).getRawUsage());
+	}
+
+	@Test
+	public void rawUsagesCanBeAdded() throws IOException {
+		Query q = createUsage("La/B", "La/B.m()V");
+		UsageWritingArchive writer = new UsageWritingArchive(file);
+		writer.add(q);
+		writer.close();
+
+		UsageReadingArchive sut = new UsageReadingArchive(file);
+		ProjectFoldedUsage actual = sut.getNext();
+		sut.close();
+
+		assertEquals(q, actual.getRawUsage());
+		assertNull(actual.getProjectName());
+	}
+
+	@Test
+	public void namesAreSharedBetweenUsages() throws IOException {
+		List<ProjectFoldedUsage> in = Lists.newArrayList();
+		in.add(new ProjectFoldedUsage(createUsage("La/B", "La/B.m()V"), "p"));
+		in.add(new ProjectFoldedUsage(createUsage("La/B", "La/B.m()V"), "p"));
+
+		List<ProjectFoldedUsage> out = roundtrip(in, false);
+
+		Usage u1 = out.get(0).getRawUsage();
+		Usage u2 = out.get(1).getRawUsage();
+		assertSame(u1.getType(), u2.getType());
+		assertSame(u1.getMethodContext(), u2.getMethodContext());
+	}
+
+	@Test
+	public void numberOfEntries() throws IOException {
+		UsageWritingArchive writer = new UsageWritingArchive(file);
+		writer.add(createUsage("La/B", "La/B.m()V"));
+		writer.add(createUsage("La/B", "La/B.m()V"));
+		assertEquals(2, writer.numberOfEntries());
+		writer.close();
+
+		UsageReadingArchive sut = new UsageReadingArchive(file);
+		assertEquals(2, sut.numberOfEntries());
+		sut.close();
+	}
+
+	@Test(expected = AssertionException.class)
+	public void otherFilesAreRejected() throws IOException {
+		FileUtils.writeStringToFile(file, "no usage archive");
+		new UsageReadingArchive(file);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void archivesWithoutOffsetTableAreRejected() throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		out.writeInt(UsageWritingArchive.MAGIC_V1);
+		out.writeBoolean(false);
+		out.writeInt(0);
+		out.writeInt(0);
+		out.close();
+		new UsageReadingArchive(file);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void readingBeyondTheLastEntryFails() throws IOException {
+		new UsageWritingArchive(file).close();
+		UsageReadingArchive sut = new UsageReadingArchive(file);
+		sut.getNext();
+	}
+
+	private List<ProjectFoldedUsage> roundtrip(List<ProjectFoldedUsage> usages, boolean isCompressed)
+			throws IOException {
+		UsageWritingArchive writer = new UsageWritingArchive(file, isCompressed);
+		for (ProjectFoldedUsage pfu : usages) {
+			writer.add(pfu);
+		}
+		writer.close();
+
+		List<ProjectFoldedUsage> actual = Lists.newArrayList();
+		UsageReadingArchive sut = new UsageReadingArchive(file);
+		while (sut.hasNext()) {
+			actual.add(sut.getNext());
+		}
+		sut.close();
+		assertTrue(actual.size() == usages.size());
+		return actual;
+	}
+
+	private static Query createUsage(String type, String call) {
+		Query q = new Query();
+		q.setType(VmTypeName.get(type));
+		q.setClassContext(VmTypeName.get("La/Ctx"));
+		q.setMethodContext(VmMethodName.get("La/Ctx.m(La/B;)V"));
+		q.setDefinition(DefinitionSites.createDefinitionByParam("La/Ctx.m(La/B;)V", 0));
+		q.addCallSite(CallSites.createReceiverCallSite(call));
+		q.addCallSite(CallSites.createParameterCallSite("La/Other.p(La/B;)V", 0));
+		q.addCallSite(CallSites.createReceiverCallSite("La/B.<init>()V"));
+		return q;
+	}
+}
@@ -1,5 +1,8 @@
 package cc.recommenders.mining.calls;
 
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
 import java.util.Set;
 
 import cc.recommenders.assertions.Asserts;
@@ -14,6 +17,15 @@ public class AbstractCallsRecommender<T> implements ICallsRecommender<T> {
 		return null;
 	}
 
+	@Override
+	public List<Set<Tuple<IMethodName, Double>>> queryAll(List<T> queries) {
+		List<Set<Tuple<IMethodName, Double>>> proposals = newArrayList();
+		for (T query : queries) {
+			proposals.add(query(query));
+		}
+		return proposals;
+	}
+
 	@Override
 	public Set<Tuple<String, Double>> getPatternsWithProbability() {
 		Asserts.fail("not implemented yet");
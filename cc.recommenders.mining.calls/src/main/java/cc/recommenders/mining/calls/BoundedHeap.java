@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import cc.recommenders.assertions.Asserts;
+
+/**
+ * keeps the ids with the highest values of all offered ones, at most
+ * "capacity" many. Equal values are ordered by their id, smaller ids are
+ * considered higher. The worst of the kept entries is on top of the heap.
+ */
+public class BoundedHeap {
+
+	private final double[] values;
+	private final int[] ids;
+	private int size = 0;
+
+	public BoundedHeap(int capacity) {
+		Asserts.assertGreaterThan(capacity, 0);
+		values = new double[capacity];
+		ids = new int[capacity];
+	}
+
+	/**
+	 * @return true if the entry is kept
+	 */
+	public boolean offer(int id, double value) {
+		if (size < values.length) {
+			values[size] = value;
+			ids[size] = id;
+			siftUp(size++);
+			return true;
+		}
+		if (isWorse(value, id, values[0], ids[0])) {
+			return false;
+		}
+		values[0] = value;
+		ids[0] = id;
+		siftDown(0);
+		return true;
+	}
+
+	public boolean isFull() {
+		return size == values.length;
+	}
+
+	/**
+	 * @return the lowest value that is currently kept
+	 */
+	public double peekValue() {
+		Asserts.assertTrue(size > 0);
+		return values[0];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the id of the i-th kept entry, kept entries are not sorted
+	 */
+	public int getId(int i) {
+		return ids[i];
+	}
+
+	public double getValue(int i) {
+		return values[i];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!isWorse(i, parent)) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int worst = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && isWorse(left, worst)) {
+				worst = left;
+			}
+			if (right < size && isWorse(right, worst)) {
+				worst = right;
+			}
+			if (worst == i) {
+				return;
+			}
+			swap(i, worst);
+			i = worst;
+		}
+	}
+
+	private boolean isWorse(int i, int j) {
+		return isWorse(values[i], ids[i], values[j], ids[j]);
+	}
+
+	private static boolean isWorse(double value, int id, double otherValue, int otherId) {
+		return value < otherValue || (value == otherValue && id > otherId);
+	}
+
+	private void swap(int i, int j) {
+		double value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+		int id = ids[i];
+		ids[i] = ids[j];
+		ids[j] = id;
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.usages.Query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * remembers the proposals of the most recent queries. Queries are identified
+ * by the evidence they set in the model, so queries that only differ in
+ * information that is unknown to the model share their proposals. Every
+ * caller gets its own copy of the cached proposals.
+ */
+public class CachingCallsRecommender implements ICallsRecommender<Query> {
+
+	private final ICallsRecommender<Query> delegate;
+	private final IEvidenceKeyProvider keyProvider;
+	private final Cache<EvidenceKey, Set<Tuple<IMethodName, Double>>> proposals;
+
+	public CachingCallsRecommender(ICallsRecommender<Query> delegate, IEvidenceKeyProvider keyProvider,
+			long maxEntries) {
+		Asserts.assertGreaterThan(maxEntries, 0);
+		this.delegate = delegate;
+		this.keyProvider = keyProvider;
+		proposals = CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().build();
+	}
+
+	@Override
+	public Set<Tuple<IMethodName, Double>> query(Query query) {
+		EvidenceKey key = keyProvider.createEvidenceKey(query);
+		Set<Tuple<IMethodName, Double>> cached = proposals.getIfPresent(key);
+		if (cached == null) {
+			cached = delegate.query(query);
+			proposals.put(key, cached);
+		}
+		return copy(cached);
+	}
+
+	/**
+	 * only the queries that are not cached are forwarded, all of them at once
+	 */
+	@Override
+	public List<Set<Tuple<IMethodName, Double>>> queryAll(List<Query> queries) {
+		List<Set<Tuple<IMethodName, Double>>> results = newArrayList();
+		List<EvidenceKey> keys = newArrayList();
+		List<Query> misses = newArrayList();
+		for (Query query : queries) {
+			EvidenceKey key = keyProvider.createEvidenceKey(query);
+			keys.add(key);
+			Set<Tuple<IMethodName, Double>> cached = proposals.getIfPresent(key);
+			results.add(cached);
+			if (cached == null) {
+				misses.add(query);
+			}
+		}
+
+		List<Set<Tuple<IMethodName, Double>>> computed = misses.isEmpty() ? null : delegate.queryAll(misses);
+		int numComputed = 0;
+		for (int i = 0; i < results.size(); i++) {
+			Set<Tuple<IMethodName, Double>> result = results.get(i);
+			if (result == null) {
+				result = computed.get(numComputed++);
+				proposals.put(keys.get(i), result);
+			}
+			results.set(i, copy(result));
+		}
+		return results;
+	}
+
+	private static Set<Tuple<IMethodName, Double>> copy(Set<Tuple<IMethodName, Double>> proposals) {
+		TreeSet<Tuple<IMethodName, Double>> copy = ProposalHelper.createSortedSet();
+		copy.addAll(proposals);
+		return copy;
+	}
+
+	@Override
+	public Set<Tuple<String, Double>> getPatternsWithProbability() {
+		return delegate.getPatternsWithProbability();
+	}
+
+	@Override
+	public Set<Tuple<IMethodName, Double>> queryPattern(String patternName) {
+		return delegate.queryPattern(patternName);
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	public CacheStats getStats() {
+		return proposals.stats();
+	}
+
+	public void invalidateAll() {
+		proposals.invalidateAll();
+	}
+}
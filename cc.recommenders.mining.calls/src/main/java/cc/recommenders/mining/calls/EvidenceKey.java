@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import java.util.Arrays;
+
+/**
+ * the evidence of a query as the set of observed node states. States are
+ * identified by ints that are unique within one model, so keys are cheap to
+ * hash and compare.
+ */
+public class EvidenceKey {
+
+	private final int[] states;
+	private final int hashCode;
+
+	/**
+	 * @param states
+	 *            ids of the observed states in any order, duplicates are
+	 *            ignored
+	 */
+	public EvidenceKey(int... states) {
+		int[] sorted = states.clone();
+		Arrays.sort(sorted);
+		int numUnique = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[numUnique++] = sorted[i];
+			}
+		}
+		this.states = Arrays.copyOf(sorted, numUnique);
+		hashCode = Arrays.hashCode(this.states);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof EvidenceKey)) {
+			return false;
+		}
+		EvidenceKey other = (EvidenceKey) obj;
+		return hashCode == other.hashCode && Arrays.equals(states, other.states);
+	}
+
+	@Override
+	public String toString() {
+		return "EvidenceKey" + Arrays.toString(states);
+	}
+}
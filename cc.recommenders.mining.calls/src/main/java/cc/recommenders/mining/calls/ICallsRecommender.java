@@ -10,6 +10,7 @@
  */
 package cc.recommenders.mining.calls;
 
+import java.util.List;
 import java.util.Set;
 
 import cc.recommenders.datastructures.Tuple;
@@ -19,6 +20,15 @@ public interface ICallsRecommender<Query> {
 
 	Set<Tuple<IMethodName, Double>> query(Query query);
 
+	/**
+	 * answers several queries at once, this is equivalent to calling
+	 * query(...) for each of them, but allows implementations to share work
+	 * between similar queries
+	 * 
+	 * @return the proposals in the order of the queries
+	 */
+	List<Set<Tuple<IMethodName, Double>>> queryAll(List<Query> queries);
+
 	Set<Tuple<String, Double>> getPatternsWithProbability();
 
 	Set<Tuple<IMethodName, Double>> queryPattern(String patternName);
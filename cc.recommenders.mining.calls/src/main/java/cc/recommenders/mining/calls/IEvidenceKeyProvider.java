@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import cc.recommenders.usages.Query;
+
+public interface IEvidenceKeyProvider {
+
+	/**
+	 * @return a key that is equal for two queries, if and only if both set
+	 *         the same evidence in the model, so both have the same proposals
+	 */
+	EvidenceKey createEvidenceKey(Query query);
+}
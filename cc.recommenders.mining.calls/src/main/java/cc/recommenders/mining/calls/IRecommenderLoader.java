@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.usages.Query;
+
+public interface IRecommenderLoader {
+
+	/**
+	 * @return the recommender for the type or null, if no model exists for it
+	 */
+	ICallsRecommender<Query> load(ITypeName type) throws Exception;
+}
@@ -11,6 +11,7 @@
 package cc.recommenders.mining.calls;
 
 import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
 import static java.lang.Math.round;
 import static java.util.regex.Pattern.compile;
 import static org.apache.commons.lang3.builder.EqualsBuilder.reflectionEquals;
@@ -32,6 +33,16 @@ public class QueryOptions {
 	public double minProbability = 0;
 	public boolean isIgnoringAfterFullRecall = false;
 	public boolean useDoublePrecision = true;
+	/**
+	 * number of proposals returned per query, the most probable ones are
+	 * kept; 0 for all proposals
+	 */
+	public int topK = 0;
+	/**
+	 * star networks are solved in closed form instead of with a junction tree,
+	 * the proposals are the same
+	 */
+	public boolean useStarInference = false;
 
 	public static QueryOptions newQueryOptions(String in) {
 		Asserts.assertNotNull(in);
@@ -61,7 +72,12 @@ public class QueryOptions {
 			options.useDoublePrecision = parseExistance(in, "DOUBLE");
 		}
 
+		if (keyExists(in, "STAR")) {
+			options.useStarInference = parseExistance(in, "STAR");
+		}
+
 		options.minProbability = parseMin(in);
+		options.topK = parseTop(in);
 		options.queryType = parseQueryType(in);
 
 		return options;
@@ -103,6 +119,16 @@ public class QueryOptions {
 		}
 	}
 
+	private static int parseTop(String in) {
+		Pattern p = compile(".*\\+TOP([0-9]+).*");
+		Matcher m = p.matcher(in);
+		if (m.matches()) {
+			return parseInt(m.group(1));
+		} else {
+			return 0;
+		}
+	}
+
 	@Override
 	public int hashCode() {
 		return reflectionHashCode(this);
@@ -129,6 +155,14 @@ public class QueryOptions {
 			sb.append("+MIN" + round(minProbability * 100));
 		}
 
+		if (topK > 0) {
+			sb.append("+TOP" + topK);
+		}
+
+		if (useStarInference) {
+			sb.append("+STAR");
+		}
+
 		return sb.toString();
 	}
 
@@ -152,6 +186,8 @@ public class QueryOptions {
 		useParameterSites = other.useParameterSites;
 		minProbability = other.minProbability;
 		isIgnoringAfterFullRecall = other.isIgnoringAfterFullRecall;
+		topK = other.topK;
+		useStarInference = other.useStarInference;
 		queryType = other.queryType;
 		return this;
 	}
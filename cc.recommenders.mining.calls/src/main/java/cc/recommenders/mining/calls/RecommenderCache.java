@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.io.Logger;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.usages.Query;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * the recommenders of all types, a recommender is loaded when its type is
+ * queried for the first time. The least recently used recommenders are
+ * evicted as soon as the estimated size of all loaded models exceeds the
+ * memory budget. Types that will probably be queried soon can be prefetched
+ * in the background.
+ */
+public class RecommenderCache {
+
+	/**
+	 * estimated size of the cache entry of a type without model. Entries
+	 * without weight would never be evicted.
+	 */
+	private static final int ABSENT_ENTRY_BYTES = 64;
+
+	private final LoadingCache<ITypeName, Optional<ICallsRecommender<Query>>> recommenders;
+	private final ExecutorService prefetcher;
+
+	public RecommenderCache(IRecommenderLoader loader, long maxBytes) {
+		this(loader, maxBytes, Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+				.setNameFormat("recommender-prefetch-%d").build()));
+	}
+
+	public RecommenderCache(final IRecommenderLoader loader, long maxBytes, ExecutorService prefetcher) {
+		Asserts.assertGreaterThan(maxBytes, 0);
+		this.prefetcher = prefetcher;
+		// the budget is split between the segments of a cache, a single
+		// segment keeps one LRU order over all models. Reads do not lock and
+		// loads run outside of the segment lock anyway.
+		recommenders = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(maxBytes)
+				.weigher(new Weigher<ITypeName, Optional<ICallsRecommender<Query>>>() {
+					@Override
+					public int weigh(ITypeName type, Optional<ICallsRecommender<Query>> recommender) {
+						if (!recommender.isPresent()) {
+							return ABSENT_ENTRY_BYTES;
+						}
+						return Math.max(1, recommender.get().getSize());
+					}
+				}).recordStats().build(new CacheLoader<ITypeName, Optional<ICallsRecommender<Query>>>() {
+					@Override
+					public Optional<ICallsRecommender<Query>> load(ITypeName type) throws Exception {
+						return Optional.fromNullable(loader.load(type));
+					}
+				});
+	}
+
+	/**
+	 * @return the recommender for the type or null, if no model exists for it
+	 */
+	public ICallsRecommender<Query> get(ITypeName type) {
+		return recommenders.getUnchecked(type).orNull();
+	}
+
+	/**
+	 * @return the proposals of the recommender for the type of the query or an
+	 *         empty set, if no model exists for that type
+	 */
+	public Set<Tuple<IMethodName, Double>> query(Query query) {
+		ICallsRecommender<Query> recommender = get(query.getType());
+		if (recommender == null) {
+			return ProposalHelper.createSortedSet();
+		}
+		return recommender.query(query);
+	}
+
+	/**
+	 * loads the recommender for the type in the background, unless it is
+	 * already loaded. A query for the type that arrives while it is loaded
+	 * waits for the running load.
+	 */
+	public Future<?> prefetch(final ITypeName type) {
+		return prefetcher.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					recommenders.getUnchecked(type);
+				} catch (RuntimeException e) {
+					Logger.err("prefetching %s failed: %s", type, e.getMessage());
+				}
+			}
+		});
+	}
+
+	public boolean isLoaded(ITypeName type) {
+		return recommenders.getIfPresent(type) != null;
+	}
+
+	public void invalidate(ITypeName type) {
+		recommenders.invalidate(type);
+	}
+
+	public void invalidateAll() {
+		recommenders.invalidateAll();
+	}
+
+	public CacheStats getStats() {
+		return recommenders.stats();
+	}
+}
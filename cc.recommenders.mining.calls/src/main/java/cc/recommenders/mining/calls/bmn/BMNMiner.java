@@ -24,7 +24,6 @@ import cc.recommenders.mining.features.OptionAwareFeaturePredicate;
 import cc.recommenders.usages.Query;
 import cc.recommenders.usages.Usage;
 import cc.recommenders.usages.features.UsageFeature;
-import cc.recommenders.utils.dictionary.Dictionary;
 
 import com.google.inject.Inject;
 
@@ -54,20 +53,19 @@ public class BMNMiner implements Miner<Usage, Query> {
 
 		bmnModel.table = new Table(bmnModel.dictionary.size());
 
+		// one usage at a time, no features are kept beyond their row
 		for (Usage u : in) {
-			boolean[] uArr = convert(u, bmnModel.dictionary);
-			bmnModel.table.add(uArr);
+			int[] ids = extractor.extractIds(u, bmnModel.dictionary);
+			bmnModel.table.add(convert(ids, bmnModel.dictionary.size()));
 		}
 
 		return bmnModel;
 	}
 
-	private boolean[] convert(Usage u, Dictionary<UsageFeature> dict) {
-		boolean[] uArr = new boolean[dict.size()];
-		List<UsageFeature> fs = extractor.extract(u);
-		for (int i = 0; i < dict.size(); i++) {
-			UsageFeature f = dict.getEntry(i);
-			uArr[i] = fs.contains(f);
+	private static boolean[] convert(int[] ids, int numFeatures) {
+		boolean[] uArr = new boolean[numFeatures];
+		for (int id : ids) {
+			uArr[id] = true;
 		}
 		return uArr;
 	}
@@ -24,6 +24,7 @@ import cc.recommenders.mining.calls.AbstractCallsRecommender;
 import cc.recommenders.mining.calls.ProposalHelper;
 import cc.recommenders.mining.calls.QueryOptions;
 import cc.recommenders.mining.features.FeatureExtractor;
+import cc.recommenders.mining.features.FeatureIds;
 import cc.recommenders.names.IMethodName;
 import cc.recommenders.usages.Query;
 import cc.recommenders.usages.Usage;
@@ -77,10 +78,11 @@ public class BMNRecommender extends AbstractCallsRecommender<Query> {
 
 	private QueryState[] convert(List<UsageFeature> fs) {
 		QueryState[] qss = new QueryState[dictionary.size()];
+		int[] ids = FeatureIds.toIds(fs, dictionary);
 
 		for (int i = 0; i < dictionary.size(); i++) {
 			UsageFeature f = dictionary.getEntry(i);
-			final boolean isContained = fs.contains(f);
+			final boolean isContained = FeatureIds.contains(ids, i);
 			qss[i] = getState(f, isContained);
 		}
 
@@ -132,9 +134,8 @@ public class BMNRecommender extends AbstractCallsRecommender<Query> {
 
 		for (int nn : nns) {
 			totalNum += frequencies[nn];
-			boolean[] row = table.getBMNTable()[nn];
 			for (int col : colCounts.keySet()) {
-				if (row[col]) {
+				if (table.get(nn, col)) {
 					int newVal = colCounts.get(col) + frequencies[nn];
 					colCounts.put(col, newVal);
 				}
@@ -163,12 +164,25 @@ public class BMNRecommender extends AbstractCallsRecommender<Query> {
 	}
 
 	private List<Integer> findNearestNeighbors(QueryState[] query) {
+		assertEquals(table.getNumberOfColumns(), query.length);
+		// the query is compiled into masks, so the distance is computed on
+		// whole words of the packed rows
+		long[] trueMask = table.newMask();
+		long[] careMask = table.newMask();
+		for (int i = 0; i < query.length; i++) {
+			if (query[i] == TRUE) {
+				Table.setBit(trueMask, i);
+				Table.setBit(careMask, i);
+			} else if (query[i] == FALSE) {
+				Table.setBit(careMask, i);
+			}
+		}
+
 		int minDistance = Integer.MAX_VALUE;
 		List<Integer> nearestNeighbors = Lists.newLinkedList();
 
-		for (int i = 0; i < table.getBMNTable().length; i++) {
-			boolean[] row = table.getBMNTable()[i];
-			int dist = calculateDistance(query, row);
+		for (int i = 0; i < table.getNumberOfRows(); i++) {
+			int dist = table.calculateDistance(i, trueMask, careMask);
 			if (dist < minDistance) {
 				nearestNeighbors.clear();
 				nearestNeighbors.add(i);
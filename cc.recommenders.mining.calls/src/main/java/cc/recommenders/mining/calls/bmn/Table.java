@@ -15,89 +15,216 @@ import static cc.recommenders.assertions.Asserts.assertEquals;
 
 import java.util.Arrays;
 
+/**
+ * the rows are packed into bit sets, so a row takes one bit per feature and
+ * the distance to a query can be computed on whole words. Equal rows are
+ * found through a hash index, so adding a row takes constant time.
+ */
 public class Table {
 
+	private static final int BITS_PER_WORD = 64;
+	private static final int INITIAL_CAPACITY = 16;
+
 	private int numOfCols;
-	private boolean[][] bmnTable = new boolean[0][0];
-	private int[] frequencies = new int[0];
+	private int wordsPerRow;
+	// row i is stored in the words [i * wordsPerRow, (i + 1) * wordsPerRow),
+	// the arrays grow by doubling and are only used up to numOfRows
+	private long[] rows;
+	private int[] frequencies;
+	private int numOfRows = 0;
+
+	// open addressing over the row contents, a slot holds the row index + 1
+	// and 0 marks an empty slot
+	private int[] rowIndex;
+	private long[] rowBuffer;
 
 	public Table(int bmnTableSize) {
 		this.numOfCols = bmnTableSize;
+		this.wordsPerRow = getNumberOfWords(numOfCols);
+		initialize(INITIAL_CAPACITY);
 	}
 
 	public Table(boolean[][] bmnTable, int[] frequencies) {
 		assertEquals(bmnTable.length, frequencies.length);
 		this.numOfCols = bmnTable[0].length;
-		this.bmnTable = deepCopy(bmnTable, numOfCols);
-		this.frequencies = frequencies.clone();
+		this.wordsPerRow = getNumberOfWords(numOfCols);
+		initialize(bmnTable.length);
+		for (int i = 0; i < bmnTable.length; i++) {
+			assertEquals(numOfCols, bmnTable[i].length);
+			pack(bmnTable[i], rows, i * wordsPerRow);
+			this.frequencies[i] = frequencies[i];
+			numOfRows++;
+			addToIndex(i);
+		}
+	}
+
+	private void initialize(int capacity) {
+		rows = new long[capacity * wordsPerRow];
+		frequencies = new int[capacity];
+		rowIndex = new int[getIndexSize(capacity)];
+		rowBuffer = new long[wordsPerRow];
 	}
 
 	public void add(boolean[] row) {
 		assertEquals(numOfCols, row.length);
 
-		int index = findRow(row);
+		Arrays.fill(rowBuffer, 0);
+		pack(row, rowBuffer, 0);
+		int index = findRow(rowBuffer);
 
 		if (index == -1) {
-			int totalNumOfRows = bmnTable.length;
-
-			boolean[][] newTable = new boolean[totalNumOfRows + 1][numOfCols];
-			System.arraycopy(bmnTable, 0, newTable, 0, bmnTable.length);
-			newTable[totalNumOfRows] = row;
+			ensureCapacity(numOfRows + 1);
+			System.arraycopy(rowBuffer, 0, rows, numOfRows * wordsPerRow, wordsPerRow);
+			frequencies[numOfRows] = 1;
+			numOfRows++;
+			addToIndex(numOfRows - 1);
+		} else {
+			frequencies[index]++;
+		}
+	}
 
-			bmnTable = newTable;
+	private void ensureCapacity(int minCapacity) {
+		int capacity = frequencies.length;
+		if (minCapacity <= capacity) {
+			return;
+		}
+		int newCapacity = Math.max(minCapacity, Math.max(INITIAL_CAPACITY, capacity * 2));
+		rows = Arrays.copyOf(rows, newCapacity * wordsPerRow);
+		frequencies = Arrays.copyOf(frequencies, newCapacity);
 
-			int[] newFreq = new int[totalNumOfRows + 1];
-			System.arraycopy(frequencies, 0, newFreq, 0, frequencies.length);
-			newFreq[totalNumOfRows] = 1;
+		rowIndex = new int[getIndexSize(newCapacity)];
+		for (int i = 0; i < numOfRows; i++) {
+			addToIndex(i);
+		}
+	}
 
-			frequencies = newFreq;
-		} else {
-			frequencies[index]++;
+	// at most half of the slots are used
+	private static int getIndexSize(int capacity) {
+		int size = 2;
+		while (size < 2 * capacity) {
+			size *= 2;
 		}
+		return size;
 	}
 
-	private int findRow(boolean[] row) {
-		for (int i = 0; i < bmnTable.length; i++) {
-			boolean[] cur = bmnTable[i];
-			if (Arrays.equals(cur, row)) {
-				return i;
+	private int findRow(long[] packedRow) {
+		int mask = rowIndex.length - 1;
+		int slot = hash(packedRow, 0, wordsPerRow) & mask;
+		while (rowIndex[slot] != 0) {
+			int row = rowIndex[slot] - 1;
+			if (isRowEqual(row, packedRow)) {
+				return row;
 			}
+			slot = (slot + 1) & mask;
 		}
 		return -1;
 	}
 
+	private void addToIndex(int row) {
+		int mask = rowIndex.length - 1;
+		int slot = hash(rows, row * wordsPerRow, wordsPerRow) & mask;
+		while (rowIndex[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		rowIndex[slot] = row + 1;
+	}
+
+	private static int hash(long[] words, int offset, int length) {
+		int h = 1;
+		for (int w = offset; w < offset + length; w++) {
+			h = 31 * h + (int) (words[w] ^ (words[w] >>> 32));
+		}
+		// spread the higher bits, only the lower ones select the slot
+		return h ^ (h >>> 16);
+	}
+
+	private boolean isRowEqual(int row, long[] packedRow) {
+		int offset = row * wordsPerRow;
+		for (int w = 0; w < wordsPerRow; w++) {
+			if (rows[offset + w] != packedRow[w]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void pack(boolean[] row, long[] words, int offset) {
+		for (int col = 0; col < row.length; col++) {
+			if (row[col]) {
+				setBit(words, offset, col);
+			}
+		}
+	}
+
+	private static void setBit(long[] words, int offset, int col) {
+		words[offset + col / BITS_PER_WORD] |= 1L << (col % BITS_PER_WORD);
+	}
+
 	/**
-	 * do not alter the array that is returned here! you have access to the
-	 * internal version, for performance reasons
+	 * creates an empty mask for the columns of this table, which can be
+	 * filled with {@link #setBit(long[], int)}
 	 */
-	public boolean[][] getBMNTable() {
-		// return deepCopy(bmnTable, numOfCols);
-		return bmnTable;
+	public long[] newMask() {
+		return new long[wordsPerRow];
 	}
 
-	private static boolean[][] deepCopy(boolean[][] bmnTable, int numOfCols) {
-		boolean[][] newTable = new boolean[bmnTable.length][numOfCols];
-		for (int i = 0; i < bmnTable.length; i++) {
-			System.arraycopy(bmnTable[i], 0, newTable[i], 0, numOfCols);
+	public static void setBit(long[] mask, int col) {
+		setBit(mask, 0, col);
+	}
+
+	public boolean get(int row, int col) {
+		long word = rows[row * wordsPerRow + col / BITS_PER_WORD];
+		return (word & (1L << (col % BITS_PER_WORD))) != 0;
+	}
+
+	/**
+	 * counts the columns that are set in the care mask and in which the row
+	 * differs from the true mask
+	 */
+	public int calculateDistance(int row, long[] trueMask, long[] careMask) {
+		int offset = row * wordsPerRow;
+		int distance = 0;
+		for (int w = 0; w < wordsPerRow; w++) {
+			distance += Long.bitCount((rows[offset + w] ^ trueMask[w]) & careMask[w]);
 		}
-		return newTable;
+		return distance;
+	}
+
+	public int getNumberOfRows() {
+		return numOfRows;
+	}
+
+	public int getNumberOfColumns() {
+		return numOfCols;
+	}
+
+	/**
+	 * unpacks the table, use the packed accessors where performance matters
+	 */
+	public boolean[][] getBMNTable() {
+		boolean[][] bmnTable = new boolean[numOfRows][numOfCols];
+		for (int row = 0; row < numOfRows; row++) {
+			for (int col = 0; col < numOfCols; col++) {
+				bmnTable[row][col] = get(row, col);
+			}
+		}
+		return bmnTable;
 	}
 
 	public int[] getRowFrequencies() {
-		return frequencies.clone();
+		return Arrays.copyOf(frequencies, numOfRows);
 	}
 
 	/**
-	 * returns the size of this table in byte
+	 * returns the size of this table in byte, packed rows and frequencies
 	 */
 	public int getSize() {
-		// if(bmnTable.length == 0 || bmnTable[0].length == 0) {
-		// return 0;
-		// }
-		int numRows = bmnTable.length;
-		int numCols = bmnTable[0].length;
-		double rowSizeInByte = (numCols + 32) / 8d;
-		return (int) Math.round(Math.ceil(numRows * rowSizeInByte));
+		int rowSizeInByte = wordsPerRow * (BITS_PER_WORD / 8) + 4;
+		return numOfRows * rowSizeInByte;
+	}
+
+	private static int getNumberOfWords(int numOfCols) {
+		return (numOfCols + BITS_PER_WORD - 1) / BITS_PER_WORD;
 	}
 
 	@Override
@@ -109,11 +236,15 @@ public class Table {
 		if (getClass() != obj.getClass())
 			return false;
 		Table other = (Table) obj;
-		if (!Arrays.deepEquals(bmnTable, other.bmnTable))
+		if (numOfCols != other.numOfCols)
 			return false;
-		if (!Arrays.equals(frequencies, other.frequencies))
+		if (numOfRows != other.numOfRows)
 			return false;
-		if (numOfCols != other.numOfCols)
+		for (int i = 0; i < numOfRows * wordsPerRow; i++) {
+			if (rows[i] != other.rows[i])
+				return false;
+		}
+		if (!Arrays.equals(getRowFrequencies(), other.getRowFrequencies()))
 			return false;
 		return true;
 	}
@@ -122,10 +253,10 @@ public class Table {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		for (int rowIdx = 0; rowIdx < bmnTable.length; rowIdx++) {
-			result = prime * result + Arrays.hashCode(bmnTable[rowIdx]);
+		for (int i = 0; i < numOfRows * wordsPerRow; i++) {
+			result = prime * result + (int) (rows[i] ^ (rows[i] >>> 32));
 		}
-		result = prime * result + Arrays.hashCode(frequencies);
+		result = prime * result + Arrays.hashCode(getRowFrequencies());
 		result = prime * result + numOfCols;
 		return result;
 	}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls.pbn;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.eclipse.recommenders.jayes.util.Pair.newPair;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.commons.bayesnet.Node;
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTree;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeBuilder;
+import org.eclipse.recommenders.jayes.inference.junctionTree.PreparedJunctionTree;
+import org.eclipse.recommenders.jayes.util.Graph;
+import org.eclipse.recommenders.jayes.util.Graph.Edge;
+import org.eclipse.recommenders.jayes.util.Pair;
+import org.eclipse.recommenders.jayes.util.sharing.CanonicalPools;
+import org.eclipse.recommenders.jayes.util.sharing.WeakCanonicalPool;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.io.Logger;
+
+import com.google.common.base.Charsets;
+
+/**
+ * a network that is ready for inference, together with the junction tree that
+ * was built for it. Compiled models can be stored in a compact binary format
+ * and loaded from a (memory-mapped) buffer without rebuilding the junction
+ * tree or propagating through it, which makes loading many models much cheaper
+ * than reading a serialized {@link BayesianNetwork}.
+ *
+ * The format is: MAGIC, boolean useDoublePrecision, int numNodes, for each
+ * node its name, outcomes, parent ids and probabilities, int numClusters, for
+ * each cluster its node ids, int numSepSets, for each sepset the ids of both
+ * clusters and its node ids, for each sepset the prepared multiplications into
+ * its second and its first cluster, for each node its prepared query, int
+ * numPotentials, for each cluster and then for each sepset its initial
+ * potential values. Arrays are prefixed with their length, strings are stored
+ * as length-prefixed UTF-8. Probabilities and potentials are stored as float
+ * or double, depending on the requested precision. Sepsets are stored in
+ * canonical order, sorted by the ids of their clusters, so the same network is
+ * always stored in the same way.
+ */
+public class CompiledPBNModel {
+
+	public static final int MAGIC = 0x50424E32;
+
+	private final BayesNet bayesNet;
+	private JunctionTree junctionTree;
+	private final PreparedJunctionTree preparedJunctionTree;
+
+	/**
+	 * the junction tree is built when it is requested for the first time,
+	 * inference that does not need it never pays for it
+	 */
+	public CompiledPBNModel(BayesNet bayesNet) {
+		this(bayesNet, (JunctionTree) null);
+	}
+
+	public CompiledPBNModel(BayesNet bayesNet, JunctionTree junctionTree) {
+		this.bayesNet = bayesNet;
+		this.junctionTree = junctionTree;
+		this.preparedJunctionTree = null;
+	}
+
+	public CompiledPBNModel(BayesNet bayesNet, PreparedJunctionTree preparedJunctionTree) {
+		this.bayesNet = bayesNet;
+		this.junctionTree = preparedJunctionTree.getJunctionTree();
+		this.preparedJunctionTree = preparedJunctionTree;
+	}
+
+	public BayesNet getBayesNet() {
+		return bayesNet;
+	}
+
+	public synchronized JunctionTree getJunctionTree() {
+		if (junctionTree == null) {
+			junctionTree = canonicalize(JunctionTreeBuilder.forHeuristic(new MinFillIn()).buildJunctionTree(bayesNet));
+		}
+		return junctionTree;
+	}
+
+	/**
+	 * @return the junction tree together with its prepared operations and
+	 *         initial potentials (computed without log scale), or null if the
+	 *         model was not read from the binary format
+	 */
+	public PreparedJunctionTree getPreparedJunctionTree() {
+		return preparedJunctionTree;
+	}
+
+	public static CompiledPBNModel compile(BayesianNetwork network) {
+		BayesNet bayesNet = new BayesNet();
+		for (Node node : network.getNodes()) {
+			createNodeFrom(bayesNet, node);
+		}
+		for (Node node : network.getNodes()) {
+			List<BayesNode> parents = newArrayList();
+			for (Node parent : node.getParents()) {
+				parents.add(bayesNet.getNode(parent.getIdentifier()));
+			}
+			BayesNode bayesNode = bayesNet.getNode(node.getIdentifier());
+			bayesNode.setParents(parents);
+			bayesNode.setProbabilities(node.getProbabilities());
+		}
+		return new CompiledPBNModel(bayesNet);
+	}
+
+	private static void createNodeFrom(BayesNet bayesNet, Node node) {
+		BayesNode bayesNode = bayesNet.createNode(node.getIdentifier());
+		String[] states = node.getStates();
+		for (int i = 0; i < states.length; i++) {
+			try {
+				bayesNode.addOutcome(states[i]);
+			} catch (IllegalArgumentException e) {
+				Logger.err("error when adding outcome %s: %s", states[i], e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * the sepsets are sorted by the ids of their clusters and the edges always
+	 * lead from the lower to the higher id
+	 */
+	private static JunctionTree canonicalize(JunctionTree junctionTree) {
+		List<Pair<Edge, List<Integer>>> sorted = newArrayList(junctionTree.getSepSets());
+		Collections.sort(sorted, new Comparator<Pair<Edge, List<Integer>>>() {
+			@Override
+			public int compare(Pair<Edge, List<Integer>> a, Pair<Edge, List<Integer>> b) {
+				int cmp = lower(a.getFirst()) - lower(b.getFirst());
+				return cmp != 0 ? cmp : upper(a.getFirst()) - upper(b.getFirst());
+			}
+		});
+
+		JunctionTree canonical = new JunctionTree(new Graph());
+		canonical.setClusters(junctionTree.getClusters());
+		List<Pair<Edge, List<Integer>>> sepSets = newArrayList();
+		for (Pair<Edge, List<Integer>> sepSet : sorted) {
+			Edge edge = canonical.getGraph().addEdge(lower(sepSet.getFirst()), upper(sepSet.getFirst()));
+			sepSets.add(newPair(edge, sepSet.getSecond()));
+		}
+		canonical.setSepSets(sepSets);
+		return canonical;
+	}
+
+	private static int lower(Edge edge) {
+		return Math.min(edge.getFirst(), edge.getSecond());
+	}
+
+	private static int upper(Edge edge) {
+		return Math.max(edge.getFirst(), edge.getSecond());
+	}
+
+	public void write(OutputStream out, boolean useDoublePrecision) throws IOException {
+		ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+		writeNodes(new DataOutputStream(nodes), useDoublePrecision);
+		byte[] nodeBytes = nodes.toByteArray();
+		// the potentials are prepared for the network as it is read back, so
+		// rounding the probabilities cannot change the factors
+		BayesNet stored = readNodes(ByteBuffer.wrap(nodeBytes), useDoublePrecision);
+		JunctionTree junctionTree = canonicalize(getJunctionTree());
+		PreparedJunctionTree prepared = prepare(stored, junctionTree, useDoublePrecision);
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeBoolean(useDoublePrecision);
+		data.write(nodeBytes);
+
+		List<List<Integer>> clusters = junctionTree.getClusters();
+		data.writeInt(clusters.size());
+		for (List<Integer> cluster : clusters) {
+			writeIds(data, cluster);
+		}
+		List<Pair<Edge, List<Integer>>> sepSets = junctionTree.getSepSets();
+		data.writeInt(sepSets.size());
+		for (Pair<Edge, List<Integer>> sepSet : sepSets) {
+			data.writeInt(sepSet.getFirst().getFirst());
+			data.writeInt(sepSet.getFirst().getSecond());
+			writeIds(data, sepSet.getSecond());
+		}
+
+		for (int[] multiplication : prepared.getSepSetMultiplications()) {
+			writeIds(data, multiplication);
+		}
+		for (int[] query : prepared.getQueries()) {
+			writeIds(data, query);
+		}
+		IArrayWrapper[] potentials = prepared.getPotentialValues();
+		data.writeInt(potentials.length);
+		for (IArrayWrapper potential : potentials) {
+			writeValues(data, potential.toDoubleArray(), useDoublePrecision);
+		}
+		data.flush();
+	}
+
+	private static PreparedJunctionTree prepare(BayesNet net, JunctionTree junctionTree, boolean useDoublePrecision) {
+		JunctionTreeAlgorithm junctionTreeAlgorithm = new JunctionTreeAlgorithm();
+		if (!useDoublePrecision) {
+			junctionTreeAlgorithm.getFactory().setFloatingPointType(float.class);
+		}
+		junctionTreeAlgorithm.setNetwork(net, junctionTree);
+		return junctionTreeAlgorithm.getPreparedJunctionTree();
+	}
+
+	private void writeNodes(DataOutputStream data, boolean useDoublePrecision) throws IOException {
+		List<BayesNode> nodes = bayesNet.getNodes();
+		data.writeInt(nodes.size());
+		for (BayesNode node : nodes) {
+			writeString(data, node.getName());
+			data.writeInt(node.getOutcomeCount());
+			for (String outcome : node.getOutcomes()) {
+				writeString(data, outcome);
+			}
+			data.writeInt(node.getParents().size());
+			for (BayesNode parent : node.getParents()) {
+				data.writeInt(parent.getId());
+			}
+			writeValues(data, node.getProbabilities(), useDoublePrecision);
+		}
+		data.flush();
+	}
+
+	private static void writeString(DataOutputStream data, String s) throws IOException {
+		byte[] bytes = s.getBytes(Charsets.UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+	private static void writeIds(DataOutputStream data, List<Integer> ids) throws IOException {
+		data.writeInt(ids.size());
+		for (int id : ids) {
+			data.writeInt(id);
+		}
+	}
+
+	private static void writeIds(DataOutputStream data, int[] ids) throws IOException {
+		data.writeInt(ids.length);
+		for (int id : ids) {
+			data.writeInt(id);
+		}
+	}
+
+	private static void writeValues(DataOutputStream data, double[] values, boolean useDoublePrecision)
+			throws IOException {
+		data.writeInt(values.length);
+		for (double v : values) {
+			if (useDoublePrecision) {
+				data.writeDouble(v);
+			} else {
+				data.writeFloat((float) v);
+			}
+		}
+	}
+
+	/**
+	 * reads a model from the current position of the buffer, the position is
+	 * moved to the end of the model. Equal prepared operations and potentials
+	 * are shared with the models that were read before.
+	 */
+	public static CompiledPBNModel read(ByteBuffer in) {
+		Asserts.assertEquals(MAGIC, in.getInt(), "not a compiled model");
+		boolean useDoublePrecision = in.get() != 0;
+		BayesNet bayesNet = readNodes(in, useDoublePrecision);
+
+		JunctionTree junctionTree = new JunctionTree(new Graph());
+		int numClusters = in.getInt();
+		List<List<Integer>> clusters = newArrayList();
+		for (int i = 0; i < numClusters; i++) {
+			clusters.add(toList(readIds(in)));
+		}
+		junctionTree.setClusters(clusters);
+		int numSepSets = in.getInt();
+		List<Pair<Edge, List<Integer>>> sepSets = newArrayList();
+		for (int i = 0; i < numSepSets; i++) {
+			Edge edge = junctionTree.getGraph().addEdge(in.getInt(), in.getInt());
+			sepSets.add(newPair(edge, toList(readIds(in))));
+		}
+		junctionTree.setSepSets(sepSets);
+
+		WeakCanonicalPool<int[]> intArrays = CanonicalPools.intArrays();
+		int[][] multiplications = new int[2 * numSepSets][];
+		for (int i = 0; i < multiplications.length; i++) {
+			multiplications[i] = intArrays.getInstance(readIds(in));
+		}
+		int[][] queries = new int[bayesNet.getNodes().size()][];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = intArrays.getInstance(readIds(in));
+		}
+		WeakCanonicalPool<IArrayWrapper> arrayWrappers = CanonicalPools.arrayWrappers();
+		IArrayWrapper[] potentials = new IArrayWrapper[in.getInt()];
+		for (int i = 0; i < potentials.length; i++) {
+			potentials[i] = arrayWrappers.getInstance(readPotential(in, useDoublePrecision));
+		}
+
+		return new CompiledPBNModel(bayesNet, new PreparedJunctionTree(junctionTree, multiplications, queries,
+				potentials, false));
+	}
+
+	private static BayesNet readNodes(ByteBuffer in, boolean useDoublePrecision) {
+		BayesNet bayesNet = new BayesNet();
+		int numNodes = in.getInt();
+		int[][] parentIds = new int[numNodes][];
+		double[][] probabilities = new double[numNodes][];
+		for (int i = 0; i < numNodes; i++) {
+			BayesNode node = bayesNet.createNode(readString(in));
+			int numOutcomes = in.getInt();
+			for (int j = 0; j < numOutcomes; j++) {
+				node.addOutcome(readString(in));
+			}
+			parentIds[i] = readIds(in);
+			probabilities[i] = readValues(in, useDoublePrecision);
+		}
+		// parents can only be set when all nodes exist, probabilities only
+		// when the parents are set
+		for (int i = 0; i < numNodes; i++) {
+			List<BayesNode> parents = newArrayList();
+			for (int id : parentIds[i]) {
+				parents.add(bayesNet.getNode(id));
+			}
+			BayesNode node = bayesNet.getNode(i);
+			node.setParents(parents);
+			node.setProbabilities(probabilities[i]);
+		}
+		return bayesNet;
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, Charsets.UTF_8);
+	}
+
+	private static int[] readIds(ByteBuffer in) {
+		int[] ids = new int[in.getInt()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = in.getInt();
+		}
+		return ids;
+	}
+
+	private static double[] readValues(ByteBuffer in, boolean useDoublePrecision) {
+		double[] values = new double[in.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = useDoublePrecision ? in.getDouble() : in.getFloat();
+		}
+		return values;
+	}
+
+	private static IArrayWrapper readPotential(ByteBuffer in, boolean useDoublePrecision) {
+		if (useDoublePrecision) {
+			return new DoubleArrayWrapper(readValues(in, true));
+		}
+		float[] values = new float[in.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.getFloat();
+		}
+		return new FloatArrayWrapper(values);
+	}
+
+	private static List<Integer> toList(int[] ids) {
+		List<Integer> list = newArrayList();
+		for (int id : ids) {
+			list.add(id);
+		}
+		return list;
+	}
+
+	/**
+	 * reads a model from a file that contains exactly one model, the file is
+	 * memory-mapped instead of being copied through a stream
+	 */
+	public static CompiledPBNModel read(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+}
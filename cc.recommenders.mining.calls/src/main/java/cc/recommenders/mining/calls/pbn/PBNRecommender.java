@@ -23,88 +23,176 @@ import static cc.recommenders.mining.calls.pbn.PBNModelConstants.newMethodContex
 import static cc.recommenders.mining.calls.pbn.PBNModelConstants.newParameterSite;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.google.common.collect.Sets.newHashSet;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
-import org.eclipse.recommenders.commons.bayesnet.Node;
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.IBayesInferer;
+import org.eclipse.recommenders.jayes.inference.StarNetworkInferer;
 import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.junctionTree.PreparedJunctionTree;
+import org.eclipse.recommenders.jayes.inference.junctionTree.PropagationState;
 import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
 
 import cc.recommenders.datastructures.Tuple;
 import cc.recommenders.io.Logger;
+import cc.recommenders.mining.calls.BoundedHeap;
+import cc.recommenders.mining.calls.EvidenceKey;
 import cc.recommenders.mining.calls.ICallsRecommender;
+import cc.recommenders.mining.calls.IEvidenceKeyProvider;
 import cc.recommenders.mining.calls.ProposalHelper;
 import cc.recommenders.mining.calls.QueryOptions;
 import cc.recommenders.names.IMethodName;
 import cc.recommenders.names.ITypeName;
 import cc.recommenders.names.VmMethodName;
 import cc.recommenders.usages.CallSite;
+import cc.recommenders.usages.CallSiteKind;
 import cc.recommenders.usages.Query;
 
-public class PBNRecommender implements ICallsRecommender<Query> {
+import com.google.common.primitives.Ints;
+
+public class PBNRecommender implements ICallsRecommender<Query>, IEvidenceKeyProvider {
 
 	private BayesNet bayesNet;
 	private BayesNode patternNode;
 	private BayesNode classContextNode;
 	private BayesNode methodContextNode;
 	private BayesNode definitionNode;
+	// class context, method context and definition, in this order
+	private BayesNode[] contextNodes;
 
 	private Map<IMethodName, BayesNode> callNodes = newHashMap();
 	private Map<String, BayesNode> paramNodes = newHashMap();
+	// the states of all nodes are numbered consecutively
+	private int[] firstStateIds;
+
+	private static final int UNOBSERVED = -1;
+
+	// a computed belief may exceed its upper bound by rounding errors
+	private static final double UPPER_BOUND_TOLERANCE = 0.000001;
 
+	// call nodes sorted by name, the index breaks ties between equally
+	// probable calls in the same way as the sorted result set does
+	private IMethodName[] callNames;
+	private BayesNode[] callNodesByName;
+	// the highest probability each call can reach for any evidence
+	private double[] upperBounds;
+	private Integer[] callsByUpperBound;
+
+	// only one of them is used, depending on the options and the network
 	private JunctionTreeAlgorithm junctionTreeAlgorithm;
+	private StarNetworkInferer starNetworkInferer;
 	private QueryOptions options;
 
-	private Set<IMethodName> queriedMethods = newHashSet();
+	// inference state is not shared between concurrent queries, every query
+	// borrows a context from this pool and returns it afterwards
+	private final Queue<InferenceContext> idleContexts = new ConcurrentLinkedQueue<InferenceContext>();
 
 	public PBNRecommender(BayesianNetwork network, QueryOptions options) {
-		this.options = options;
-		initializeNetwork(network);
+		this(CompiledPBNModel.compile(network), options);
 	}
 
-	private void initializeNetwork(final BayesianNetwork network) {
-		bayesNet = new BayesNet();
+	/**
+	 * the junction tree of the model is reused, so no triangulation is
+	 * necessary. Models that were read also bring the prepared operations and
+	 * initial potentials of the junction tree, so no propagation is necessary
+	 * either. With star inference, the junction tree is not needed at all.
+	 * The model is not modified and can be shared between recommenders.
+	 */
+	public PBNRecommender(CompiledPBNModel model, QueryOptions options) {
+		this.options = options;
+		initializeNetwork(model);
+		initializeUpperBounds();
+		IBayesInferer inferer = isStarInference() ? starNetworkInferer : junctionTreeAlgorithm;
+		idleContexts.add(new InferenceContext(inferer, options.topK));
+	}
 
-		initializeNodes(network);
-		initializeArcs(network);
-		initializeProbabilities(network);
+	private void initializeNetwork(final CompiledPBNModel model) {
+		bayesNet = model.getBayesNet();
+		firstStateIds = new int[bayesNet.getNodes().size()];
+		int numStates = 0;
+		for (BayesNode node : bayesNet.getNodes()) {
+			assignToClassMember(node);
+			firstStateIds[node.getId()] = numStates;
+			numStates += node.getOutcomeCount();
+		}
+		contextNodes = new BayesNode[] { classContextNode, methodContextNode, definitionNode };
+
+		// every network built by the PBNModelBuilder is a star, but models
+		// from other sources fall back to the junction tree
+		if (options.useStarInference && StarNetworkInferer.isStar(bayesNet)) {
+			starNetworkInferer = new StarNetworkInferer();
+			starNetworkInferer.setNetwork(bayesNet);
+			return;
+		}
 
 		junctionTreeAlgorithm = new JunctionTreeAlgorithm();
 		if (!options.useDoublePrecision) {
 			junctionTreeAlgorithm.getFactory().setFloatingPointType(float.class);
 		}
-		junctionTreeAlgorithm.setNetwork(bayesNet);
+		// all call nodes are queried, so the whole tree is updated anyway and
+		// queries that only add call sites to the previous one are cheaper
+		junctionTreeAlgorithm.setIncremental(true);
+		PreparedJunctionTree prepared = model.getPreparedJunctionTree();
+		if (prepared != null) {
+			junctionTreeAlgorithm.setNetwork(bayesNet, prepared);
+		} else {
+			junctionTreeAlgorithm.setNetwork(bayesNet, model.getJunctionTree());
+		}
 	}
 
-	private void initializeNodes(final BayesianNetwork network) {
-		for (final Node node : network.getNodes()) {
-			BayesNode bayesNode = createNodeFrom(node);
-			assignToClassMember(node, bayesNode);
+	/*
+	 * a call node without children only depends on the evidence through its
+	 * parents, so it cannot be more probable than in the most probable row of
+	 * its conditional probability table
+	 */
+	private void initializeUpperBounds() {
+		Set<BayesNode> nodesWithChildren = newHashSet();
+		for (BayesNode n : bayesNet.getNodes()) {
+			nodesWithChildren.addAll(n.getParents());
+		}
+
+		callNames = callNodes.keySet().toArray(new IMethodName[callNodes.size()]);
+		Arrays.sort(callNames);
+		callNodesByName = new BayesNode[callNames.length];
+		upperBounds = new double[callNames.length];
+		callsByUpperBound = new Integer[callNames.length];
+		for (int i = 0; i < callNames.length; i++) {
+			BayesNode node = callNodes.get(callNames[i]);
+			callNodesByName[i] = node;
+			upperBounds[i] = nodesWithChildren.contains(node) ? 1.0 : findHighestProbabilityOfFirstOutcome(node);
+			callsByUpperBound[i] = i;
 		}
+		Arrays.sort(callsByUpperBound, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(upperBounds[b], upperBounds[a]);
+			}
+		});
 	}
 
-	private BayesNode createNodeFrom(Node node) {
-		BayesNode bayesNode = bayesNet.createNode(node.getIdentifier());
-		String[] states = node.getStates();
-		for (int i = 0; i < states.length; i++) {
-			try {
-				bayesNode.addOutcome(states[i]);
-			} catch (IllegalArgumentException e) {
-				Logger.err("error when adding outcome %s: %s", states[i], e.getMessage());
-			}
+	private static double findHighestProbabilityOfFirstOutcome(BayesNode node) {
+		double[] probabilities = node.getProbabilities();
+		double max = 0;
+		for (int i = 0; i < probabilities.length; i += node.getOutcomeCount()) {
+			max = Math.max(max, probabilities[i]);
 		}
-		return bayesNode;
+		return max;
 	}
 
-	private void assignToClassMember(Node node, BayesNode bayesNode) {
-		String nodeTitle = node.getIdentifier();
+	private void assignToClassMember(BayesNode bayesNode) {
+		String nodeTitle = bayesNode.getName();
 		if (nodeTitle.equals(CLASS_CONTEXT_TITLE)) {
 			classContextNode = bayesNode;
 		} else if (nodeTitle.equals(METHOD_CONTEXT_TITLE)) {
@@ -121,76 +209,159 @@ public class PBNRecommender implements ICallsRecommender<Query> {
 		}
 	}
 
-	private void initializeArcs(final BayesianNetwork network) {
-		for (final Node node : network.getNodes()) {
-			Node[] parents = node.getParents();
-			BayesNode children = bayesNet.getNode(node.getIdentifier());
-			List<BayesNode> bnParents = newArrayList();
-			for (int i = 0; i < parents.length; i++) {
-				String parentTitle = parents[i].getIdentifier();
-				bnParents.add(bayesNet.getNode(parentTitle));
-			}
-			children.setParents(bnParents);
-		}
+	private IBayesInferer createInferer() {
+		return isStarInference() ? starNetworkInferer.copy() : junctionTreeAlgorithm.copy();
 	}
 
-	private void initializeProbabilities(final BayesianNetwork network) {
-		for (final Node node : network.getNodes()) {
-			final BayesNode bayesNode = bayesNet.getNode(node.getIdentifier());
-			bayesNode.setProbabilities(node.getProbabilities());
+	public boolean isStarInference() {
+		return starNetworkInferer != null;
+	}
+
+	private InferenceContext acquireContext() {
+		InferenceContext context = idleContexts.poll();
+		if (context == null) {
+			context = new InferenceContext(createInferer(), options.topK);
 		}
+		context.clearEvidence();
+		return context;
 	}
 
-	private void clearEvidence() {
-		junctionTreeAlgorithm.setEvidence(new HashMap<BayesNode, String>());
-		queriedMethods.clear();
+	private void releaseContext(InferenceContext context) {
+		idleContexts.add(context);
 	}
 
 	@Override
 	public Set<Tuple<IMethodName, Double>> query(Query u) {
-		clearEvidence();
+		InferenceContext context = acquireContext();
+		try {
+			return query(context, u);
+		} finally {
+			releaseContext(context);
+		}
+	}
 
+	private Set<Tuple<IMethodName, Double>> query(InferenceContext context, Query u) {
+		addContextEvidence(context, createContextEvidence(u));
+		markCallSites(context, u);
+		return collectCallProbabilities(context);
+	}
+
+	/**
+	 * queries that share the same context evidence (class context, method
+	 * context and definition) are answered from the same propagated state, so
+	 * only their call sites have to be propagated. Star inference does not
+	 * propagate, so the queries are answered one after another.
+	 */
+	@Override
+	public List<Set<Tuple<IMethodName, Double>>> queryAll(List<Query> queries) {
+		Map<List<Integer>, List<Integer>> queriesByContext = newLinkedHashMap();
+		List<Query> indexedQueries = newArrayList(queries);
+		for (int i = 0; i < indexedQueries.size(); i++) {
+			List<Integer> contextEvidence = Ints.asList(createContextEvidence(indexedQueries.get(i)));
+			List<Integer> group = queriesByContext.get(contextEvidence);
+			if (group == null) {
+				group = newArrayList();
+				queriesByContext.put(contextEvidence, group);
+			}
+			group.add(i);
+		}
+
+		List<Set<Tuple<IMethodName, Double>>> results = newArrayList();
+		for (int i = 0; i < indexedQueries.size(); i++) {
+			results.add(null);
+		}
+
+		InferenceContext context = acquireContext();
+		try {
+			for (Entry<List<Integer>, List<Integer>> group : queriesByContext.entrySet()) {
+				List<Integer> indices = group.getValue();
+				if (indices.size() == 1 || isStarInference()) {
+					for (int i : indices) {
+						context.clearEvidence();
+						results.set(i, query(context, indexedQueries.get(i)));
+					}
+				} else {
+					context.clearEvidence();
+					addContextEvidence(context, Ints.toArray(group.getKey()));
+					PropagationState contextState = context.saveState();
+					for (int i : indices) {
+						context.restoreState(contextState);
+						markCallSites(context, indexedQueries.get(i));
+						results.set(i, collectCallProbabilities(context));
+					}
+				}
+			}
+		} finally {
+			releaseContext(context);
+		}
+		return results;
+	}
+
+	/**
+	 * @return the observed outcome index of each context node, or UNOBSERVED
+	 *         if it is not used or unknown to the network
+	 */
+	private int[] createContextEvidence(Query u) {
+		int[] outcomes = { UNOBSERVED, UNOBSERVED, UNOBSERVED };
 		if (options.useClassContext) {
-			addEvidenceIfAvailableInNetwork(classContextNode, newClassContext(u.getClassContext()));
+			outcomes[0] = findOutcomeIndex(classContextNode, newClassContext(u.getClassContext()));
 		}
 		if (options.useMethodContext) {
-			addEvidenceIfAvailableInNetwork(methodContextNode, newMethodContext(u.getMethodContext()));
+			outcomes[1] = findOutcomeIndex(methodContextNode, newMethodContext(u.getMethodContext()));
 		}
 		if (options.useDefinition) {
-			addEvidenceIfAvailableInNetwork(definitionNode, newDefinition(u.getDefinitionSite()));
+			outcomes[2] = findOutcomeIndex(definitionNode, newDefinition(u.getDefinitionSite()));
+		}
+		return outcomes;
+	}
+
+	private static int findOutcomeIndex(BayesNode node, String outcome) {
+		if (node.hasOutcome(outcome)) {
+			return node.getOutcomeIndex(outcome);
+		}
+		debug("unknown outcome: %s (%s)", outcome, node.getName());
+		return UNOBSERVED;
+	}
+
+	private void addContextEvidence(InferenceContext context, int[] outcomes) {
+		for (int i = 0; i < outcomes.length; i++) {
+			if (outcomes[i] != UNOBSERVED) {
+				context.inferer.addEvidence(contextNodes[i].getId(), outcomes[i]);
+			}
 		}
+	}
 
+	private void markCallSites(InferenceContext context, Query u) {
 		ITypeName type = u.getType();
 		for (CallSite site : u.getAllCallsites()) {
-			markRebasedSite(type, site);
+			markRebasedSite(context, type, site);
 		}
-
-		return collectCallProbabilities();
 	}
 
-	private void addEvidenceIfAvailableInNetwork(BayesNode node, String outcome) {
-		if (node.getOutcomes().contains(outcome)) {
-			junctionTreeAlgorithm.addEvidence(node, outcome);
-			// debug("outcome marked '%s'", node.getName());
+	private void markRebasedSite(InferenceContext context, ITypeName type, CallSite site) {
+		BayesNode node = findNode(site);
+		if (node != null) {
+			if (site.getKind() == CallSiteKind.RECEIVER) {
+				// queriedMethods.add(rebasedName);
+				context.queriedMethods.add(site.getMethod());
+			}
+			context.inferer.addEvidence(node, STATE_TRUE);
 		} else {
-			debug("unknown outcome: %s (%s)", outcome, node.getName());
+			debug("unknown node: %s (%s)", site, type);
 		}
 	}
 
-	private void markRebasedSite(ITypeName type, CallSite site) {
+	/**
+	 * @return the node that is observed for the site or null, if the site is
+	 *         unknown or not part of the query
+	 */
+	private BayesNode findNode(CallSite site) {
 		switch (site.getKind()) {
 		case PARAMETER:
 			if (options.useParameterSites) {
-				String nodeTitle = newParameterSite(site.getMethod(), site.getArgIndex());
-				BayesNode node = paramNodes.get(nodeTitle);
-				if (node != null) {
-					junctionTreeAlgorithm.addEvidence(node, STATE_TRUE);
-					// debug("outcome marked 'parameter'");
-				} else {
-					debug("unknown node: %s (%s)", nodeTitle, type);
-				}
+				return paramNodes.get(newParameterSite(site.getMethod(), site.getArgIndex()));
 			}
-			break;
+			return null;
 		case RECEIVER:
 			// TODO re-enable rebasing (here and in modelBuilder)
 			// IMethodName rebasedName = rebase(type, site.targetMethod);
@@ -199,29 +370,53 @@ public class PBNRecommender implements ICallsRecommender<Query> {
 			// it is not necessary to call OUMC.newCallSite(...), because the
 			// prefix is already stripped in that map (see
 			// assignToClassMember())
-			BayesNode node = callNodes.get(site.getMethod());
+			return callNodes.get(site.getMethod());
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * the key contains the observed state of every node that would be set by
+	 * the query, evidence that is unknown to the network is left out
+	 */
+	@Override
+	public EvidenceKey createEvidenceKey(Query query) {
+		int[] contextEvidence = createContextEvidence(query);
+		Set<CallSite> sites = query.getAllCallsites();
+		int[] states = new int[contextEvidence.length + sites.size()];
+		int numStates = 0;
+		for (int i = 0; i < contextEvidence.length; i++) {
+			if (contextEvidence[i] != UNOBSERVED) {
+				states[numStates++] = firstStateIds[contextNodes[i].getId()] + contextEvidence[i];
+			}
+		}
+		for (CallSite site : sites) {
+			BayesNode node = findNode(site);
 			if (node != null) {
-				// queriedMethods.add(rebasedName);
-				queriedMethods.add(site.getMethod());
-				junctionTreeAlgorithm.addEvidence(node, STATE_TRUE);
-				// debug("outcome marked 'method call'");
-			} else {
-				debug("unknown node: %S%s (%s)", CALL_PREFIX, site.getMethod(), type);
+				states[numStates++] = getStateId(node, STATE_TRUE);
 			}
-			break;
 		}
+		return new EvidenceKey(Arrays.copyOf(states, numStates));
+	}
+
+	private int getStateId(BayesNode node, String outcome) {
+		return firstStateIds[node.getId()] + node.getOutcomeIndex(outcome);
 	}
 
-	private Set<Tuple<IMethodName, Double>> collectCallProbabilities() {
+	private Set<Tuple<IMethodName, Double>> collectCallProbabilities(InferenceContext context) {
+		if (options.topK > 0) {
+			return collectMostProbableCalls(context);
+		}
 		Set<Tuple<IMethodName, Double>> res = ProposalHelper.createSortedSet();
 		try {
 			for (IMethodName methodName : callNodes.keySet()) {
-				if (!isPartOfQuery(methodName)) {
+				if (!context.isPartOfQuery(methodName)) {
 					BayesNode node = callNodes.get(methodName);
 					if (node == null) {
 						debug("no node found for %s", methodName);
 					} else {
-						double[] beliefs = junctionTreeAlgorithm.getBeliefs(node);
+						double[] beliefs = context.inferer.getBeliefs(node);
 						boolean isGreaterOrEqualToMinProbability = beliefs[0] >= options.minProbability;
 						if (isGreaterOrEqualToMinProbability) {
 							Tuple<IMethodName, Double> tuple = newTuple(methodName, beliefs[0]);
@@ -236,28 +431,67 @@ public class PBNRecommender implements ICallsRecommender<Query> {
 		return res;
 	}
 
-	private boolean isPartOfQuery(IMethodName methodName) {
-		return queriedMethods.contains(methodName);
+	/**
+	 * calls are visited in the order of their upper bound, as soon as it is
+	 * lower than the k-th best probability found so far, the beliefs of the
+	 * remaining calls do not need to be computed
+	 */
+	private Set<Tuple<IMethodName, Double>> collectMostProbableCalls(InferenceContext context) {
+		BoundedHeap proposals = context.proposals;
+		proposals.clear();
+		try {
+			for (int i : callsByUpperBound) {
+				double upperBound = upperBounds[i] + UPPER_BOUND_TOLERANCE;
+				boolean isBelowMinProbability = upperBound < options.minProbability;
+				boolean isBelowProposals = proposals.isFull() && upperBound < proposals.peekValue();
+				if (isBelowMinProbability || isBelowProposals) {
+					break;
+				}
+				if (!context.isPartOfQuery(callNames[i])) {
+					double[] beliefs = context.inferer.getBeliefs(callNodesByName[i]);
+					if (beliefs[0] >= options.minProbability) {
+						proposals.offer(i, beliefs[0]);
+					}
+				}
+			}
+		} catch (NumericalInstabilityException e) {
+			Logger.err("NumericalInstabilityException: %s", e.getMessage());
+		}
+
+		Set<Tuple<IMethodName, Double>> res = ProposalHelper.createSortedSet();
+		for (int i = 0; i < proposals.size(); i++) {
+			Tuple<IMethodName, Double> tuple = newTuple(callNames[proposals.getId(i)], proposals.getValue(i));
+			res.add(tuple);
+		}
+		return res;
 	}
 
 	@Override
 	public Set<Tuple<String, Double>> getPatternsWithProbability() {
 		Set<Tuple<String, Double>> res = ProposalHelper.createSortedSet();
-		clearEvidence();
-		double[] beliefs = junctionTreeAlgorithm.getBeliefs(patternNode);
-		for (int i = 0; i < patternNode.getOutcomeCount(); i++) {
-			String outcome = patternNode.getOutcomeName(i);
-			Tuple<String, Double> tuple = newTuple(outcome, beliefs[i]);
-			res.add(tuple);
+		InferenceContext context = acquireContext();
+		try {
+			double[] beliefs = context.inferer.getBeliefs(patternNode);
+			for (int i = 0; i < patternNode.getOutcomeCount(); i++) {
+				String outcome = patternNode.getOutcomeName(i);
+				Tuple<String, Double> tuple = newTuple(outcome, beliefs[i]);
+				res.add(tuple);
+			}
+		} finally {
+			releaseContext(context);
 		}
 		return res;
 	}
 
 	@Override
 	public Set<Tuple<IMethodName, Double>> queryPattern(String patternName) {
-		clearEvidence();
-		junctionTreeAlgorithm.addEvidence(patternNode, patternName);
-		return collectCallProbabilities();
+		InferenceContext context = acquireContext();
+		try {
+			context.inferer.addEvidence(patternNode, patternName);
+			return collectCallProbabilities(context);
+		} finally {
+			releaseContext(context);
+		}
 	}
 
 	@Override
@@ -274,4 +508,41 @@ public class PBNRecommender implements ICallsRecommender<Query> {
 	private static void debug(String msg, Object... args) {
 		// Logger.debug(msg, args);
 	}
+
+	/**
+	 * the mutable state of a single query, the network itself is shared
+	 * between all contexts
+	 */
+	private static class InferenceContext {
+
+		private final IBayesInferer inferer;
+		private final Set<IMethodName> queriedMethods = newHashSet();
+		private final BoundedHeap proposals;
+
+		public InferenceContext(IBayesInferer inferer, int topK) {
+			this.inferer = inferer;
+			proposals = topK > 0 ? new BoundedHeap(topK) : null;
+		}
+
+		public void clearEvidence() {
+			inferer.clearEvidence();
+			queriedMethods.clear();
+		}
+
+		/**
+		 * only supported by the junction tree algorithm
+		 */
+		public PropagationState saveState() {
+			return ((JunctionTreeAlgorithm) inferer).saveState();
+		}
+
+		public void restoreState(PropagationState state) {
+			((JunctionTreeAlgorithm) inferer).restoreState(state);
+			queriedMethods.clear();
+		}
+
+		public boolean isPartOfQuery(IMethodName methodName) {
+			return queriedMethods.contains(methodName);
+		}
+	}
 }
\ No newline at end of file
@@ -12,9 +12,17 @@ package cc.recommenders.mining.features;
 
 import java.util.List;
 
+import cc.recommenders.utils.dictionary.Dictionary;
+
 public interface FeatureExtractor<Usage, Feature> {
 
     public List<List<Feature>> extract(List<Usage> usages);
 
     public List<Feature> extract(Usage usage);
+
+    /**
+     * @return the sorted and distinct ids of all features of the usage that
+     *         are contained in the dictionary, without building a feature list
+     */
+    public int[] extractIds(Usage usage, Dictionary<Feature> dictionary);
 }
\ No newline at end of file
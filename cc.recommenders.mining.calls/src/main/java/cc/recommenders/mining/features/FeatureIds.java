@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.features;
+
+import java.util.Arrays;
+import java.util.List;
+
+import cc.recommenders.utils.dictionary.Dictionary;
+
+import com.google.common.collect.Lists;
+
+/**
+ * maps extracted features to their ids in a dictionary. A usage is then
+ * represented by a sorted array of distinct ids, so checking whether a usage
+ * contains a dictionary entry does not require to scan its features.
+ */
+public class FeatureIds {
+
+	/**
+	 * @return the sorted ids of all features that are contained in the
+	 *         dictionary, each id only once
+	 */
+	public static <Feature> int[] toIds(List<Feature> features, Dictionary<Feature> dictionary) {
+		int[] ids = new int[features.size()];
+		int numIds = 0;
+		for (Feature f : features) {
+			int id = dictionary.getId(f);
+			if (id != -1) {
+				ids[numIds++] = id;
+			}
+		}
+		return toSortedIds(ids, numIds);
+	}
+
+	/**
+	 * sorts the first numIds ids in place and returns them without duplicates
+	 */
+	static int[] toSortedIds(int[] ids, int numIds) {
+		Arrays.sort(ids, 0, numIds);
+		return removeDuplicates(ids, numIds);
+	}
+
+	private static int[] removeDuplicates(int[] sortedIds, int numIds) {
+		int numDistinct = 0;
+		for (int i = 0; i < numIds; i++) {
+			if (numDistinct == 0 || sortedIds[numDistinct - 1] != sortedIds[i]) {
+				sortedIds[numDistinct++] = sortedIds[i];
+			}
+		}
+		return Arrays.copyOf(sortedIds, numDistinct);
+	}
+
+	public static <Feature> List<int[]> toIdsOfAll(List<List<Feature>> usages, Dictionary<Feature> dictionary) {
+		List<int[]> ids = Lists.newArrayListWithCapacity(usages.size());
+		for (List<Feature> usage : usages) {
+			ids.add(toIds(usage, dictionary));
+		}
+		return ids;
+	}
+
+	public static boolean contains(int[] sortedIds, int id) {
+		return Arrays.binarySearch(sortedIds, id) >= 0;
+	}
+}
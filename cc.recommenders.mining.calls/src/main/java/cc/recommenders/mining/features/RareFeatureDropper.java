@@ -11,13 +11,26 @@
 package cc.recommenders.mining.features;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import cc.recommenders.assertions.Asserts;
 import cc.recommenders.utils.dictionary.Dictionary;
 
+import com.google.common.collect.Lists;
+
 public class RareFeatureDropper<Feature> {
 
+	/**
+	 * below this number of usages per thread, counting is not split up
+	 */
+	private static final int MIN_USAGES_PER_THREAD = 1000;
+
 	private int threshold = 2;
+	private ExecutorService executor = null;
+	private int numThreads = 1;
 
 	public int getTreshold() {
 		return threshold;
@@ -28,24 +41,31 @@ public class RareFeatureDropper<Feature> {
 		this.threshold = threshold;
 	}
 
+	public int getNumberOfThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * lets large inputs be counted in up to numThreads chunks that run on the
+	 * given executor. The executor is not shut down by the dropper, so it can
+	 * be shared by all droppers of a process.
+	 */
+	public void setExecutor(ExecutorService executor, int numThreads) {
+		Asserts.assertNotNull(executor);
+		Asserts.assertGreaterThan(numThreads, 0);
+		this.executor = executor;
+		this.numThreads = numThreads;
+	}
+
 	public Dictionary<Feature> dropRare(Dictionary<Feature> dictionary, List<List<Feature>> usages) {
 		Asserts.assertGreaterThan(usages.size(), 0);
+		int[] counts = count(dictionary, usages);
+
 		Dictionary<Feature> d = new Dictionary<Feature>();
 		Feature last = null;
-
-		for (Feature f : dictionary.getAllEntries()) {
-			int count = 0;
-
-			for (List<Feature> usage : usages) {
-				for (Feature uf : usage) {
-					if (f.equals(uf)) {
-						count++;
-						break;
-					}
-				}
-			}
-
-			if (count >= threshold) {
+		for (int id = 0; id < counts.length; id++) {
+			Feature f = dictionary.getEntry(id);
+			if (counts[id] >= threshold) {
 				d.add(f);
 			}
 			last = f;
@@ -57,4 +77,62 @@ public class RareFeatureDropper<Feature> {
 
 		return d;
 	}
-}
\ No newline at end of file
+
+	private int[] count(Dictionary<Feature> dictionary, List<List<Feature>> usages) {
+		// ids are resolved on the calling thread, the dictionary is not
+		// thread-safe
+		List<int[]> ids = FeatureIds.toIdsOfAll(usages, dictionary);
+		int numChunks = Math.min(numThreads, ids.size() / MIN_USAGES_PER_THREAD);
+		if (executor == null || numChunks < 2) {
+			return count(ids, 0, ids.size(), dictionary.size());
+		}
+		return countInParallel(ids, numChunks, dictionary.size());
+	}
+
+	private int[] countInParallel(final List<int[]> ids, int numChunks, final int numFeatures) {
+		List<Future<int[]>> futures = Lists.newArrayList();
+		try {
+			for (int i = 0; i < numChunks; i++) {
+				final int from = (int) ((long) ids.size() * i / numChunks);
+				final int to = (int) ((long) ids.size() * (i + 1) / numChunks);
+				futures.add(executor.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() {
+						return count(ids, from, to, numFeatures);
+					}
+				}));
+			}
+			int[] counts = new int[numFeatures];
+			for (Future<int[]> future : futures) {
+				int[] chunkCounts = future.get();
+				for (int id = 0; id < counts.length; id++) {
+					counts[id] += chunkCounts[id];
+				}
+			}
+			return counts;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			for (Future<int[]> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * counts in how many of the usages from..to each dictionary entry occurs,
+	 * the ids of a usage are distinct
+	 */
+	private static int[] count(List<int[]> ids, int from, int to, int numFeatures) {
+		int[] counts = new int[numFeatures];
+		for (int[] usageIds : ids.subList(from, to)) {
+			for (int id : usageIds) {
+				counts[id]++;
+			}
+		}
+		return counts;
+	}
+}
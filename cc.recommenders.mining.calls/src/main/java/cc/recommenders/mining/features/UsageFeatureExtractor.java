@@ -13,6 +13,7 @@ package cc.recommenders.mining.features;
 import static com.google.common.collect.Lists.newArrayList;
 
 import java.util.List;
+import java.util.Set;
 
 import cc.recommenders.mining.calls.MiningOptions;
 import cc.recommenders.names.IMethodName;
@@ -27,6 +28,7 @@ import cc.recommenders.usages.features.FirstMethodFeature;
 import cc.recommenders.usages.features.ParameterFeature;
 import cc.recommenders.usages.features.TypeFeature;
 import cc.recommenders.usages.features.UsageFeature;
+import cc.recommenders.utils.dictionary.Dictionary;
 
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
@@ -70,6 +72,36 @@ public class UsageFeatureExtractor implements FeatureExtractor<Usage, UsageFeatu
 		return features;
 	}
 
+	@Override
+	public int[] extractIds(Usage usage, Dictionary<UsageFeature> dictionary) {
+		Set<CallSite> sites = usage.getAllCallsites();
+		int[] ids = new int[5 + sites.size()];
+		int numIds = 0;
+
+		numIds = addId(ids, numIds, dictionary, new TypeFeature(usage.getType()));
+		numIds = addId(ids, numIds, dictionary, new ClassFeature(usage.getClassContext()));
+		numIds = addId(ids, numIds, dictionary, new FirstMethodFeature(usage.getMethodContext()));
+		numIds = addId(ids, numIds, dictionary, new DefinitionFeature(usage.getDefinitionSite()));
+
+		if (shouldDefMethodBeAddedAsCall(usage)) {
+			numIds = addId(ids, numIds, dictionary, new CallFeature(usage.getDefinitionSite().getMethod()));
+		}
+
+		for (CallSite site : sites) {
+			numIds = addId(ids, numIds, dictionary, getSiteFeature(site));
+		}
+
+		return FeatureIds.toSortedIds(ids, numIds);
+	}
+
+	private static int addId(int[] ids, int numIds, Dictionary<UsageFeature> dictionary, UsageFeature f) {
+		int id = dictionary.getId(f);
+		if (id != -1) {
+			ids[numIds++] = id;
+		}
+		return numIds;
+	}
+
 	private boolean shouldDefMethodBeAddedAsCall(Usage usage) {
 		boolean isNew = DefinitionSiteKind.NEW.equals(usage.getDefinitionSite().getKind());
 		boolean useInitAsCall = opts.isInitUsedAsCall(); 
@@ -1,10 +1,14 @@
 package cc.recommenders.mining.calls;
 
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import cc.recommenders.exceptions.AssertionException;
 
+import com.google.common.collect.Lists;
+
 public class AbstractCallsRecommenderTest {
 
 	private AbstractCallsRecommender sut;
@@ -19,6 +23,16 @@ public class AbstractCallsRecommenderTest {
 		sut.query(null);
 	}
 
+	@Test(expected = AssertionException.class)
+	public void queryingAllFails() {
+		sut.queryAll(Lists.newArrayList(new Object()));
+	}
+
+	@Test
+	public void queryingNothingIsPossible() {
+		assertTrue(sut.queryAll(Lists.newArrayList()).isEmpty());
+	}
+
 	@Test(expected = AssertionException.class)
 	public void gettingSizeFails() {
 		sut.getSize();
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cc.recommenders.exceptions.AssertionException;
+
+import com.google.common.collect.Sets;
+
+public class BoundedHeapTest {
+
+	private BoundedHeap sut;
+
+	@Before
+	public void setup() {
+		sut = new BoundedHeap(3);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void capacityMustBePositive() {
+		new BoundedHeap(0);
+	}
+
+	@Test
+	public void entriesAreKeptUntilFull() {
+		assertTrue(sut.offer(1, 0.1));
+		assertTrue(sut.offer(2, 0.3));
+		assertFalse(sut.isFull());
+		assertTrue(sut.offer(3, 0.2));
+		assertTrue(sut.isFull());
+		assertEquals(3, sut.size());
+		assertEquals(0.1, sut.peekValue(), 0.0);
+	}
+
+	@Test
+	public void highestValuesAreKept() {
+		double[] values = { 0.5, 0.1, 0.9, 0.3, 0.7, 0.2, 0.8 };
+		for (int i = 0; i < values.length; i++) {
+			sut.offer(i, values[i]);
+		}
+		assertEquals(Sets.newHashSet(2, 4, 6), keptIds());
+		assertEquals(0.7, sut.peekValue(), 0.0);
+	}
+
+	@Test
+	public void lowerValuesAreRejectedWhenFull() {
+		sut.offer(1, 0.5);
+		sut.offer(2, 0.6);
+		sut.offer(3, 0.7);
+		assertFalse(sut.offer(4, 0.4));
+		assertEquals(Sets.newHashSet(1, 2, 3), keptIds());
+	}
+
+	@Test
+	public void smallerIdsWinOnEqualValues() {
+		sut.offer(5, 0.5);
+		sut.offer(3, 0.5);
+		sut.offer(4, 0.5);
+		assertTrue(sut.offer(1, 0.5));
+		assertFalse(sut.offer(6, 0.5));
+		assertEquals(Sets.newHashSet(1, 3, 4), keptIds());
+	}
+
+	@Test
+	public void clearEmptiesTheHeap() {
+		sut.offer(1, 0.5);
+		sut.clear();
+		assertEquals(0, sut.size());
+		assertFalse(sut.isFull());
+	}
+
+	private Set<Integer> keptIds() {
+		Set<Integer> ids = Sets.newHashSet();
+		for (int i = 0; i < sut.size(); i++) {
+			ids.add(sut.getId(i));
+		}
+		return ids;
+	}
+}
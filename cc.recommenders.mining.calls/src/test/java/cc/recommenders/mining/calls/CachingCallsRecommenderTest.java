@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import static cc.recommenders.datastructures.Tuple.newTuple;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.usages.Query;
+
+@SuppressWarnings("unchecked")
+public class CachingCallsRecommenderTest {
+
+	private ICallsRecommender<Query> delegate;
+	private IEvidenceKeyProvider keyProvider;
+	private CachingCallsRecommender sut;
+
+	private Query q1;
+	private Query q1b;
+	private Query q2;
+	private Query q3;
+	private Set<Tuple<IMethodName, Double>> p1;
+	private Set<Tuple<IMethodName, Double>> p2;
+	private Set<Tuple<IMethodName, Double>> p3;
+
+	@Before
+	public void setup() {
+		delegate = mock(ICallsRecommender.class);
+		keyProvider = mock(IEvidenceKeyProvider.class);
+		sut = new CachingCallsRecommender(delegate, keyProvider, 2);
+
+		q1 = createQuery("LC.a()V");
+		q1b = createQuery("LC.b()V");
+		q2 = createQuery("LC.c()V");
+		q3 = createQuery("LC.d()V");
+		when(keyProvider.createEvidenceKey(q1)).thenReturn(new EvidenceKey(1));
+		when(keyProvider.createEvidenceKey(q1b)).thenReturn(new EvidenceKey(1));
+		when(keyProvider.createEvidenceKey(q2)).thenReturn(new EvidenceKey(2));
+		when(keyProvider.createEvidenceKey(q3)).thenReturn(new EvidenceKey(3));
+
+		p1 = createProposals("LC.m1()V", 0.1);
+		p2 = createProposals("LC.m2()V", 0.2);
+		p3 = createProposals("LC.m3()V", 0.3);
+		when(delegate.query(q1)).thenReturn(p1);
+		when(delegate.query(q1b)).thenReturn(p1);
+		when(delegate.query(q2)).thenReturn(p2);
+		when(delegate.query(q3)).thenReturn(p3);
+	}
+
+	private static Query createQuery(String methodContext) {
+		Query q = new Query();
+		q.setMethodContext(VmMethodName.get(methodContext));
+		return q;
+	}
+
+	private static Set<Tuple<IMethodName, Double>> createProposals(String method, double probability) {
+		Set<Tuple<IMethodName, Double>> proposals = ProposalHelper.createSortedSet();
+		Tuple<IMethodName, Double> proposal = newTuple((IMethodName) VmMethodName.get(method), probability);
+		proposals.add(proposal);
+		return proposals;
+	}
+
+	@Test
+	public void proposalsAreForwarded() {
+		assertEquals(p1, sut.query(q1));
+		assertEquals(p2, sut.query(q2));
+	}
+
+	@Test
+	public void repeatedQueriesAreAnsweredFromCache() {
+		sut.query(q1);
+		assertEquals(p1, sut.query(q1));
+		verify(delegate, times(1)).query(q1);
+		assertEquals(1, sut.getStats().hitCount());
+		assertEquals(1, sut.getStats().missCount());
+	}
+
+	@Test
+	public void queriesWithEqualEvidenceShareProposals() {
+		sut.query(q1);
+		assertEquals(p1, sut.query(q1b));
+		verify(delegate, never()).query(q1b);
+	}
+
+	@Test
+	public void cachedProposalsAreCopied() {
+		Set<Tuple<IMethodName, Double>> first = sut.query(q1);
+		first.clear();
+		Set<Tuple<IMethodName, Double>> second = sut.query(q1);
+		assertNotSame(first, second);
+		assertEquals(p1, second);
+	}
+
+	@Test
+	public void cacheIsBounded() {
+		sut.query(q1);
+		sut.query(q2);
+		sut.query(q3);
+		sut.query(q1);
+		verify(delegate, times(2)).query(q1);
+		assertEquals(2, sut.getStats().evictionCount());
+	}
+
+	@Test
+	public void invalidatedProposalsAreRecomputed() {
+		sut.query(q1);
+		sut.invalidateAll();
+		sut.query(q1);
+		verify(delegate, times(2)).query(q1);
+	}
+
+	@Test
+	public void onlyMissesAreBatched() {
+		sut.query(q1);
+		List<Query> misses = newArrayList(q2, q3);
+		when(delegate.queryAll(misses)).thenReturn(newArrayList(p2, p3));
+
+		List<Set<Tuple<IMethodName, Double>>> actual = sut.queryAll(newArrayList(q2, q1, q3));
+
+		assertEquals(newArrayList(p2, p1, p3), actual);
+		verify(delegate).queryAll(misses);
+	}
+
+	@Test
+	public void batchedProposalsAreCached() {
+		when(delegate.queryAll(newArrayList(q1, q2))).thenReturn(newArrayList(p1, p2));
+		sut.queryAll(newArrayList(q1, q2));
+
+		assertEquals(p1, sut.query(q1));
+		assertEquals(p2, sut.query(q2));
+		verify(delegate, never()).query(q1);
+		verify(delegate, never()).query(q2);
+	}
+
+	@Test
+	public void batchesWithoutMissesAreNotForwarded() {
+		sut.query(q1);
+		assertEquals(newArrayList(p1, p1), sut.queryAll(newArrayList(q1, q1b)));
+		verify(delegate, never()).queryAll(anyListOf(Query.class));
+	}
+
+	@Test
+	public void patternQueriesAreForwarded() {
+		Set<Tuple<IMethodName, Double>> expected = createProposals("LC.m4()V", 0.4);
+		when(delegate.queryPattern("p")).thenReturn(expected);
+		assertEquals(expected, sut.queryPattern("p"));
+	}
+
+	@Test
+	public void sizeIsForwarded() {
+		when(delegate.getSize()).thenReturn(123);
+		assertEquals(123, sut.getSize());
+	}
+}
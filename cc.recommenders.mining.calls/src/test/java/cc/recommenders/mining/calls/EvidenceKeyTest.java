@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class EvidenceKeyTest {
+
+	@Test
+	public void orderOfStatesDoesNotMatter() {
+		assertEquals(new EvidenceKey(1, 2, 3), new EvidenceKey(3, 1, 2));
+		assertEquals(new EvidenceKey(1, 2, 3).hashCode(), new EvidenceKey(3, 1, 2).hashCode());
+	}
+
+	@Test
+	public void duplicateStatesAreIgnored() {
+		assertEquals(new EvidenceKey(1, 2), new EvidenceKey(2, 1, 2, 1));
+	}
+
+	@Test
+	public void differentStatesAreDifferent() {
+		assertFalse(new EvidenceKey(1, 2).equals(new EvidenceKey(1, 3)));
+		assertFalse(new EvidenceKey(1, 2).equals(new EvidenceKey(1)));
+	}
+
+	@Test
+	public void emptyKeysAreEqual() {
+		assertEquals(new EvidenceKey(), new EvidenceKey(new int[0]));
+	}
+
+	@Test
+	public void statesAreCopied() {
+		int[] states = new int[] { 2, 1 };
+		EvidenceKey key = new EvidenceKey(states);
+		states[0] = 3;
+		assertEquals(new EvidenceKey(1, 2), key);
+	}
+
+	@Test
+	public void toStringContainsSortedStates() {
+		assertEquals("EvidenceKey[1, 2]", new EvidenceKey(2, 1).toString());
+	}
+}
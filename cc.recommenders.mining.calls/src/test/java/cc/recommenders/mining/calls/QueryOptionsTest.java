@@ -35,6 +35,8 @@ public class QueryOptionsTest {
 		assertFalse(sut.isIgnoringAfterFullRecall);
 		assertTrue(sut.useDoublePrecision);
 		assertEquals(QueryType.NM, sut.queryType);
+		assertEquals(0, sut.topK);
+		assertFalse(sut.useStarInference);
 	}
 
 	@Test
@@ -104,6 +106,20 @@ public class QueryOptionsTest {
 		assertEquals(0.13, sut.minProbability, 0.001);
 	}
 
+	@Test
+	public void topIsCorrectlyParsed() {
+		sut = newQueryOptions("+TOP7");
+		assertEquals(7, sut.topK);
+	}
+
+	@Test
+	public void starIsCorrectlyParsed() {
+		sut = newQueryOptions("+STAR");
+		assertTrue(sut.useStarInference);
+		sut = newQueryOptions("-STAR");
+		assertFalse(sut.useStarInference);
+	}
+
 	@Test
 	public void ignoreIsCorrectlyParsed() {
 		sut = newQueryOptions("+IGNORE");
@@ -157,6 +173,8 @@ public class QueryOptionsTest {
 		ensureEqualSerialization("+Q[ZERO]+CLASS-METHOD+DEF-PARAMS-IGNORE+DOUBLE");
 		ensureEqualSerialization("+Q[NM]+CLASS+METHOD-DEF-PARAMS-IGNORE-DOUBLE+MIN1");
 		ensureEqualSerialization("+Q[ZERO]+CLASS+METHOD-DEF-PARAMS+IGNORE+DOUBLE");
+		ensureEqualSerialization("+Q[NM]+CLASS+METHOD+DEF+PARAMS-IGNORE+DOUBLE+MIN5+TOP10");
+		ensureEqualSerialization("+Q[NM]+CLASS+METHOD+DEF+PARAMS-IGNORE+DOUBLE+STAR");
 	}
 
 	@Test
@@ -179,6 +197,8 @@ public class QueryOptionsTest {
 		other.minProbability = 0.5;
 		other.isIgnoringAfterFullRecall = true;
 		other.queryType = QueryType.ZERO;
+		other.topK = 5;
+		other.useStarInference = true;
 		return other;
 	}
 
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.Query;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+@SuppressWarnings("unchecked")
+public class RecommenderCacheTest {
+
+	private static final ITypeName TYPE_A = VmTypeName.get("La/A");
+	private static final ITypeName TYPE_B = VmTypeName.get("Lb/B");
+	private static final ITypeName TYPE_C = VmTypeName.get("Lc/C");
+	private static final ITypeName UNKNOWN = VmTypeName.get("Lx/Unknown");
+
+	private IRecommenderLoader loader;
+	private ICallsRecommender<Query> recA;
+	private ICallsRecommender<Query> recB;
+	private ICallsRecommender<Query> recC;
+	private ExecutorService executor;
+	private RecommenderCache sut;
+
+	@Before
+	public void setup() throws Exception {
+		recA = mockRecommender(100);
+		recB = mockRecommender(100);
+		recC = mockRecommender(100);
+		loader = mock(IRecommenderLoader.class);
+		when(loader.load(TYPE_A)).thenReturn(recA);
+		when(loader.load(TYPE_B)).thenReturn(recB);
+		when(loader.load(TYPE_C)).thenReturn(recC);
+		executor = Executors.newSingleThreadExecutor();
+		sut = new RecommenderCache(loader, 250, executor);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	private static ICallsRecommender<Query> mockRecommender(int size) {
+		ICallsRecommender<Query> rec = mock(ICallsRecommender.class);
+		when(rec.getSize()).thenReturn(size);
+		return rec;
+	}
+
+	@Test
+	public void recommendersAreLoadedOnFirstRequest() throws Exception {
+		assertFalse(sut.isLoaded(TYPE_A));
+		assertSame(recA, sut.get(TYPE_A));
+		assertTrue(sut.isLoaded(TYPE_A));
+		verify(loader).load(TYPE_A);
+	}
+
+	@Test
+	public void recommendersAreOnlyLoadedOnce() throws Exception {
+		sut.get(TYPE_A);
+		sut.get(TYPE_A);
+		verify(loader, times(1)).load(TYPE_A);
+		assertEquals(1, sut.getStats().hitCount());
+		assertEquals(1, sut.getStats().missCount());
+	}
+
+	@Test
+	public void missingModelsAreReturnedAsNull() throws Exception {
+		assertNull(sut.get(UNKNOWN));
+		assertNull(sut.get(UNKNOWN));
+		verify(loader, times(1)).load(UNKNOWN);
+	}
+
+	@Test
+	public void missingModelsAreEvictedWhenBudgetIsExceeded() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			sut.get(VmTypeName.get("Lx/Unknown" + i));
+		}
+		assertFalse(sut.isLoaded(VmTypeName.get("Lx/Unknown0")));
+		assertTrue(sut.isLoaded(VmTypeName.get("Lx/Unknown999")));
+		assertTrue(sut.getStats().evictionCount() > 990);
+	}
+
+	@Test
+	public void queriesAreForwardedToTheRecommenderOfTheType() {
+		Query q = new Query();
+		q.setType(TYPE_A);
+		Set<Tuple<IMethodName, Double>> expected = Sets.newHashSet();
+		when(recA.query(q)).thenReturn(expected);
+
+		assertSame(expected, sut.query(q));
+	}
+
+	@Test
+	public void queriesForMissingModelsAreEmpty() {
+		Query q = new Query();
+		q.setType(UNKNOWN);
+		assertTrue(sut.query(q).isEmpty());
+	}
+
+	@Test
+	public void leastRecentlyUsedRecommendersAreEvictedWhenBudgetIsExceeded() throws Exception {
+		sut.get(TYPE_A);
+		sut.get(TYPE_B);
+		sut.get(TYPE_A);
+		sut.get(TYPE_C);
+
+		assertTrue(sut.isLoaded(TYPE_A));
+		assertFalse(sut.isLoaded(TYPE_B));
+		assertTrue(sut.isLoaded(TYPE_C));
+		assertEquals(1, sut.getStats().evictionCount());
+	}
+
+	@Test
+	public void evictedRecommendersAreReloaded() throws Exception {
+		sut.get(TYPE_A);
+		sut.get(TYPE_B);
+		sut.get(TYPE_C);
+		sut.get(TYPE_A);
+		verify(loader, times(2)).load(TYPE_A);
+	}
+
+	@Test
+	public void prefetchingLoadsInBackground() throws Exception {
+		sut.prefetch(TYPE_B).get();
+		assertTrue(sut.isLoaded(TYPE_B));
+		assertSame(recB, sut.get(TYPE_B));
+		verify(loader, times(1)).load(TYPE_B);
+	}
+
+	@Test
+	public void prefetchingLoadedTypesDoesNotReload() throws Exception {
+		sut.get(TYPE_B);
+		sut.prefetch(TYPE_B).get();
+		verify(loader, times(1)).load(TYPE_B);
+	}
+
+	@Test
+	public void failedPrefetchesAreIgnored() throws Exception {
+		when(loader.load(UNKNOWN)).thenThrow(new RuntimeException("test"));
+		sut.prefetch(UNKNOWN).get();
+		assertFalse(sut.isLoaded(UNKNOWN));
+	}
+
+	@Test(expected = UncheckedExecutionException.class)
+	public void loadingFailuresArePropagated() throws Exception {
+		when(loader.load(UNKNOWN)).thenThrow(new RuntimeException("test"));
+		sut.get(UNKNOWN);
+	}
+
+	@Test
+	public void invalidatedRecommendersAreReloaded() throws Exception {
+		sut.get(TYPE_A);
+		sut.invalidate(TYPE_A);
+		assertFalse(sut.isLoaded(TYPE_A));
+		sut.get(TYPE_A);
+		verify(loader, times(2)).load(TYPE_A);
+	}
+
+	@Test
+	public void allRecommendersCanBeInvalidated() {
+		sut.get(TYPE_A);
+		sut.get(TYPE_B);
+		sut.invalidateAll();
+		assertFalse(sut.isLoaded(TYPE_A));
+		assertFalse(sut.isLoaded(TYPE_B));
+	}
+}
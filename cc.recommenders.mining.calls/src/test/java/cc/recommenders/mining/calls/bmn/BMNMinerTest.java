@@ -25,6 +25,8 @@ import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import cc.recommenders.exceptions.AssertionException;
 import cc.recommenders.mining.calls.DictionaryBuilder;
@@ -33,6 +35,7 @@ import cc.recommenders.mining.calls.MiningOptions.Algorithm;
 import cc.recommenders.mining.calls.MiningOptions.DistanceMeasure;
 import cc.recommenders.mining.calls.QueryOptions;
 import cc.recommenders.mining.features.FeatureExtractor;
+import cc.recommenders.mining.features.FeatureIds;
 import cc.recommenders.mining.features.OptionAwareFeaturePredicate;
 import cc.recommenders.usages.Usage;
 import cc.recommenders.usages.features.CallFeature;
@@ -215,6 +218,14 @@ public class BMNMinerTest {
 			}
 		}
 		when(extractor.extract(u1)).thenReturn(featurelist);
+		// the dictionary is completed after the stubbing
+		final List<UsageFeature> features = featurelist;
+		when(extractor.extractIds(u1, dict)).thenAnswer(new Answer<int[]>() {
+			@Override
+			public int[] answer(InvocationOnMock invocation) {
+				return FeatureIds.toIds(features, dict);
+			}
+		});
 		usages.add(u1);
 	}
 
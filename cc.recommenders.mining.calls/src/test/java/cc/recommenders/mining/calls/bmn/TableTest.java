@@ -83,6 +83,36 @@ public class TableTest {
 		assertFreqs(2, 1);
 	}
 
+	@Test
+	public void manyRowsAreCountedCorrectly() {
+		int numRows = 100;
+		sut = new Table(8);
+		for (int repetition = 0; repetition < 3; repetition++) {
+			for (int i = 0; i < numRows; i++) {
+				sut.add(toRow(i, 8));
+			}
+		}
+
+		boolean[][] expectedRows = new boolean[numRows][];
+		int[] expectedFreqs = new int[numRows];
+		for (int i = 0; i < numRows; i++) {
+			expectedRows[i] = toRow(i, 8);
+			expectedFreqs[i] = 3;
+		}
+		assertRows(expectedRows);
+		assertFreqs(expectedFreqs);
+	}
+
+	@Test
+	public void rowsCanBeAddedToInstantiatedTable() {
+		sut = new Table(new boolean[][] { _(1, 0), _(0, 1) }, new int[] { 2, 3 });
+		sut.add(_(0, 1));
+		sut.add(_(1, 1));
+
+		assertRows(_(1, 0), _(0, 1), _(1, 1));
+		assertFreqs(2, 4, 1);
+	}
+
 	@Test(expected = AssertionException.class)
 	public void rowsMustHaveTheRightNumberOfColumns() {
 		sut = new Table(1);
@@ -161,31 +191,68 @@ public class TableTest {
 	@Test
 	public void sizeCalculation_1() {
 		int actual = createTable(1, 1).getSize();
-		int expected = 5; // 4 freq + 0.0.. features
+		int expected = 12; // 4 freq + 1 word of features
 		assertEquals(expected, actual);
 	}
 
 	@Test
 	public void sizeCalculation_2() {
-		int actual = createTable(1, 8).getSize();
-		int expected = 5; // 4 freq + 1 features
+		int actual = createTable(1, 64).getSize();
+		int expected = 12; // 4 freq + 1 word of features
 		assertEquals(expected, actual);
 	}
 
 	@Test
 	public void sizeCalculation_3() {
-		int actual = createTable(2, 13).getSize();
-		int expected = 12; // 26bit~4Byte + 2*4Byte freq
+		int actual = createTable(2, 65).getSize();
+		int expected = 40; // 2 * (4 freq + 2 words of features)
 		assertEquals(expected, actual);
 	}
 
 	@Test
 	public void sizeCalculation_4() {
 		int actual = createTable(10, 17).getSize();
-		int expected = 40 + 22; // 10 freqs + 170bit/8 ~ 22Byte
+		int expected = 120; // 10 * (4 freq + 1 word of features)
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	public void sizeOfEmptyTable() {
+		assertEquals(0, new Table(10).getSize());
+	}
+
+	@Test
+	public void rowsWithManyColumnsArePacked() {
+		boolean[] row = new boolean[130];
+		row[0] = true;
+		row[63] = true;
+		row[64] = true;
+		row[129] = true;
+		sut = new Table(130);
+		sut.add(row);
+		sut.add(row.clone());
+
+		assertRows(row);
+		assertFreqs(2);
+		assertTrue(sut.get(0, 64));
+		assertFalse(sut.get(0, 65));
+	}
+
+	@Test
+	public void distanceOnlyCountsCaredColumns() {
+		sut = new Table(3);
+		sut.add(_(1, 0, 1));
+
+		long[] trueMask = sut.newMask();
+		long[] careMask = sut.newMask();
+		Table.setBit(trueMask, 1);
+		Table.setBit(careMask, 1);
+		Table.setBit(careMask, 2);
+
+		// column 1 is missing and column 2 should not be there, column 0 is ignored
+		assertEquals(2, sut.calculateDistance(0, trueMask, careMask));
+	}
+
 	private static Table createTable(int numRows, int numFeatures) {
 		int[] freqs = new int[numRows];
 		boolean[][] arr = new boolean[numRows][];
@@ -195,6 +262,14 @@ public class TableTest {
 		return new Table(arr, freqs);
 	}
 
+	private static boolean[] toRow(int bits, int numCols) {
+		boolean[] res = new boolean[numCols];
+		for (int i = 0; i < numCols; i++) {
+			res[i] = (bits & (1 << i)) != 0;
+		}
+		return res;
+	}
+
 	private static boolean[] _(int... values) {
 		boolean[] res = new boolean[values.length];
 		for (int i = 0; i < values.length; i++) {
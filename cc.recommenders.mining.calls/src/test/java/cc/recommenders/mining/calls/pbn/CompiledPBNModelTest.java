@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2010-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.calls.pbn;
+
+import static cc.recommenders.mining.calls.QueryOptions.newQueryOptions;
+import static cc.recommenders.mining.calls.pbn.PBNRecommenderFixture.createQuery;
+import static cc.recommenders.mining.calls.pbn.PBNRecommenderFixture.createSampleNetwork;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.util.Graph.Edge;
+import org.eclipse.recommenders.jayes.util.Pair;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.exceptions.AssertionException;
+import cc.recommenders.mining.calls.QueryOptions;
+import cc.recommenders.names.IMethodName;
+
+public class CompiledPBNModelTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private QueryOptions options;
+	private CompiledPBNModel model;
+
+	@Before
+	public void setup() {
+		options = newQueryOptions("+CLASS+METHOD+DEF+PARAMS");
+		model = CompiledPBNModel.compile(createSampleNetwork());
+	}
+
+	@Test
+	public void compiledNetworkContainsAllNodes() {
+		BayesNet net = model.getBayesNet();
+		assertEquals(createSampleNetwork().getNodes().size(), net.getNodes().size());
+		assertEquals(model.getJunctionTree().getClusters().size() - 1, model.getJunctionTree().getSepSets()
+				.size());
+	}
+
+	@Test
+	public void networkIsRestored() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		BayesNet expectedNet = model.getBayesNet();
+		BayesNet actualNet = actual.getBayesNet();
+		assertEquals(expectedNet.getNodes().size(), actualNet.getNodes().size());
+		for (BayesNode expected : expectedNet.getNodes()) {
+			BayesNode node = actualNet.getNode(expected.getId());
+			assertEquals(expected.getName(), node.getName());
+			assertEquals(expected.getOutcomes(), node.getOutcomes());
+			assertEquals(expected.getParents().size(), node.getParents().size());
+			for (int i = 0; i < expected.getParents().size(); i++) {
+				assertEquals(expected.getParents().get(i).getId(), node.getParents().get(i).getId());
+			}
+			assertArrayEquals(expected.getProbabilities(), node.getProbabilities(), 0.0);
+		}
+	}
+
+	@Test
+	public void junctionTreeIsRestored() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		assertEquals(model.getJunctionTree().getClusters(), actual.getJunctionTree().getClusters());
+		assertEquals(model.getJunctionTree().getSepSets(), actual.getJunctionTree().getSepSets());
+	}
+
+	@Test
+	public void onlyReadModelsArePrepared() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		assertNull(model.getPreparedJunctionTree());
+		assertNotNull(actual.getPreparedJunctionTree());
+		assertSame(actual.getJunctionTree(), actual.getPreparedJunctionTree().getJunctionTree());
+	}
+
+	@Test
+	public void preparedJunctionTreeYieldsSameBeliefs() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		JunctionTreeAlgorithm expected = new JunctionTreeAlgorithm();
+		expected.setNetwork(model.getBayesNet());
+		JunctionTreeAlgorithm prepared = new JunctionTreeAlgorithm();
+		prepared.setNetwork(actual.getBayesNet(), actual.getPreparedJunctionTree());
+
+		BayesNode evidence = model.getBayesNet().getNodes().get(1);
+		expected.addEvidence(evidence.getId(), 0);
+		prepared.addEvidence(evidence.getId(), 0);
+		for (BayesNode node : model.getBayesNet().getNodes()) {
+			BayesNode actualNode = actual.getBayesNet().getNode(node.getId());
+			assertArrayEquals(expected.getBeliefs(node), prepared.getBeliefs(actualNode), 0.000001);
+		}
+	}
+
+	@Test
+	public void sepSetsAreStoredInCanonicalOrder() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		int lastFirst = -1;
+		int lastSecond = -1;
+		for (Pair<Edge, List<Integer>> sepSet : actual.getJunctionTree().getSepSets()) {
+			int first = sepSet.getFirst().getFirst();
+			int second = sepSet.getFirst().getSecond();
+			assertTrue(first < second);
+			assertTrue(first > lastFirst || first == lastFirst && second > lastSecond);
+			lastFirst = first;
+			lastSecond = second;
+		}
+	}
+
+	@Test
+	public void writingIsDeterministic() throws IOException {
+		CompiledPBNModel other = CompiledPBNModel.compile(createSampleNetwork());
+		assertArrayEquals(toBytes(model, false), toBytes(other, false));
+
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, false)));
+		assertArrayEquals(toBytes(model, false), toBytes(actual, false));
+	}
+
+	@Test
+	public void singlePrecisionModelsAreSmaller() throws IOException {
+		int doubleSize = toBytes(model, true).length;
+		int floatSize = toBytes(model, false).length;
+		assertEquals(true, floatSize < doubleSize);
+	}
+
+	@Test
+	public void singlePrecisionModelsAreRestoredApproximately() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, false)));
+		for (BayesNode expected : model.getBayesNet().getNodes()) {
+			BayesNode node = actual.getBayesNet().getNode(expected.getId());
+			assertArrayEquals(expected.getProbabilities(), node.getProbabilities(), 0.000001);
+		}
+	}
+
+	@Test
+	public void restoredModelsYieldSameRecommendations() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		Set<Tuple<IMethodName, Double>> expected = new PBNRecommender(createSampleNetwork(), options)
+				.query(createQuery());
+		assertEqualSet(expected, new PBNRecommender(actual, options).query(createQuery()));
+	}
+
+	@Test
+	public void modelsCanBeSharedBetweenRecommenders() throws IOException {
+		CompiledPBNModel actual = CompiledPBNModel.read(ByteBuffer.wrap(toBytes(model, true)));
+
+		Set<Tuple<IMethodName, Double>> expected = new PBNRecommender(actual, options).query(createQuery());
+		PBNRecommender other = new PBNRecommender(actual, newQueryOptions("+CLASS+METHOD+DEF+PARAMS+TOP1"));
+		other.query(createQuery());
+		assertEqualSet(expected, new PBNRecommender(actual, options).query(createQuery()));
+	}
+
+	@Test
+	public void modelsCanBeMappedFromFiles() throws IOException {
+		File file = tmp.newFile("model.pbn");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			model.write(out, false);
+		} finally {
+			out.close();
+		}
+
+		CompiledPBNModel actual = CompiledPBNModel.read(file);
+
+		Set<Tuple<IMethodName, Double>> expected = new PBNRecommender(model, options).query(createQuery());
+		assertEqualSet(expected, new PBNRecommender(actual, options).query(createQuery()));
+	}
+
+	@Test
+	public void severalModelsCanBeReadFromOneBuffer() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		model.write(out, true);
+		model.write(out, false);
+		ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+
+		CompiledPBNModel.read(in);
+		CompiledPBNModel.read(in);
+		assertEquals(0, in.remaining());
+	}
+
+	@Test(expected = AssertionException.class)
+	public void otherDataIsRejected() {
+		CompiledPBNModel.read(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 }));
+	}
+
+	private static byte[] toBytes(CompiledPBNModel model, boolean useDoublePrecision) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		model.write(out, useDoublePrecision);
+		return out.toByteArray();
+	}
+
+	private static <T> void assertEqualSet(Set<Tuple<T, Double>> a, Set<Tuple<T, Double>> b) {
+		assertEquals(a.size(), b.size());
+		Iterator<Tuple<T, Double>> itA = a.iterator();
+		Iterator<Tuple<T, Double>> itB = b.iterator();
+		while (itA.hasNext()) {
+			Tuple<T, Double> tA = itA.next();
+			Tuple<T, Double> tB = itB.next();
+			assertEquals(tA.getFirst(), tB.getFirst());
+			assertEquals(tA.getSecond(), tB.getSecond(), 0.0001);
+		}
+	}
+}
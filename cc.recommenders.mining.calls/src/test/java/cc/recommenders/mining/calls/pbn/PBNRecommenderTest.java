@@ -20,19 +20,33 @@ import static cc.recommenders.mining.calls.pbn.PBNRecommenderFixture.createSampl
 import static cc.recommenders.mining.calls.pbn.PBNRecommenderFixture.createTuple;
 import static cc.recommenders.mining.calls.pbn.PBNRecommenderFixture.newDoubleRecommender;
 import static cc.recommenders.mining.calls.pbn.PBNRecommenderFixture.newFloatRecommender;
+import static cc.recommenders.usages.CallSites.createReceiverCallSite;
+import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newLinkedHashSet;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.commons.bayesnet.Node;
 import org.junit.Before;
 import org.junit.Test;
 
 import cc.recommenders.datastructures.Tuple;
+import cc.recommenders.mining.calls.EvidenceKey;
 import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSite;
+import cc.recommenders.usages.Query;
 
 @SuppressWarnings("unchecked")
 public class PBNRecommenderTest {
@@ -94,6 +108,31 @@ public class PBNRecommenderTest {
 		assertEqualSet(expected, actual);
 	}
 
+	@Test
+	public void onlyTheMostProbableCallsAreProposed() {
+		recommender = new PBNRecommender(network, newQueryOptions("+CLASS+METHOD+DEF+PARAMS+TOP1"));
+		Set<Tuple<IMethodName, Double>> actual = recommender.query(createQuery());
+		Set<Tuple<IMethodName, Double>> expected = createResult(createTuple("LC.m2()V", 0.3571));
+		assertEqualSet(expected, actual);
+	}
+
+	@Test
+	public void onlyTheMostProbableCallsOfAPatternAreProposed() {
+		recommender = new PBNRecommender(network, newQueryOptions("+TOP2"));
+		Set<Tuple<IMethodName, Double>> actual = recommender.queryPattern("p2");
+		Set<Tuple<IMethodName, Double>> expected = createResult(createTuple("LC.m3()V", 0.25),
+				createTuple("LC.m2()V", 0.2));
+		assertEqualSet(expected, actual);
+	}
+
+	@Test
+	public void mostProbableCallsRespectMinProbability() {
+		recommender = new PBNRecommender(network, newQueryOptions("+MIN35+TOP2"));
+		Set<Tuple<IMethodName, Double>> actual = recommender.query(createQuery());
+		Set<Tuple<IMethodName, Double>> expected = createResult(createTuple("LC.m2()V", 0.3571));
+		assertEqualSet(expected, actual);
+	}
+
 	@Test
 	public void queriedCallsAreCleared() {
 		// first query with all calls set
@@ -146,6 +185,168 @@ public class PBNRecommenderTest {
 		recommender.query(createQueryWithUnobservedData());
 	}
 
+	@Test
+	public void unknownContextsAreIgnored() {
+		Query query = createQuery();
+		query.setClassContext(VmTypeName.get("LUnobservedClass"));
+		PBNRecommender withoutClass = new PBNRecommender(network, newQueryOptions("-CLASS+METHOD+DEF+PARAMS"));
+		assertEqualSet(withoutClass.query(createQuery()), recommender.query(query));
+		assertEqualSet(withoutClass.query(createQuery()), newStarRecommender("+CLASS+METHOD+DEF+PARAMS").query(query));
+	}
+
+	@Test
+	public void batchedQueriesYieldSameResultsAsSingleQueries() {
+		Query queryWithOtherCalls = createQuery();
+		queryWithOtherCalls.addCallSite(createReceiverCallSite("LC.m3()V"));
+		Query queryWithoutCalls = createQuery();
+		queryWithoutCalls.setAllCallsites(new HashSet<CallSite>());
+
+		List<Query> queries = newArrayList(createQuery(), createQueryWithAllCallsSet(), queryWithOtherCalls,
+				createQueryWithUnobservedData(), queryWithoutCalls, createQuery());
+		List<Set<Tuple<IMethodName, Double>>> actual = recommender.queryAll(queries);
+
+		assertEquals(queries.size(), actual.size());
+		for (int i = 0; i < queries.size(); i++) {
+			assertEqualSet(recommender.query(queries.get(i)), actual.get(i));
+		}
+	}
+
+	@Test
+	public void queriesThatAddCallsToThePreviousQueryAreAnsweredCorrectly() {
+		Query first = createQuery();
+		Query second = createQuery();
+		second.addCallSite(createReceiverCallSite("LC.m3()V"));
+		Query third = createQueryWithAllCallsSet();
+
+		Set<Tuple<IMethodName, Double>> actualFirst = recommender.query(first);
+		Set<Tuple<IMethodName, Double>> actualSecond = recommender.query(second);
+		Set<Tuple<IMethodName, Double>> actualThird = recommender.query(third);
+
+		assertEqualSet(newRecommender().query(first), actualFirst);
+		assertEqualSet(newRecommender().query(second), actualSecond);
+		assertEqualSet(newRecommender().query(third), actualThird);
+	}
+
+	@Test
+	public void batchedQueriesRespectMinProbability() {
+		recommender = new PBNRecommender(network, newQueryOptions("+MIN35"));
+		List<Set<Tuple<IMethodName, Double>>> actual = recommender.queryAll(newArrayList(createQuery(), createQuery()));
+		Set<Tuple<IMethodName, Double>> expected = createResult(createTuple("LC.m2()V", 0.3571));
+		assertEqualSet(expected, actual.get(0));
+		assertEqualSet(expected, actual.get(1));
+	}
+
+	@Test
+	public void concurrentQueriesDoNotInterfere() throws Exception {
+		final Set<Tuple<IMethodName, Double>> expectedNormal = recommender.query(createQuery());
+		final Set<Tuple<IMethodName, Double>> expectedPattern = recommender.queryPattern("p2");
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> futures = newArrayList();
+		for (int i = 0; i < 16; i++) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < 50; j++) {
+						assertEqualSet(expectedNormal, recommender.query(createQuery()));
+						recommender.query(createQueryWithAllCallsSet());
+						assertEqualSet(expectedPattern, recommender.queryPattern("p2"));
+					}
+					return null;
+				}
+			}));
+		}
+		executor.shutdown();
+		for (Future<Void> f : futures) {
+			f.get();
+		}
+	}
+
+	@Test
+	public void equalQueriesHaveEqualEvidenceKeys() {
+		assertEquals(recommender.createEvidenceKey(createQuery()), recommender.createEvidenceKey(createQuery()));
+	}
+
+	@Test
+	public void differentEvidenceLeadsToDifferentKeys() {
+		Query other = createQuery();
+		other.addCallSite(createReceiverCallSite("LC.m3()V"));
+		assertFalse(recommender.createEvidenceKey(createQuery()).equals(recommender.createEvidenceKey(other)));
+	}
+
+	@Test
+	public void unknownEvidenceIsNotPartOfTheKey() {
+		Query other = createQuery();
+		other.addCallSite(createReceiverCallSite("LC.unobservedCall()V"));
+		assertEquals(recommender.createEvidenceKey(createQuery()), recommender.createEvidenceKey(other));
+	}
+
+	@Test
+	public void unqueriedEvidenceIsNotPartOfTheKey() {
+		recommender = new PBNRecommender(network, newQueryOptions("-CLASS+METHOD+DEF+PARAMS"));
+		Query other = createQuery();
+		other.setClassContext(VmTypeName.get("LUnobservedClass"));
+		assertEquals(recommender.createEvidenceKey(createQuery()), recommender.createEvidenceKey(other));
+	}
+
+	@Test
+	public void queriesWithoutKnownEvidenceHaveEqualKeys() {
+		assertEquals(new EvidenceKey(), recommender.createEvidenceKey(createQueryWithUnobservedData()));
+	}
+
+	@Test
+	public void starInferenceIsOnlyUsedWhenRequested() {
+		assertFalse(recommender.isStarInference());
+		assertTrue(newStarRecommender("").isStarInference());
+	}
+
+	@Test
+	public void starInferenceYieldsSameProposals() {
+		PBNRecommender star = newStarRecommender("+CLASS+METHOD+DEF+PARAMS");
+		Query queryWithOtherCalls = createQuery();
+		queryWithOtherCalls.addCallSite(createReceiverCallSite("LC.m3()V"));
+		List<Query> queries = newArrayList(createQuery(), createQueryWithAllCallsSet(), queryWithOtherCalls,
+				createQueryWithUnobservedData());
+		for (Query q : queries) {
+			assertEqualSet(recommender.query(q), star.query(q));
+		}
+		assertEqualSet(recommender.queryPattern("p2"), star.queryPattern("p2"));
+		assertEqualSet(recommender.getPatternsWithProbability(), star.getPatternsWithProbability());
+	}
+
+	@Test
+	public void starInferenceYieldsSameMostProbableCalls() {
+		PBNRecommender jta = new PBNRecommender(network, newQueryOptions("+MIN30+TOP1"));
+		PBNRecommender star = newStarRecommender("+MIN30+TOP1");
+		assertEqualSet(jta.query(createQuery()), star.query(createQuery()));
+	}
+
+	@Test
+	public void starInferenceSupportsBatchedQueries() {
+		PBNRecommender star = newStarRecommender("+CLASS+METHOD+DEF+PARAMS");
+		List<Query> queries = newArrayList(createQuery(), createQueryWithAllCallsSet(), createQuery());
+		List<Set<Tuple<IMethodName, Double>>> actual = star.queryAll(queries);
+		for (int i = 0; i < queries.size(); i++) {
+			assertEqualSet(recommender.query(queries.get(i)), actual.get(i));
+		}
+	}
+
+	@Test
+	public void otherNetworksFallBackToTheJunctionTree() {
+		Node call1 = network.getNode("C_LC.m1()V");
+		Node call3 = network.getNode("C_LC.m3()V");
+		call3.setParents(new Node[] { network.getNode("patterns"), call1 });
+		call3.setProbabilities(new double[] { 0.45, 0.55, 0.45, 0.55, 0.25, 0.75, 0.25, 0.75 });
+
+		PBNRecommender star = newStarRecommender("+CLASS+METHOD+DEF+PARAMS");
+		assertFalse(star.isStarInference());
+		assertEqualSet(newRecommender().query(createQuery()), star.query(createQuery()));
+	}
+
+	private PBNRecommender newStarRecommender(String options) {
+		return new PBNRecommender(network, newQueryOptions(options + "+STAR"));
+	}
+
 	@Test
 	public void size_floatMinimal() {
 		int actual = newFloatRecommender().getSize();
@@ -174,6 +375,10 @@ public class PBNRecommenderTest {
 		assertEquals(expected, actual);
 	}
 
+	private PBNRecommender newRecommender() {
+		return new PBNRecommender(network, newQueryOptions("+CLASS+METHOD+DEF+PARAMS"));
+	}
+
 	@SuppressWarnings("deprecation")
 	private static <T> void assertEqualSet(Set<Tuple<T, Double>> a, Set<Tuple<T, Double>> b) {
 		assertTrue(a.size() == b.size());
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.mining.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cc.recommenders.utils.dictionary.Dictionary;
+
+import com.google.common.collect.Lists;
+
+public class FeatureIdsTest {
+
+	private Dictionary<String> dictionary;
+
+	@Before
+	public void setup() {
+		dictionary = new Dictionary<String>();
+		dictionary.add("a");
+		dictionary.add("b");
+		dictionary.add("c");
+		dictionary.add("d");
+	}
+
+	@Test
+	public void featuresAreMappedToSortedIds() {
+		int[] actual = FeatureIds.toIds(Lists.newArrayList("d", "a", "c"), dictionary);
+		assertArrayEquals(new int[] { 0, 2, 3 }, actual);
+	}
+
+	@Test
+	public void unknownFeaturesAreIgnored() {
+		int[] actual = FeatureIds.toIds(Lists.newArrayList("x", "b", "y"), dictionary);
+		assertArrayEquals(new int[] { 1 }, actual);
+	}
+
+	@Test
+	public void duplicatesAreRemoved() {
+		int[] actual = FeatureIds.toIds(Lists.newArrayList("c", "a", "c", "a"), dictionary);
+		assertArrayEquals(new int[] { 0, 2 }, actual);
+	}
+
+	@Test
+	public void emptyUsage() {
+		int[] actual = FeatureIds.toIds(Lists.<String> newArrayList(), dictionary);
+		assertArrayEquals(new int[0], actual);
+	}
+
+	@Test
+	public void allUsagesAreMapped() {
+		List<List<String>> usages = Lists.newArrayList();
+		usages.add(Lists.newArrayList("b"));
+		usages.add(Lists.newArrayList("d", "c"));
+
+		List<int[]> actual = FeatureIds.toIdsOfAll(usages, dictionary);
+
+		assertEquals(2, actual.size());
+		assertArrayEquals(new int[] { 1 }, actual.get(0));
+		assertArrayEquals(new int[] { 2, 3 }, actual.get(1));
+	}
+
+	@Test
+	public void containmentCanBeChecked() {
+		int[] ids = { 1, 4, 7 };
+		assertTrue(FeatureIds.contains(ids, 4));
+		assertFalse(FeatureIds.contains(ids, 5));
+	}
+}
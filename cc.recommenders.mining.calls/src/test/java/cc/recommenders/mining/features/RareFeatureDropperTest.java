@@ -11,9 +11,13 @@
 package cc.recommenders.mining.features;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -29,12 +33,19 @@ public class RareFeatureDropperTest {
 	private Dictionary<String> rawDict;
 	private Dictionary<String> actual;
 	private Dictionary<String> expected;
+	private ExecutorService executor;
 
 	@Before
 	public void setup() {
 		sut = new RareFeatureDropper<String>();
 		expected = new Dictionary<String>();
 		features = Lists.newLinkedList();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
 	}
 
 	@Test
@@ -103,6 +114,75 @@ public class RareFeatureDropperTest {
 		assertEquals(1, actual.size());
 	}
 
+	@Test
+	public void defaultNumberOfThreads() {
+		assertEquals(1, sut.getNumberOfThreads());
+	}
+
+	@Test(expected = AssertionException.class)
+	public void illegalNumberOfThreads() {
+		sut.setExecutor(executor, 0);
+	}
+
+	@Test(expected = AssertionException.class)
+	public void executorIsRequired() {
+		sut.setExecutor(null, 4);
+	}
+
+	@Test
+	public void featuresUnknownToTheDictionaryAreIgnored() {
+		usage("a", "x");
+		usage("a", "x");
+		rawDict = dict("a");
+
+		assertDictionary("a");
+	}
+
+	@Test
+	public void parallelCountingYieldsSameResult() {
+		for (int i = 0; i < 5000; i++) {
+			if (i % 2 == 0) {
+				usage("a", "b", "a");
+			} else if (i == 4999) {
+				usage("c");
+			} else {
+				usage("b", "d");
+			}
+		}
+		usage("d");
+		rawDict = dict("a", "b", "c", "d");
+		sut.setThreshold(2500);
+		sut.setExecutor(executor, 4);
+
+		assertDictionary("a", "b", "d");
+	}
+
+	@Test
+	public void parallelCountingWorksWithoutLookupCache() {
+		for (int i = 0; i < 5000; i++) {
+			usage("a", "b", "c", "d", "e", "f", "g", "h");
+		}
+		rawDict = dict("a", "b", "c", "d", "e", "f", "g", "h", "x");
+		// removing an entry discards the lookup cache of the dictionary
+		rawDict.remove("x");
+		sut.setThreshold(5000);
+		sut.setExecutor(executor, 4);
+
+		assertDictionary("a", "b", "c", "d", "e", "f", "g", "h");
+	}
+
+	@Test
+	public void executorIsNotShutDown() {
+		for (int i = 0; i < 5000; i++) {
+			usage("a");
+		}
+		rawDict = dict("a");
+		sut.setExecutor(executor, 4);
+		sut.dropRare(rawDict, features);
+
+		assertFalse(executor.isShutdown());
+	}
+
 	private void usage(String... fs) {
 		List<String> usage = Lists.newLinkedList();
 		for (String f : fs) {
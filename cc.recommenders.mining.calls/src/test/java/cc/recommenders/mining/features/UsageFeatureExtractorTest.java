@@ -11,6 +11,7 @@
 package cc.recommenders.mining.features;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -41,6 +42,7 @@ import cc.recommenders.usages.features.FirstMethodFeature;
 import cc.recommenders.usages.features.ParameterFeature;
 import cc.recommenders.usages.features.TypeFeature;
 import cc.recommenders.usages.features.UsageFeature;
+import cc.recommenders.utils.dictionary.Dictionary;
 
 import com.google.common.collect.Sets;
 
@@ -154,6 +156,28 @@ public class UsageFeatureExtractorTest {
 		assertTrue(actuals.contains(expected));
 	}
 
+	@Test
+	public void idsAreTheDictionaryIdsOfTheExtractedFeatures() {
+		miningOptions.setInitUsedAsCall(true);
+		Usage usage = createInitUsage("Blubb");
+		Dictionary<UsageFeature> dictionary = new Dictionary<UsageFeature>();
+		// only a part of the features, in another order
+		List<UsageFeature> features = sut.extract(usage);
+		for (int i = features.size() - 1; i >= 0; i -= 2) {
+			dictionary.add(features.get(i));
+		}
+		dictionary.add(new TypeFeature(VmTypeName.get("Lorg/bla/Other")));
+
+		int[] expected = FeatureIds.toIds(features, dictionary);
+		assertArrayEquals(expected, sut.extractIds(usage, dictionary));
+	}
+
+	@Test
+	public void noIdsAreExtractedForEmptyDictionary() {
+		int[] actual = sut.extractIds(createInitUsage("Blubb"), new Dictionary<UsageFeature>());
+		assertArrayEquals(new int[0], actual);
+	}
+
 	private static Usage createInitUsage(String typeName) {
 
 		aCallSite = VmMethodName.get("Lorg/blubb/Bla.method()V");
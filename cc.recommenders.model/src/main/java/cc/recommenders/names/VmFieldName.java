@@ -12,7 +12,7 @@ package cc.recommenders.names;
 
 import static cc.recommenders.assertions.Checks.ensureIsNotNull;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -21,7 +21,7 @@ import com.google.common.collect.MapMaker;
 public class VmFieldName implements IFieldName {
     private static final long serialVersionUID = 5067244907255465328L;
 
-    private static Map<String /* vmTypeName */, VmFieldName> index = new MapMaker().weakValues().makeMap();
+    private static ConcurrentMap<String /* vmTypeName */, VmFieldName> index = new MapMaker().weakValues().makeMap();
 
     /**
      * Format: DeclaringType'.'fieldName;FieldType, i.e., &lt;VmTypeName&gt;.&lt;String&gt;;&lt;VmTypeName&gt;
@@ -34,7 +34,10 @@ public class VmFieldName implements IFieldName {
         VmFieldName res = index.get(fieldName);
         if (res == null) {
             res = new VmFieldName(fieldName);
-            index.put(fieldName, res);
+            VmFieldName existing = index.putIfAbsent(fieldName, res);
+            if (existing != null) {
+                res = existing;
+            }
         }
         return res;
     }
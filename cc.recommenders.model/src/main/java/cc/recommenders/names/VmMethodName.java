@@ -25,7 +25,7 @@ import static cc.recommenders.names.VmTypeName.SHORT;
 import static cc.recommenders.names.VmTypeName.VOID;
 
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -34,7 +34,7 @@ import com.google.common.collect.MapMaker;
 public class VmMethodName implements IMethodName {
     private static final long serialVersionUID = 688964238062226061L;
 
-    private static Map<String /* name */, VmMethodName> index = new MapMaker().weakValues().makeMap();
+    private static ConcurrentMap<String /* name */, VmMethodName> index = new MapMaker().weakValues().makeMap();
 
     public static VmMethodName get(final String vmFullQualifiedTypeName, final String vmMethodSignature) {
         return get(vmFullQualifiedTypeName + "." + vmMethodSignature);
@@ -57,14 +57,17 @@ public class VmMethodName implements IMethodName {
         return get(vmBaseTypeName.getIdentifier(), vmMethodName.getSignature());
     }
 
-    public static synchronized VmMethodName get(final String vmFullQualifiedMethodName) {
+    public static VmMethodName get(final String vmFullQualifiedMethodName) {
         VmMethodName res = index.get(vmFullQualifiedMethodName);
         if (res == null) {
             if (vmFullQualifiedMethodName.startsWith("< ")) {
                 throwIllegalArgumentException("invalid input: " + vmFullQualifiedMethodName);
             }
             res = new VmMethodName(vmFullQualifiedMethodName);
-            index.put(vmFullQualifiedMethodName, res);
+            VmMethodName existing = index.putIfAbsent(vmFullQualifiedMethodName, res);
+            if (existing != null) {
+                res = existing;
+            }
         }
         return res;
     }
@@ -76,6 +79,11 @@ public class VmMethodName implements IMethodName {
     // }
     private String identifier;
 
+    // parsed on first access; as names are interned, concurrent initializations yield identical values
+    private transient volatile ITypeName declaringType;
+    private transient volatile ITypeName[] parameterTypes;
+    private transient volatile ITypeName returnType;
+
     protected VmMethodName() {
         // no-one should instantiate this class. But maybe we need subclasses
         // later...
@@ -86,18 +94,22 @@ public class VmMethodName implements IMethodName {
      */
     protected VmMethodName(final String vmFullQualifiedMethodName) {
         identifier = vmFullQualifiedMethodName;
-        // // perform syntax check by creating every possible element from this
-        // string. If no exception is thrown everything should be ok...
-        getDeclaringType();
-        getParameterTypes();
-        getReturnType();
+        // only a cheap syntax check, the elements are parsed when they are
+        // accessed for the first time
+        final int bracket = identifier.lastIndexOf('(');
+        final int methodSeperator = identifier.lastIndexOf('.', bracket);
+        ensureIsTrue(methodSeperator > 0 && identifier.indexOf(')', bracket) > bracket, "invalid method name: %s",
+                identifier);
     }
 
     @Override
     public ITypeName getDeclaringType() {
-        final int bracket = identifier.lastIndexOf('(');
-        final int methodSeperator = identifier.lastIndexOf('.', bracket);
-        return VmTypeName.get(identifier.substring(0, methodSeperator));
+        if (declaringType == null) {
+            final int bracket = identifier.lastIndexOf('(');
+            final int methodSeperator = identifier.lastIndexOf('.', bracket);
+            declaringType = VmTypeName.get(identifier.substring(0, methodSeperator));
+        }
+        return declaringType;
     }
 
     @Override
@@ -120,6 +132,17 @@ public class VmMethodName implements IMethodName {
 
     @Override
     public ITypeName[] getParameterTypes() {
+        return parseParameterTypes().clone();
+    }
+
+    private ITypeName[] parseParameterTypes() {
+        if (parameterTypes == null) {
+            parameterTypes = parseParameterTypes(identifier);
+        }
+        return parameterTypes;
+    }
+
+    private static ITypeName[] parseParameterTypes(final String identifier) {
         final ArrayList<VmTypeName> argTypes = new ArrayList<VmTypeName>();
         final int openingBracket = identifier.lastIndexOf('(');
         final char[] desc = identifier.substring(openingBracket + 1).toCharArray();
@@ -220,6 +243,13 @@ public class VmMethodName implements IMethodName {
 
     @Override
     public ITypeName getReturnType() {
+        if (returnType == null) {
+            returnType = parseReturnType(identifier);
+        }
+        return returnType;
+    }
+
+    private static ITypeName parseReturnType(final String identifier) {
         String returnType = StringUtils.substringAfterLast(identifier, ")");
         // strip off throws type from method return
         returnType = StringUtils.substringBefore(returnType, "|");
@@ -280,6 +310,6 @@ public class VmMethodName implements IMethodName {
 
     @Override
     public boolean hasParameters() {
-        return getParameterTypes().length > 0;
+        return parseParameterTypes().length > 0;
     }
 }
@@ -10,22 +10,25 @@
  */
 package cc.recommenders.names;
 
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
 
 public class VmPackageName implements IPackageName {
 
-    private static Map<String/* name 2 */, VmPackageName> index = new MapMaker().weakValues().makeMap();
+    private static ConcurrentMap<String/* name 2 */, VmPackageName> index = new MapMaker().weakValues().makeMap();
     public static IPackageName DEFAULT_PACKAGE = get("");
 
     public static VmPackageName get(final String vmPackageName) {
         VmPackageName res = index.get(vmPackageName);
         if (res == null) {
             res = new VmPackageName(vmPackageName);
-            index.put(vmPackageName, res);
+            VmPackageName existing = index.putIfAbsent(vmPackageName, res);
+            if (existing != null) {
+                res = existing;
+            }
         }
         return res;
     }
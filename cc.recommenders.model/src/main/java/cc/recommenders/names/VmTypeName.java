@@ -16,14 +16,14 @@ import static cc.recommenders.assertions.Checks.ensureIsTrue;
 import static cc.recommenders.assertions.Throws.throwIllegalArgumentException;
 import static cc.recommenders.assertions.Throws.throwUnreachable;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.collect.MapMaker;
 
 public class VmTypeName implements ITypeName {
-    private static Map<String /* vmTypeName */, VmTypeName> index = new MapMaker().weakValues().makeMap();
+    private static ConcurrentMap<String /* vmTypeName */, VmTypeName> index = new MapMaker().weakValues().makeMap();
 
     public static final VmTypeName OBJECT = VmTypeName.get("Ljava/lang/Object");
 
@@ -63,7 +63,10 @@ public class VmTypeName implements ITypeName {
         VmTypeName res = index.get(typeName);
         if (res == null) {
             res = new VmTypeName(typeName);
-            index.put(typeName, res);
+            VmTypeName existing = index.putIfAbsent(typeName, res);
+            if (existing != null) {
+                res = existing;
+            }
         }
         return res;
     }
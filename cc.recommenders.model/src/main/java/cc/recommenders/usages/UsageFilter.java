@@ -17,9 +17,13 @@ import java.util.regex.Pattern;
 
 import com.google.common.base.Predicate;
 
+/**
+ * accepts the usages of SWT widgets that are worth learning from. The filter
+ * is stateless, so one instance can be shared by several threads.
+ */
 public class UsageFilter implements Predicate<Usage> {
 
-	private Pattern anonymousClassPattern = Pattern.compile(".*\\$[1-9]+[0-9]*$");
+	private final Pattern anonymousClassPattern = Pattern.compile(".*\\$[1-9]+[0-9]*$");
 
 	@Override
 	public boolean apply(Usage usage) {
@@ -23,6 +23,10 @@ import cc.recommenders.usages.Usage;
 
 import com.google.common.collect.Sets;
 
+/**
+ * converts ObjectUsages into Usages. The converter is stateless, so one
+ * instance can be shared by several threads.
+ */
 public class UsageConverter {
 	public Usage toRecommenderUsage(ObjectUsage ou) {
 		ITypeName declaringType = ou.getContext().getName().getDeclaringType();
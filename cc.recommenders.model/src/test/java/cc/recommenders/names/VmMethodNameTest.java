@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.names;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class VmMethodNameTest {
+
+	@Test
+	public void namesAreInterned() {
+		IMethodName a = VmMethodName.get("La/B.m(I)V");
+		IMethodName b = VmMethodName.get("La/B", "m(I)V");
+		assertSame(a, b);
+	}
+
+	@Test
+	public void elementsAreParsed() {
+		IMethodName m = VmMethodName.get("La/B.m(ILa/C;[J)La/D;");
+		assertSame(VmTypeName.get("La/B"), m.getDeclaringType());
+		assertEquals("m", m.getName());
+		ITypeName[] expected = { VmTypeName.INT, VmTypeName.get("La/C"), VmTypeName.get("[J") };
+		assertArrayEquals(expected, m.getParameterTypes());
+		assertTrue(m.hasParameters());
+		assertSame(VmTypeName.get("La/D"), m.getReturnType());
+		assertFalse(m.isVoid());
+	}
+
+	@Test
+	public void parameterTypesCannotBeModified() {
+		IMethodName m = VmMethodName.get("La/B.m(I)V");
+		m.getParameterTypes()[0] = VmTypeName.LONG;
+		assertSame(VmTypeName.INT, m.getParameterTypes()[0]);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void invalidNamesAreRejected() {
+		VmMethodName.get("La/B.m");
+	}
+
+	@Test
+	public void concurrentRequestsYieldTheSameInstance() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (int i = 0; i < 100; i++) {
+				final String name = "La/Concurrent.m" + i + "(La/B;)V";
+				List<Future<IMethodName>> futures = Lists.newArrayList();
+				for (int j = 0; j < 8; j++) {
+					futures.add(executor.submit(new Callable<IMethodName>() {
+						@Override
+						public IMethodName call() {
+							return VmMethodName.get(name);
+						}
+					}));
+				}
+				IMethodName first = futures.get(0).get();
+				for (Future<IMethodName> f : futures) {
+					assertSame(first, f.get());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.testutils;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import cc.recommenders.assertions.Asserts;
+import cc.recommenders.io.Directory;
+import cc.recommenders.io.UsageWritingArchive;
+import cc.recommenders.io.WritingArchive;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.names.VmMethodName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSite;
+import cc.recommenders.usages.CallSites;
+import cc.recommenders.usages.DefinitionSite;
+import cc.recommenders.usages.DefinitionSites;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.ProjectFoldingIndex;
+import cc.recommenders.usages.Query;
+import cc.recommenders.usages.Usage;
+
+/**
+ * generates synthetic usages for scale tests. Every type has a set of usage
+ * patterns, a pattern is a combination of calls and a definition site. The
+ * patterns, the methods of a type, the class contexts and the projects are
+ * all drawn from Zipf distributions, so a few of them are very frequent and
+ * most of them are rare, like in real code. Some noise is added to every
+ * usage, calls of its pattern are dropped and unrelated calls are added.
+ * 
+ * The same seed always results in the same usages. The usages of a type do
+ * not depend on the other types, so all types can be generated independently.
+ */
+public class UsageGenerator {
+
+	private int numTypes = 10;
+	private int numMethods = 40;
+	private int numPatterns = 8;
+	private int maxCallsPerPattern = 6;
+	private int numClassContexts = 200;
+	private int numMethodContexts = 10;
+	private int numProjects = 50;
+	private double exponent = 1.0;
+	private double noise = 0.1;
+	private long seed = 0;
+
+	public UsageGenerator setNumTypes(int numTypes) {
+		Asserts.assertGreaterThan(numTypes, 0);
+		this.numTypes = numTypes;
+		return this;
+	}
+
+	/**
+	 * the number of methods of each type that are called
+	 */
+	public UsageGenerator setNumMethods(int numMethods) {
+		Asserts.assertGreaterThan(numMethods, 0);
+		this.numMethods = numMethods;
+		return this;
+	}
+
+	public UsageGenerator setNumPatterns(int numPatterns) {
+		Asserts.assertGreaterThan(numPatterns, 0);
+		this.numPatterns = numPatterns;
+		return this;
+	}
+
+	public UsageGenerator setMaxCallsPerPattern(int maxCallsPerPattern) {
+		Asserts.assertGreaterThan(maxCallsPerPattern, 0);
+		this.maxCallsPerPattern = maxCallsPerPattern;
+		return this;
+	}
+
+	public UsageGenerator setNumClassContexts(int numClassContexts) {
+		Asserts.assertGreaterThan(numClassContexts, 0);
+		this.numClassContexts = numClassContexts;
+		return this;
+	}
+
+	/**
+	 * the number of methods per class context in which usages occur
+	 */
+	public UsageGenerator setNumMethodContexts(int numMethodContexts) {
+		Asserts.assertGreaterThan(numMethodContexts, 0);
+		this.numMethodContexts = numMethodContexts;
+		return this;
+	}
+
+	public UsageGenerator setNumProjects(int numProjects) {
+		Asserts.assertGreaterThan(numProjects, 0);
+		this.numProjects = numProjects;
+		return this;
+	}
+
+	/**
+	 * the exponent of all Zipf distributions, larger values concentrate the
+	 * usages on fewer patterns, methods, contexts and projects
+	 */
+	public UsageGenerator setExponent(double exponent) {
+		Asserts.assertNotNegative(exponent);
+		this.exponent = exponent;
+		return this;
+	}
+
+	/**
+	 * the probability to drop a call of the pattern, to add an unrelated call
+	 * and to replace the definition site of the pattern
+	 */
+	public UsageGenerator setNoise(double noise) {
+		Asserts.assertNotNegative(noise);
+		Asserts.assertLessOrEqual(noise, 1.0);
+		this.noise = noise;
+		return this;
+	}
+
+	public UsageGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public List<ITypeName> getTypes() {
+		List<ITypeName> types = newArrayList();
+		for (int i = 0; i < numTypes; i++) {
+			types.add(VmTypeName.get("Lgen/pkg" + (i % 10) + "/Type" + i));
+		}
+		return types;
+	}
+
+	/**
+	 * the usages are created while iterating, so they do not need to fit into
+	 * memory at once
+	 */
+	public Iterator<ProjectFoldedUsage> generate(ITypeName type, int numUsages) {
+		return new UsageIterator(type, numUsages);
+	}
+
+	public List<ProjectFoldedUsage> createProjectFoldedUsages(ITypeName type, int numUsages) {
+		List<ProjectFoldedUsage> usages = newArrayList();
+		Iterator<ProjectFoldedUsage> it = generate(type, numUsages);
+		while (it.hasNext()) {
+			usages.add(it.next());
+		}
+		return usages;
+	}
+
+	public List<Usage> createUsages(ITypeName type, int numUsages) {
+		List<Usage> usages = newArrayList();
+		Iterator<ProjectFoldedUsage> it = generate(type, numUsages);
+		while (it.hasNext()) {
+			usages.add(it.next().getRawUsage());
+		}
+		return usages;
+	}
+
+	/**
+	 * writes the usages of all types in the format of a project indexed
+	 * directory, i.e., one zip archive per type and the project index
+	 */
+	public ProjectFoldingIndex writeArchives(Directory out, int numUsagesPerType) throws IOException {
+		ProjectFoldingIndex index = new ProjectFoldingIndex();
+		for (ITypeName type : getTypes()) {
+			WritingArchive wa = out.getWritingArchive(getFileName(type, ".zip"));
+			try {
+				Iterator<ProjectFoldedUsage> it = generate(type, numUsagesPerType);
+				while (it.hasNext()) {
+					ProjectFoldedUsage pfu = it.next();
+					wa.add(pfu);
+					index.count(type, pfu.getProjectName());
+				}
+			} finally {
+				wa.close();
+			}
+		}
+		out.write(index, "index.json");
+		return index;
+	}
+
+	/**
+	 * like {@link #writeArchives(Directory, int)}, but with binary archives
+	 * instead of zip archives, which are much faster to write and to read
+	 */
+	public ProjectFoldingIndex writeBinaryArchives(Directory out, int numUsagesPerType, boolean isCompressed)
+			throws IOException {
+		ProjectFoldingIndex index = new ProjectFoldingIndex();
+		for (ITypeName type : getTypes()) {
+			UsageWritingArchive wa = out.getUsageWritingArchive(getFileName(type, ".bin"), isCompressed);
+			try {
+				Iterator<ProjectFoldedUsage> it = generate(type, numUsagesPerType);
+				while (it.hasNext()) {
+					ProjectFoldedUsage pfu = it.next();
+					wa.add(pfu);
+					index.count(type, pfu.getProjectName());
+				}
+			} finally {
+				wa.close();
+			}
+		}
+		out.write(index, "index.json");
+		return index;
+	}
+
+	private static String getFileName(ITypeName type, String suffix) {
+		return type.toString().replace('/', '_') + suffix;
+	}
+
+	private static class Pattern {
+		private final List<IMethodName> calls = newArrayList();
+		private DefinitionSite definition;
+		private int contextOffset;
+	}
+
+	private class UsageIterator implements Iterator<ProjectFoldedUsage> {
+
+		private final ITypeName type;
+		private final Random rnd;
+		private final IMethodName[] methods;
+		private final Pattern[] patterns;
+		private final ZipfSampler methodSampler;
+		private final ZipfSampler patternSampler;
+		private final ZipfSampler contextSampler;
+		private final ZipfSampler projectSampler;
+
+		private int numRemaining;
+
+		public UsageIterator(ITypeName type, int numUsages) {
+			Asserts.assertNotNegative(numUsages);
+			this.type = type;
+			numRemaining = numUsages;
+			rnd = new Random(seed * 31 + type.getIdentifier().hashCode());
+			methodSampler = new ZipfSampler(numMethods, exponent, rnd);
+			patternSampler = new ZipfSampler(numPatterns, exponent, rnd);
+			contextSampler = new ZipfSampler(numClassContexts, exponent, rnd);
+			projectSampler = new ZipfSampler(numProjects, exponent, rnd);
+
+			methods = new IMethodName[numMethods];
+			for (int i = 0; i < numMethods; i++) {
+				methods[i] = VmMethodName.get(type.getIdentifier() + ".call" + i + "()V");
+			}
+
+			patterns = new Pattern[numPatterns];
+			for (int i = 0; i < numPatterns; i++) {
+				patterns[i] = createPattern();
+			}
+		}
+
+		private Pattern createPattern() {
+			Pattern p = new Pattern();
+			int numCalls = 1 + rnd.nextInt(maxCallsPerPattern);
+			for (int i = 0; i < numCalls; i++) {
+				IMethodName call = methods[methodSampler.next()];
+				if (!p.calls.contains(call)) {
+					p.calls.add(call);
+				}
+			}
+			p.definition = createDefinition();
+			p.contextOffset = rnd.nextInt(numClassContexts);
+			return p;
+		}
+
+		private DefinitionSite createDefinition() {
+			String typeId = type.getIdentifier();
+			int i = rnd.nextInt(5);
+			switch (rnd.nextInt(4)) {
+			case 0:
+				return DefinitionSites.createDefinitionByConstructor(typeId + ".<init>()V");
+			case 1:
+				return DefinitionSites.createDefinitionByField("Lgen/client/Holder.field" + i + ";" + typeId);
+			case 2:
+				return DefinitionSites.createDefinitionByParam("Lgen/client/Api.use" + i + "(" + typeId + ";)V", 0);
+			default:
+				return DefinitionSites.createDefinitionByReturn("Lgen/Factory.create" + i + "()" + typeId + ";");
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return numRemaining > 0;
+		}
+
+		@Override
+		public ProjectFoldedUsage next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			numRemaining--;
+
+			Pattern p = patterns[patternSampler.next()];
+			Query q = new Query();
+			q.setType(type);
+			String classContext = "Lgen/client/Client" + (p.contextOffset + contextSampler.next()) % numClassContexts;
+			q.setClassContext(VmTypeName.get(classContext));
+			q.setMethodContext(VmMethodName.get(classContext + ".run" + rnd.nextInt(numMethodContexts) + "()V"));
+			q.setDefinition(isNoise() ? createDefinition() : p.definition);
+
+			for (IMethodName call : p.calls) {
+				if (!isNoise()) {
+					q.addCallSite(createCallSite(call));
+				}
+			}
+			if (isNoise() || q.getAllCallsites().isEmpty()) {
+				q.addCallSite(createCallSite(methods[methodSampler.next()]));
+			}
+
+			String project = "project" + projectSampler.next();
+			return new ProjectFoldedUsage(q, project);
+		}
+
+		private boolean isNoise() {
+			return rnd.nextDouble() < noise;
+		}
+
+		private CallSite createCallSite(IMethodName call) {
+			return CallSites.createReceiverCallSite(call);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
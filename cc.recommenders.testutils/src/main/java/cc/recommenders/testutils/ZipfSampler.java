@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.testutils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cc.recommenders.assertions.Asserts;
+
+/**
+ * draws ranks from a Zipf distribution, the probability of rank k (starting at
+ * 0) is proportional to 1 / (k + 1)^exponent.
+ */
+public class ZipfSampler {
+
+	private final double[] cumulative;
+	private final Random rnd;
+
+	public ZipfSampler(int numRanks, double exponent, Random rnd) {
+		Asserts.assertGreaterThan(numRanks, 0);
+		Asserts.assertNotNull(rnd);
+		this.rnd = rnd;
+		cumulative = new double[numRanks];
+		double sum = 0;
+		for (int k = 0; k < numRanks; k++) {
+			sum += 1.0 / Math.pow(k + 1, exponent);
+			cumulative[k] = sum;
+		}
+		for (int k = 0; k < numRanks; k++) {
+			cumulative[k] /= sum;
+		}
+	}
+
+	public int getNumRanks() {
+		return cumulative.length;
+	}
+
+	public double getProbability(int rank) {
+		return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+	}
+
+	public int next() {
+		int pos = Arrays.binarySearch(cumulative, rnd.nextDouble());
+		// not found: -(insertion point) - 1, the insertion point is the rank
+		int rank = pos < 0 ? -pos - 1 : pos + 1;
+		return Math.min(rank, cumulative.length - 1);
+	}
+}
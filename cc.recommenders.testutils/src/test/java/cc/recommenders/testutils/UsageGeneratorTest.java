@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.testutils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cc.recommenders.io.Directory;
+import cc.recommenders.io.ReadingArchive;
+import cc.recommenders.io.UsageReadingArchive;
+import cc.recommenders.names.IMethodName;
+import cc.recommenders.names.ITypeName;
+import cc.recommenders.names.VmTypeName;
+import cc.recommenders.usages.CallSite;
+import cc.recommenders.usages.ProjectFoldedUsage;
+import cc.recommenders.usages.ProjectFoldingIndex;
+import cc.recommenders.usages.Usage;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class UsageGeneratorTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private UsageGenerator sut;
+	private ITypeName type;
+
+	@Before
+	public void setup() {
+		sut = new UsageGenerator().setNumTypes(3).setNumProjects(5).setNumMethods(20);
+		type = sut.getTypes().get(0);
+	}
+
+	@Test
+	public void typesAreCreated() {
+		List<ITypeName> types = sut.getTypes();
+		assertEquals(3, types.size());
+		assertEquals(3, Sets.newHashSet(types).size());
+	}
+
+	@Test
+	public void usagesAreComplete() {
+		for (Usage u : sut.createUsages(type, 100)) {
+			assertEquals(type, u.getType());
+			assertTrue(u.getClassContext().getIdentifier().startsWith("Lgen/client/Client"));
+			assertEquals(u.getClassContext(), u.getMethodContext().getDeclaringType());
+			assertTrue(u.getDefinitionSite() != null);
+			assertFalse(u.getReceiverCallsites().isEmpty());
+			for (CallSite cs : u.getReceiverCallsites()) {
+				assertEquals(type, cs.getMethod().getDeclaringType());
+			}
+		}
+	}
+
+	@Test
+	public void sameSeedResultsInSameUsages() {
+		List<ProjectFoldedUsage> a = sut.createProjectFoldedUsages(type, 50);
+		List<ProjectFoldedUsage> b = sut.createProjectFoldedUsages(type, 50);
+		assertEquals(a, b);
+	}
+
+	@Test
+	public void differentSeedsResultInDifferentUsages() {
+		List<Usage> a = sut.createUsages(type, 50);
+		List<Usage> b = sut.setSeed(1).createUsages(type, 50);
+		assertNotEquals(a, b);
+	}
+
+	@Test
+	public void frequentCallsAreMuchMoreFrequentThanRareCalls() {
+		Map<IMethodName, Integer> counts = Maps.newHashMap();
+		for (Usage u : sut.createUsages(type, 2000)) {
+			for (CallSite cs : u.getReceiverCallsites()) {
+				Integer old = counts.get(cs.getMethod());
+				counts.put(cs.getMethod(), old == null ? 1 : old + 1);
+			}
+		}
+		int max = 0;
+		int min = Integer.MAX_VALUE;
+		for (int count : counts.values()) {
+			max = Math.max(max, count);
+			min = Math.min(min, count);
+		}
+		assertTrue(max > 10 * min);
+	}
+
+	@Test
+	public void usagesAreSpreadOverProjects() {
+		Set<String> projects = Sets.newHashSet();
+		for (ProjectFoldedUsage pfu : sut.createProjectFoldedUsages(type, 500)) {
+			projects.add(pfu.getProjectName());
+		}
+		assertEquals(Sets.newHashSet("project0", "project1", "project2", "project3", "project4"), projects);
+	}
+
+	@Test
+	public void usagesAreGeneratedLazily() {
+		Iterator<ProjectFoldedUsage> it = sut.generate(type, 2);
+		assertTrue(it.hasNext());
+		it.next();
+		it.next();
+		assertFalse(it.hasNext());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void iteratingBeyondTheEndFails() {
+		Iterator<ProjectFoldedUsage> it = sut.generate(type, 0);
+		it.next();
+	}
+
+	@Test
+	public void archivesAndIndexAreWritten() throws IOException {
+		Directory dir = new Directory(tmp.getRoot().getAbsolutePath());
+		ProjectFoldingIndex index = sut.writeArchives(dir, 20);
+
+		assertEquals(index, dir.read("index.json", ProjectFoldingIndex.class));
+		for (ITypeName t : sut.getTypes()) {
+			assertEquals(20, index.getTotalCount(t));
+		}
+
+		ReadingArchive ra = dir.getReadingArchive(fileName(type) + ".zip");
+		int i = 0;
+		for (ProjectFoldedUsage expected : sut.createProjectFoldedUsages(type, 20)) {
+			assertEquals(expected, ra.getNext(ProjectFoldedUsage.class));
+			i++;
+		}
+		assertFalse(ra.hasNext());
+		ra.close();
+		assertEquals(20, i);
+	}
+
+	@Test
+	public void binaryArchivesAreWritten() throws IOException {
+		Directory dir = new Directory(tmp.getRoot().getAbsolutePath());
+		ProjectFoldingIndex index = sut.writeBinaryArchives(dir, 20, true);
+
+		assertEquals(index, dir.read("index.json", ProjectFoldingIndex.class));
+		assertFalse(new File(tmp.getRoot(), fileName(type) + ".zip").exists());
+
+		UsageReadingArchive ra = dir.getUsageReadingArchive(fileName(type) + ".bin");
+		for (ProjectFoldedUsage expected : sut.createProjectFoldedUsages(type, 20)) {
+			assertEquals(expected, ra.getNext());
+		}
+		assertFalse(ra.hasNext());
+		ra.close();
+	}
+
+	@Test
+	public void typesAreIndependent() {
+		List<Usage> a = sut.createUsages(VmTypeName.get("Lgen/pkg0/Type0"), 10);
+		List<Usage> b = new UsageGenerator().setNumTypes(1).setNumProjects(5).setNumMethods(20)
+				.createUsages(type, 10);
+		assertEquals(a, b);
+	}
+
+	private static String fileName(ITypeName type) {
+		return type.toString().replace('/', '_');
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package cc.recommenders.testutils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import cc.recommenders.exceptions.AssertionException;
+
+public class ZipfSamplerTest {
+
+	@Test
+	public void probabilitiesFollowZipfsLaw() {
+		ZipfSampler sut = new ZipfSampler(3, 1.0, new Random(0));
+		double sum = 1 + 1 / 2.0 + 1 / 3.0;
+		assertEquals(1 / sum, sut.getProbability(0), 0.0001);
+		assertEquals(1 / 2.0 / sum, sut.getProbability(1), 0.0001);
+		assertEquals(1 / 3.0 / sum, sut.getProbability(2), 0.0001);
+	}
+
+	@Test
+	public void exponentZeroIsUniform() {
+		ZipfSampler sut = new ZipfSampler(4, 0.0, new Random(0));
+		for (int i = 0; i < 4; i++) {
+			assertEquals(0.25, sut.getProbability(i), 0.0001);
+		}
+	}
+
+	@Test
+	public void samplesFollowTheDistribution() {
+		ZipfSampler sut = new ZipfSampler(10, 1.0, new Random(0));
+		int numSamples = 100000;
+		int[] counts = new int[10];
+		for (int i = 0; i < numSamples; i++) {
+			counts[sut.next()]++;
+		}
+		for (int i = 0; i < 10; i++) {
+			assertEquals(sut.getProbability(i), counts[i] / (double) numSamples, 0.01);
+		}
+		assertTrue(counts[0] > counts[1]);
+		assertTrue(counts[1] > counts[9]);
+	}
+
+	@Test
+	public void singleRank() {
+		ZipfSampler sut = new ZipfSampler(1, 1.0, new Random(0));
+		assertEquals(1, sut.getNumRanks());
+		assertEquals(0, sut.next());
+	}
+
+	@Test(expected = AssertionException.class)
+	public void atLeastOneRankIsRequired() {
+		new ZipfSampler(0, 1.0, new Random(0));
+	}
+}
@@ -10,6 +10,8 @@ package exec.plm12;
 
 import java.io.File;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
 
@@ -29,6 +31,7 @@ import cc.recommenders.mining.calls.QueryOptions;
 import cc.recommenders.mining.calls.clustering.FeatureWeighter;
 import cc.recommenders.mining.calls.pbn.PBNModelBuilder;
 import cc.recommenders.mining.features.FeatureExtractor;
+import cc.recommenders.mining.features.RareFeatureDropper;
 import cc.recommenders.mining.features.UsageFeatureExtractor;
 import cc.recommenders.mining.features.UsageFeatureWeighter;
 import cc.recommenders.usages.Query;
@@ -42,6 +45,7 @@ import com.codetrails.data.ObjectUsageValidator;
 import com.codetrails.data.UsageConverter;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
@@ -49,8 +53,12 @@ import com.google.inject.name.Names;
 
 public class Module extends AbstractModule {
 
+	private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
 	private final String rootFolder;
 	private final String sizeInMegaBytes;
+	// shared by all miners and never shut down
+	private final ExecutorService featureCountingExecutor = newFeatureCountingExecutor(NUM_THREADS);
 
 	public Module(String rootFolder, String sizeInMegaBytes) {
 		this.rootFolder = rootFolder;
@@ -91,6 +99,15 @@ public class Module extends AbstractModule {
 		bind(FeatureExtractor.class).to(UsageFeatureExtractor.class).in(Scopes.SINGLETON);
 	}
 
+	/**
+	 * the threads are daemons, so the executor does not keep the process alive
+	 * after the experiment finished
+	 */
+	static ExecutorService newFeatureCountingExecutor(int numThreads) {
+		return Executors.newFixedThreadPool(numThreads,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("feature-counting-%d").build());
+	}
+
 	private void bindInstances(Map<String, Directory> dirs) {
 		for (String name : dirs.keySet()) {
 			Directory dir = dirs.get(name);
@@ -108,6 +125,13 @@ public class Module extends AbstractModule {
 		return new UsageFeatureExtractor(options);
 	}
 
+	@Provides
+	public RareFeatureDropper<UsageFeature> provideRareFeatureDropper() {
+		RareFeatureDropper<UsageFeature> dropper = new RareFeatureDropper<UsageFeature>();
+		dropper.setExecutor(featureCountingExecutor, NUM_THREADS);
+		return dropper;
+	}
+
 	@Provides
 	public ModelBuilder<UsageFeature, BayesianNetwork> provideModelBuilder() {
 		return new PBNModelBuilder();
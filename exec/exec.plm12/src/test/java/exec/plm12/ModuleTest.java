@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2011-2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     Sebastian Proksch - initial API and implementation
+ */
+package exec.plm12;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+
+public class ModuleTest {
+
+	@Test
+	public void featureCountingThreadsAreDaemons() throws Exception {
+		ExecutorService executor = Module.newFeatureCountingExecutor(2);
+		try {
+			boolean isDaemon = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return Thread.currentThread().isDaemon();
+				}
+			}).get();
+			assertTrue(isDaemon);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
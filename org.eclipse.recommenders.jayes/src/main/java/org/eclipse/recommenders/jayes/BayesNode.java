@@ -11,7 +11,6 @@
 package org.eclipse.recommenders.jayes;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
@@ -134,8 +133,10 @@ public class BayesNode {
     }
 
     public void addOutcomes(String... names) {
-        if (!Collections.disjoint(outcomesList, Arrays.asList(names))) {
-            throw new IllegalArgumentException("Outcome already exists");
+        for (String name : names) {
+            if (outcomeIndices.containsKey(name)) {
+                throw new IllegalArgumentException("Outcome already exists");
+            }
         }
         for (String name : names) {
             outcomeIndices.put(name, outcomes);
@@ -158,6 +159,10 @@ public class BayesNode {
         }
     }
 
+    public boolean hasOutcome(final String name) {
+        return outcomeIndices.containsKey(name);
+    }
+
     public String getOutcomeName(final int index) {
         return outcomeIndices.getKey(index);
     }
@@ -32,6 +32,8 @@ public abstract class AbstractFactor implements Cloneable {
     protected int[] dimensions = new int[0];
     protected int[] dimensionIDs = new int[0];
     protected IArrayWrapper values = new DoubleArrayWrapper(0.0);
+    // chosen by the type of the value array
+    FactorKernel kernel = FactorKernel.DOUBLE;
     protected int[] selections = new int[0];
     protected Cut cut = new Cut(this);
     private boolean isCutValid = false;
@@ -43,6 +45,7 @@ public abstract class AbstractFactor implements Cloneable {
 
     public void setValues(IArrayWrapper values) {
         this.values = values;
+        this.kernel = FactorKernel.forValues(values);
         assert (MathUtils.product(dimensions) == values.length());
     }
 
@@ -164,11 +167,8 @@ public abstract class AbstractFactor implements Cloneable {
 
     private void multiplyPrepared(Cut cut, int offset, IArrayWrapper compatibleValues, int[] positions) {
         if (cut.getSubCut() == null) {
-            int last = cut.getEnd() + offset;
-            for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
-                int j = getRealPosition(i);
-                values.mulAssign(j, compatibleValues, positions[j]);
-            }
+            multiplyRange(cut.getStart() + offset, cut.getEnd() + offset, cut.getStepSize(), compatibleValues,
+                    positions);
         } else {
             Cut c = cut.getSubCut();
             for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
@@ -177,6 +177,16 @@ public abstract class AbstractFactor implements Cloneable {
         }
     }
 
+    /**
+     * multiplies the values at the virtual positions start, start + step, ... below end
+     */
+    protected void multiplyRange(int start, int end, int step, IArrayWrapper compatibleValues, int[] positions) {
+        for (int i = start; i < end; i += step) {
+            int j = getRealPosition(i);
+            values.mulAssign(j, compatibleValues, positions[j]);
+        }
+    }
+
     public void sumPrepared(IArrayWrapper compatibleFactorValues, int[] preparedOperation) {
         validateCut();
 
@@ -191,11 +201,8 @@ public abstract class AbstractFactor implements Cloneable {
 
     private void sumPrepared(Cut cut, int offset, IArrayWrapper compatibleFactorValues, int[] positions) {
         if (cut.getSubCut() == null) {
-            int last = cut.getEnd() + offset;
-            for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
-                int j = getRealPosition(i);
-                compatibleFactorValues.addAssign(positions[j], values, j);
-            }
+            sumRange(cut.getStart() + offset, cut.getEnd() + offset, cut.getStepSize(), compatibleFactorValues,
+                    positions);
         } else {
             Cut c = cut.getSubCut();
             for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
@@ -204,6 +211,16 @@ public abstract class AbstractFactor implements Cloneable {
         }
     }
 
+    /**
+     * sums the values at the virtual positions start, start + step, ... below end into the compatible factor
+     */
+    protected void sumRange(int start, int end, int step, IArrayWrapper compatibleFactorValues, int[] positions) {
+        for (int i = start; i < end; i += step) {
+            int j = getRealPosition(i);
+            compatibleFactorValues.addAssign(positions[j], values, j);
+        }
+    }
+
     private void sumPreparedLog(IArrayWrapper compatibleFactorValues, int[] positions) {
         double max = findMax(cut, 0, 0);
         sumPreparedLog(cut, 0, compatibleFactorValues, positions, max);
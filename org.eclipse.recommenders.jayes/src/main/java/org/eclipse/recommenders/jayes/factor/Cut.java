@@ -37,6 +37,8 @@ public class Cut implements Cloneable {
     // the subtree(s); only one because of the inherent regularities of the
     // decision tree
     private Cut subCut;
+    // kept across initializations, so that re-cutting after a change of selections does not allocate
+    private Cut reusableSubCut;
 
     public Cut(AbstractFactor factor) {
         this.factor = factor;
@@ -62,7 +64,9 @@ public class Cut implements Cloneable {
     @Override
     public Cut clone() {
         try {
-            return (Cut) super.clone();
+            Cut clone = (Cut) super.clone();
+            clone.reusableSubCut = null;
+            return clone;
         } catch (CloneNotSupportedException e) {
             e.printStackTrace();
             return null;
@@ -103,8 +107,11 @@ public class Cut implements Cloneable {
 
     private void createSubcut() {
         if (needsSplit()) {
-            subCut = null; // avoid circularity in object graph
-            subCut = clone();
+            if (reusableSubCut == null) {
+                reusableSubCut = new Cut(factor);
+            }
+            subCut = reusableSubCut;
+            copyPositionTo(subCut);
             subCut.descendUnselectedDimension();
             subCut.length = subtreeStepsize;
             subCut.rootCut(); // no leaf cut
@@ -112,6 +119,16 @@ public class Cut implements Cloneable {
         }
     }
 
+    private void copyPositionTo(Cut other) {
+        other.start = start;
+        other.stepSize = stepSize;
+        other.length = length;
+        other.subtreeStepsize = subtreeStepsize;
+        other.rootDimension = rootDimension;
+        other.leafDimension = leafDimension;
+        other.subCut = null;
+    }
+
     /**
      * the Cut needs to further split if and only if there is an additional
      * selection between root and leaf
@@ -23,6 +23,16 @@ public class DenseFactor extends AbstractFactor {
         return virtualPosition;
     }
 
+    @Override
+    protected void multiplyRange(int start, int end, int step, IArrayWrapper compatibleValues, int[] positions) {
+        kernel.multiply(values, start, end, step, 0, compatibleValues, positions);
+    }
+
+    @Override
+    protected void sumRange(int start, int end, int step, IArrayWrapper compatibleFactorValues, int[] positions) {
+        kernel.sum(values, start, end, step, 0, compatibleFactorValues, positions);
+    }
+
     /**
      * prepares multiplication by precomputing the corresponding array positions in the compatible Factor
      * 
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.factor;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * the inner loops of prepared multiplications and summations for one type of value array. A factor selects its kernel
+ * when its values are set, the kernel works on the primitive arrays directly instead of calling the
+ * {@link IArrayWrapper} for every value. The results are the same as with the wrapper operations, including the
+ * rounding to float.
+ *
+ * The loops visit the positions start, start + step, ... below end, a value at position i is stored at i + shift.
+ */
+abstract class FactorKernel {
+
+    static final FactorKernel DOUBLE = new DoubleKernel();
+    static final FactorKernel FLOAT = new FloatKernel();
+    static final FactorKernel GENERIC = new GenericKernel();
+
+    static FactorKernel forValues(IArrayWrapper values) {
+        if (values instanceof DoubleArrayWrapper) {
+            return DOUBLE;
+        }
+        if (values instanceof FloatArrayWrapper) {
+            return FLOAT;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * values[i + shift] *= factor[positions[i + shift]]
+     */
+    abstract void multiply(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper factor,
+            int[] positions);
+
+    /**
+     * target[positions[i + shift]] += values[i + shift]
+     */
+    abstract void sum(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper target,
+            int[] positions);
+
+    private static final class DoubleKernel extends FactorKernel {
+
+        @Override
+        void multiply(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper factor,
+                int[] positions) {
+            final double[] v = values.toDoubleArray();
+            if (factor instanceof DoubleArrayWrapper) {
+                final double[] f = factor.toDoubleArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    v[i] *= f[positions[i]];
+                }
+            } else if (factor instanceof FloatArrayWrapper) {
+                final float[] f = factor.toFloatArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    v[i] *= f[positions[i]];
+                }
+            } else {
+                GENERIC.multiply(values, start, end, step, shift, factor, positions);
+            }
+        }
+
+        @Override
+        void sum(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper target,
+                int[] positions) {
+            final double[] v = values.toDoubleArray();
+            if (target instanceof DoubleArrayWrapper) {
+                final double[] t = target.toDoubleArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    t[positions[i]] += v[i];
+                }
+            } else if (target instanceof FloatArrayWrapper) {
+                final float[] t = target.toFloatArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    t[positions[i]] += (float) v[i];
+                }
+            } else {
+                GENERIC.sum(values, start, end, step, shift, target, positions);
+            }
+        }
+    }
+
+    private static final class FloatKernel extends FactorKernel {
+
+        @Override
+        void multiply(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper factor,
+                int[] positions) {
+            final float[] v = values.toFloatArray();
+            if (factor instanceof FloatArrayWrapper) {
+                final float[] f = factor.toFloatArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    v[i] *= f[positions[i]];
+                }
+            } else if (factor instanceof DoubleArrayWrapper) {
+                final double[] f = factor.toDoubleArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    v[i] *= (float) f[positions[i]];
+                }
+            } else {
+                GENERIC.multiply(values, start, end, step, shift, factor, positions);
+            }
+        }
+
+        @Override
+        void sum(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper target,
+                int[] positions) {
+            final float[] v = values.toFloatArray();
+            if (target instanceof DoubleArrayWrapper) {
+                final double[] t = target.toDoubleArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    t[positions[i]] += v[i];
+                }
+            } else if (target instanceof FloatArrayWrapper) {
+                final float[] t = target.toFloatArray();
+                for (int i = start + shift; i < end + shift; i += step) {
+                    t[positions[i]] += v[i];
+                }
+            } else {
+                GENERIC.sum(values, start, end, step, shift, target, positions);
+            }
+        }
+    }
+
+    private static final class GenericKernel extends FactorKernel {
+
+        @Override
+        void multiply(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper factor,
+                int[] positions) {
+            for (int i = start + shift; i < end + shift; i += step) {
+                values.mulAssign(i, factor, positions[i]);
+            }
+        }
+
+        @Override
+        void sum(IArrayWrapper values, int start, int end, int step, int shift, IArrayWrapper target,
+                int[] positions) {
+            for (int i = start + shift; i < end + shift; i += step) {
+                target.addAssign(positions[i], values, i);
+            }
+        }
+    }
+}
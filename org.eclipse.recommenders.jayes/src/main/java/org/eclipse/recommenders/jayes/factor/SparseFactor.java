@@ -355,6 +355,36 @@ public class SparseFactor extends AbstractFactor {
 
     private DivisionCache divCache;
 
+    /*
+     * within a block, the real positions are the virtual positions shifted by the block pointer
+     */
+    @Override
+    protected void multiplyRange(int start, int end, int step, IArrayWrapper compatibleValues, int[] positions) {
+        for (int i = start; i < end;) {
+            int block = i / blockSize;
+            int blockEnd = Math.min(end, (block + 1) * blockSize);
+            kernel.multiply(values, i, blockEnd, step, relativeBlockPointers[block], compatibleValues, positions);
+            i = firstPositionFrom(blockEnd, i, step);
+        }
+    }
+
+    @Override
+    protected void sumRange(int start, int end, int step, IArrayWrapper compatibleFactorValues, int[] positions) {
+        for (int i = start; i < end;) {
+            int block = i / blockSize;
+            int blockEnd = Math.min(end, (block + 1) * blockSize);
+            kernel.sum(values, i, blockEnd, step, relativeBlockPointers[block], compatibleFactorValues, positions);
+            i = firstPositionFrom(blockEnd, i, step);
+        }
+    }
+
+    /**
+     * @return the smallest position of the sequence i, i + step, ... that is not below limit
+     */
+    private static int firstPositionFrom(int limit, int i, int step) {
+        return i + (limit - i + step - 1) / step * step;
+    }
+
     @Override
     protected int getRealPosition(int virtualPosition) {
         return relativeBlockPointers[divCache.apply(virtualPosition)] + virtualPosition;
@@ -379,7 +409,12 @@ public class SparseFactor extends AbstractFactor {
 
     @Override
     public SparseFactor clone() {
-        return (SparseFactor) super.clone();
+        SparseFactor clone = (SparseFactor) super.clone();
+        // the division cache is stateful and must not be shared between clones
+        if (divCache != null) {
+            clone.divCache = new DivisionCache(blockSize);
+        }
+        return clone;
     }
 
     /**
@@ -10,8 +10,11 @@
  */
 package org.eclipse.recommenders.jayes.inference;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
@@ -19,7 +22,14 @@ import org.eclipse.recommenders.jayes.factor.FactorFactory;
 
 public abstract class AbstractInferer implements IBayesInferer {
 
-    protected Map<BayesNode, String> evidence = new HashMap<BayesNode, String>();
+    protected static final int UNOBSERVED = -1;
+
+    // the evidence as outcome indices, indexed by node id, UNOBSERVED for nodes without evidence. Only available after
+    // the network is set, from then on the evidence by name is derived from it when it is requested
+    protected int[] evidenceOutcomes;
+    private Map<BayesNode, String> evidence = new HashMap<BayesNode, String>();
+    private boolean isEvidenceByNameValid = true;
+    protected BayesNode[] nodes;
 
     protected double[][] beliefs;
     protected boolean beliefsValid;
@@ -37,7 +47,24 @@ public abstract class AbstractInferer implements IBayesInferer {
 
     @Override
     public void addEvidence(final BayesNode node, final String outcome) {
-        evidence.put(node, outcome);
+        final int outcomeIndex = node.getOutcomeIndex(outcome);
+        if (isEvidenceByNameValid) {
+            evidence.put(node, outcome);
+        }
+        if (evidenceOutcomes != null) {
+            evidenceOutcomes[node.getId()] = outcomeIndex;
+        }
+        beliefsValid = false;
+    }
+
+    @Override
+    public void addEvidence(final int nodeId, final int outcomeIndex) {
+        final BayesNode node = nodes[nodeId];
+        if (outcomeIndex < 0 || outcomeIndex >= node.getOutcomeCount()) {
+            throw new IllegalArgumentException("no outcome " + outcomeIndex + " in node " + node.getName());
+        }
+        evidenceOutcomes[nodeId] = outcomeIndex;
+        isEvidenceByNameValid = false;
         beliefsValid = false;
     }
 
@@ -52,22 +79,85 @@ public abstract class AbstractInferer implements IBayesInferer {
 
     @Override
     public void setNetwork(final BayesNet bayesNet) {
+        // the evidence by name is kept, so it has to be derived from the old network
+        validateEvidenceByName();
         beliefs = new double[bayesNet.getNodes().size()][];
         for (final BayesNode n : bayesNet.getNodes()) {
             beliefs[n.getId()] = new double[n.getOutcomeCount()];
         }
+        nodes = bayesNet.getNodes().toArray(new BayesNode[0]);
+        evidenceOutcomes = new int[nodes.length];
+        readEvidenceOutcomes();
         this.factory.setReferenceNetwork(bayesNet);
     }
 
     @Override
     public void setEvidence(final Map<BayesNode, String> evidence) {
-        this.evidence = evidence;
+        this.evidence = new HashMap<BayesNode, String>(evidence);
+        isEvidenceByNameValid = true;
+        if (evidenceOutcomes != null) {
+            readEvidenceOutcomes();
+        }
+        beliefsValid = false;
+    }
+
+    @Override
+    public void clearEvidence() {
+        evidence.clear();
+        isEvidenceByNameValid = true;
+        if (evidenceOutcomes != null) {
+            Arrays.fill(evidenceOutcomes, UNOBSERVED);
+        }
+        beliefsValid = false;
+    }
+
+    /**
+     * replaces the evidence by the given outcome indices, for inferers that restore a state they saved before
+     */
+    protected void restoreEvidenceOutcomes(final int[] outcomes) {
+        System.arraycopy(outcomes, 0, evidenceOutcomes, 0, evidenceOutcomes.length);
+        isEvidenceByNameValid = false;
         beliefsValid = false;
     }
 
+    private void readEvidenceOutcomes() {
+        Arrays.fill(evidenceOutcomes, UNOBSERVED);
+        for (final Entry<BayesNode, String> e : evidence.entrySet()) {
+            evidenceOutcomes[e.getKey().getId()] = e.getKey().getOutcomeIndex(e.getValue());
+        }
+    }
+
+    /**
+     * @return a read-only view, evidence can only be changed by {@link #addEvidence}, {@link #setEvidence} and
+     *         {@link #clearEvidence}. Evidence added by outcome index is only visible in views requested afterwards
+     */
     @Override
     public Map<BayesNode, String> getEvidence() {
-        return evidence;
+        validateEvidenceByName();
+        return Collections.unmodifiableMap(evidence);
+    }
+
+    private void validateEvidenceByName() {
+        if (isEvidenceByNameValid) {
+            return;
+        }
+        evidence.clear();
+        for (int nodeId = 0; nodeId < evidenceOutcomes.length; nodeId++) {
+            if (evidenceOutcomes[nodeId] != UNOBSERVED) {
+                evidence.put(nodes[nodeId], nodes[nodeId].getOutcomeName(evidenceOutcomes[nodeId]));
+            }
+        }
+        isEvidenceByNameValid = true;
+    }
+
+    /**
+     * shares the nodes with the copy and starts it without evidence, for inferers that copy their network instead of
+     * setting it
+     */
+    protected void copyEvidenceStructureTo(final AbstractInferer copy) {
+        copy.nodes = nodes;
+        copy.evidenceOutcomes = new int[evidenceOutcomes.length];
+        Arrays.fill(copy.evidenceOutcomes, UNOBSERVED);
     }
 
     protected abstract void updateBeliefs();
@@ -23,6 +23,17 @@ public interface IBayesInferer {
 
     void addEvidence(BayesNode node, String outcome);
 
+    /**
+     * the same as {@link #addEvidence(BayesNode, String)}, but without looking up the outcome by its name. Only
+     * available after the network is set.
+     */
+    void addEvidence(int nodeId, int outcomeIndex);
+
+    /**
+     * removes all evidence, like setting an empty evidence map, but reuses the structures holding the evidence
+     */
+    void clearEvidence();
+
     Map<BayesNode, String> getEvidence();
 
     double[] getBeliefs(BayesNode node);
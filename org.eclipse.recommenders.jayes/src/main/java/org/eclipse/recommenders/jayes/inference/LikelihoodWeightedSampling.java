@@ -10,60 +10,295 @@
  */
 package org.eclipse.recommenders.jayes.inference;
 
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
-import org.eclipse.recommenders.jayes.sampling.BasicSampler;
 import org.eclipse.recommenders.jayes.util.MathUtils;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
 
+/**
+ * approximate inference by likelihood weighting. Every sample draws the unobserved nodes in topological order from
+ * their conditional distributions and is weighted with the likelihood of the evidence. The conditional probability
+ * tables are turned into cumulative rows when the network is set, so drawing a sample only works on outcome indices.
+ *
+ * The samples can be drawn by several threads of an executor, each of them with its own random generator seeded from
+ * the seed of this inferer, so the beliefs only depend on the seed and the number of threads. With a time budget,
+ * sampling stops as soon as the budget is used up, even if fewer samples than the sample count were drawn. This bounds
+ * the time to compute beliefs in networks that are too large for exact inference.
+ */
 public class LikelihoodWeightedSampling extends AbstractInferer {
 
+    // the number of samples each thread draws between two checks of the time budget
+    private static final int BATCH_SIZE = 64;
+
     private int sampleCount = 200;
-    private BasicSampler sampler = new BasicSampler();
+    private ExecutorService executor = null;
+    private int numThreads = 1;
+    private long timeBudgetNanos = 0;
+    private final Random seeds = new Random();
+    private int drawnSampleCount;
+
+    private int[] topologicalOrder;
+    private int[][] parents;
+    // the offset of the row for a parent configuration is the sum of the parent outcomes multiplied with these strides
+    private int[][] parentStrides;
+    private double[][] probabilities;
+    private double[][] cumulativeProbabilities;
 
     @Override
     public void setNetwork(BayesNet bn) {
         super.setNetwork(bn);
-        sampler.setNetwork(bn);
+        final int numNodes = bn.getNodes().size();
+        parents = new int[numNodes][];
+        parentStrides = new int[numNodes][];
+        probabilities = new double[numNodes][];
+        cumulativeProbabilities = new double[numNodes][];
+        for (BayesNode node : bn.getNodes()) {
+            final int id = node.getId();
+            final List<BayesNode> nodeParents = node.getParents();
+            parents[id] = new int[nodeParents.size()];
+            parentStrides[id] = new int[nodeParents.size()];
+            int stride = node.getOutcomeCount();
+            for (int i = nodeParents.size() - 1; i >= 0; i--) {
+                parents[id][i] = nodeParents.get(i).getId();
+                parentStrides[id][i] = stride;
+                stride *= nodeParents.get(i).getOutcomeCount();
+            }
+            probabilities[id] = node.getProbabilities();
+            cumulativeProbabilities[id] = accumulateRows(probabilities[id], node.getOutcomeCount());
+        }
+        topologicalOrder = topsort(bn);
+    }
 
+    private double[] accumulateRows(double[] table, int rowLength) {
+        final double[] cumulative = table.clone();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (i % rowLength != 0) {
+                cumulative[i] += cumulative[i - 1];
+            }
+        }
+        return cumulative;
+    }
+
+    private int[] topsort(BayesNet bn) {
+        final int numNodes = bn.getNodes().size();
+        final int[] numUnsortedParents = new int[numNodes];
+        final Deque<BayesNode> sortable = new ArrayDeque<BayesNode>();
+        for (BayesNode node : bn.getNodes()) {
+            numUnsortedParents[node.getId()] = node.getParents().size();
+            if (node.getParents().isEmpty()) {
+                sortable.add(node);
+            }
+        }
+        final int[] order = new int[numNodes];
+        int numSorted = 0;
+        while (!sortable.isEmpty()) {
+            final BayesNode node = sortable.poll();
+            order[numSorted++] = node.getId();
+            for (BayesNode child : node.getChildren()) {
+                if (--numUnsortedParents[child.getId()] == 0) {
+                    sortable.add(child);
+                }
+            }
+        }
+        return order;
     }
 
     @Override
     protected void updateBeliefs() {
-        sampler.setEvidence(evidence);
-        for (int i = 0; i < sampleCount; i++) {
-            Map<BayesNode, String> sample = sampler.sample();
-            double weight = computeEvidenceProbability(sample);
+        final long deadline = System.nanoTime() + timeBudgetNanos;
+        final Sampler[] samplers = new Sampler[Math.min(numThreads, sampleCount)];
+        for (int i = 0; i < samplers.length; i++) {
+            final int share = sampleCount / samplers.length + (i < sampleCount % samplers.length ? 1 : 0);
+            samplers[i] = new Sampler(share, seeds.nextLong(), deadline);
+        }
+        runAll(samplers);
 
-            for (BayesNode e : sample.keySet()) {
-                beliefs[e.getId()][e.getOutcomeIndex(sample.get(e))] += weight;
+        drawnSampleCount = 0;
+        for (double[] belief : beliefs) {
+            Arrays.fill(belief, 0);
+        }
+        for (Sampler sampler : samplers) {
+            drawnSampleCount += sampler.numDrawn;
+            for (int node = 0; node < beliefs.length; node++) {
+                for (int outcome = 0; outcome < beliefs[node].length; outcome++) {
+                    beliefs[node][outcome] += sampler.weights[node][outcome];
+                }
             }
         }
-
         normalizeBeliefs();
-
     }
 
-    private void normalizeBeliefs() {
-        for (int i = 0; i < beliefs.length; i++)
-            beliefs[i] = MathUtils.normalize(beliefs[i]);
+    /*
+     * the first sampler runs in the calling thread, the others on the executor
+     */
+    private void runAll(final Sampler[] samplers) {
+        final List<Future<?>> futures = new ArrayList<Future<?>>(samplers.length - 1);
+        try {
+            for (int i = 1; i < samplers.length; i++) {
+                futures.add(executor.submit(samplers[i]));
+            }
+            samplers[0].run();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while sampling", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("sampling failed", e.getCause());
+        } finally {
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
     }
 
-    private double computeEvidenceProbability(Map<BayesNode, String> sample) {
-        double factor = 1.0;
-        for (BayesNode n : evidence.keySet()) {
-            factor *= n.marginalize(sample)[n.getOutcomeIndex(evidence.get(n))];
+    private void normalizeBeliefs() {
+        try {
+            for (int i = 0; i < beliefs.length; i++) {
+                beliefs[i] = MathUtils.normalize(beliefs[i]);
+            }
+        } catch (IllegalArgumentException exception) {
+            throw new NumericalInstabilityException("All samples are inconsistent with the evidence: " + getEvidence(),
+                    exception);
         }
-        return factor;
     }
 
     public void setSampleCount(int sampleCount) {
+        if (sampleCount <= 0) {
+            throw new IllegalArgumentException("sample count has to be positive: " + sampleCount);
+        }
         this.sampleCount = sampleCount;
     }
 
+    /**
+     * lets numThreads threads draw samples in parallel, the calling thread is one of them and the others run on the
+     * executor. The executor is not shut down by this inferer, so it can be reused. Without an executor, all samples
+     * are drawn by the calling thread.
+     */
+    public void setExecutor(ExecutorService executor, int numThreads) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("number of threads has to be positive: " + numThreads);
+        }
+        this.executor = executor;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * limits the time for drawing the samples, a budget of 0 (the default) means no limit. At least one batch of
+     * samples is drawn by each thread.
+     */
+    public void setTimeBudget(long budget, TimeUnit unit) {
+        this.timeBudgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * @return the number of samples the current beliefs are based on, which is lower than the sample count if the
+     *         time budget was used up
+     */
+    public int getDrawnSampleCount() {
+        return drawnSampleCount;
+    }
+
     public void seed(long seed) {
-        sampler.seed(seed);
+        seeds.setSeed(seed);
+    }
+
+    /**
+     * draws samples with its own random generator and sums up their weights per outcome, all other state is shared
+     * and only read
+     */
+    private final class Sampler implements Runnable {
+
+        private final int numSamples;
+        private final Random random;
+        private final long deadline;
+        private final int[] sample;
+        private final double[][] weights;
+        private int numDrawn;
+
+        Sampler(int numSamples, long seed, long deadline) {
+            this.numSamples = numSamples;
+            this.random = new Random(seed);
+            this.deadline = deadline;
+            sample = new int[beliefs.length];
+            weights = new double[beliefs.length][];
+            for (int i = 0; i < beliefs.length; i++) {
+                weights[i] = new double[beliefs[i].length];
+            }
+        }
+
+        @Override
+        public void run() {
+            while (numDrawn < numSamples) {
+                final int batchEnd = Math.min(numSamples, numDrawn + BATCH_SIZE);
+                for (; numDrawn < batchEnd; numDrawn++) {
+                    drawSample();
+                }
+                if (timeBudgetNanos > 0 && System.nanoTime() - deadline > 0) {
+                    return;
+                }
+            }
+        }
+
+        private void drawSample() {
+            double weight = 1;
+            for (final int node : topologicalOrder) {
+                final int row = getRowOffset(node);
+                final int observed = evidenceOutcomes[node];
+                if (observed == UNOBSERVED) {
+                    sample[node] = drawOutcome(node, row);
+                } else {
+                    sample[node] = observed;
+                    weight *= probabilities[node][row + observed];
+                }
+            }
+            for (int node = 0; node < sample.length; node++) {
+                weights[node][sample[node]] += weight;
+            }
+        }
+
+        private int getRowOffset(final int node) {
+            int offset = 0;
+            for (int i = 0; i < parents[node].length; i++) {
+                offset += sample[parents[node][i]] * parentStrides[node][i];
+            }
+            return offset;
+        }
+
+        /*
+         * binary search for the first outcome whose cumulative probability exceeds a random fraction of the row sum
+         */
+        private int drawOutcome(final int node, final int row) {
+            final double[] cumulative = cumulativeProbabilities[node];
+            final int numOutcomes = weights[node].length;
+            final double threshold = random.nextDouble() * cumulative[row + numOutcomes - 1];
+            int low = 0;
+            int high = numOutcomes - 1;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (cumulative[row + mid] > threshold) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
     }
 
 }
@@ -54,7 +54,7 @@ public class RejectionSampling extends AbstractInferer {
     }
 
     private boolean isConsistenWithEvidence(Map<BayesNode, String> sample) {
-        for (Entry<BayesNode, String> e : evidence.entrySet()) {
+        for (Entry<BayesNode, String> e : getEvidence().entrySet()) {
             boolean sampleMatchesEvidence = e.getValue().equals(sample.get(e.getKey()));
             if (!sampleMatchesEvidence) {
                 return false;
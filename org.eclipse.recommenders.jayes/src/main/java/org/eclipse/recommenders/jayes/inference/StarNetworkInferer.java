@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.util.MathUtils;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
+
+/**
+ * exact inference for networks in which one node, the center, is the only parent of all other nodes. The posterior of
+ * the center is its prior multiplied with the likelihoods of the evidence, the beliefs of every other node follow from
+ * its conditional probability table and that posterior. Beliefs are only computed for the nodes that are requested,
+ * each of them takes one pass over its table. No junction tree is needed.
+ *
+ * All computations use double precision, the floating point type of the {@link #getFactory() factory} is ignored.
+ */
+public class StarNetworkInferer extends AbstractInferer {
+
+    private BayesNode center;
+    // the conditional probability tables, indexed by [centerOutcome * outcomeCount + outcome]
+    private double[][] probabilities;
+    private double[] posterior;
+
+    private boolean[] isBeliefValid;
+
+    /**
+     * @return true, if one node is the only parent of all other nodes
+     */
+    public static boolean isStar(final BayesNet net) {
+        return findCenter(net) != null;
+    }
+
+    private static BayesNode findCenter(final BayesNet net) {
+        BayesNode center = null;
+        for (final BayesNode node : net.getNodes()) {
+            if (node.getParents().isEmpty()) {
+                if (center != null) {
+                    return null;
+                }
+                center = node;
+            }
+        }
+        if (center == null) {
+            return null;
+        }
+        for (final BayesNode node : net.getNodes()) {
+            final List<BayesNode> parents = node.getParents();
+            if (node != center && (parents.size() != 1 || parents.get(0) != center)) {
+                return null;
+            }
+        }
+        return center;
+    }
+
+    @Override
+    public void setNetwork(final BayesNet net) {
+        center = findCenter(net);
+        if (center == null) {
+            throw new IllegalArgumentException("not a star network: " + net.getName());
+        }
+        super.setNetwork(net);
+        final int numNodes = net.getNodes().size();
+        probabilities = new double[numNodes][];
+        for (final BayesNode node : net.getNodes()) {
+            probabilities[node.getId()] = node.getProbabilities();
+        }
+        posterior = new double[center.getOutcomeCount()];
+        isBeliefValid = new boolean[numNodes];
+    }
+
+    @Override
+    public double[] getBeliefs(final BayesNode node) {
+        if (!beliefsValid) {
+            beliefsValid = true;
+            updateBeliefs();
+        }
+        final int nodeId = node.getId();
+        if (!isBeliefValid[nodeId]) {
+            isBeliefValid[nodeId] = true;
+            if (evidenceOutcomes[nodeId] != UNOBSERVED) {
+                Arrays.fill(beliefs[nodeId], 0);
+                beliefs[nodeId][evidenceOutcomes[nodeId]] = 1;
+            } else if (node == center) {
+                System.arraycopy(posterior, 0, beliefs[nodeId], 0, posterior.length);
+            } else {
+                computeBelief(nodeId);
+            }
+        }
+        return beliefs[nodeId];
+    }
+
+    private void computeBelief(final int nodeId) {
+        final double[] belief = beliefs[nodeId];
+        final double[] table = probabilities[nodeId];
+        final int numOutcomes = belief.length;
+        Arrays.fill(belief, 0);
+        for (int c = 0; c < posterior.length; c++) {
+            final double weight = posterior[c];
+            if (weight != 0) {
+                final int offset = c * numOutcomes;
+                for (int o = 0; o < numOutcomes; o++) {
+                    belief[o] += weight * table[offset + o];
+                }
+            }
+        }
+        // the rows of the tables do not need to sum up to exactly one
+        normalize(belief);
+    }
+
+    @Override
+    protected void updateBeliefs() {
+        Arrays.fill(isBeliefValid, false);
+
+        final int centerId = center.getId();
+        if (evidenceOutcomes[centerId] != UNOBSERVED) {
+            // the other evidence cannot change an observed center
+            Arrays.fill(posterior, 0);
+            posterior[evidenceOutcomes[centerId]] = 1;
+            return;
+        }
+        System.arraycopy(probabilities[centerId], 0, posterior, 0, posterior.length);
+        normalize(posterior);
+        for (int nodeId = 0; nodeId < evidenceOutcomes.length; nodeId++) {
+            final int outcome = evidenceOutcomes[nodeId];
+            if (outcome == UNOBSERVED) {
+                continue;
+            }
+            final double[] table = probabilities[nodeId];
+            final int numOutcomes = beliefs[nodeId].length;
+            for (int c = 0; c < posterior.length; c++) {
+                posterior[c] *= table[c * numOutcomes + outcome];
+            }
+            // normalizing after every observation keeps the product from underflowing
+            normalize(posterior);
+        }
+    }
+
+    private void normalize(final double[] vector) {
+        try {
+            MathUtils.normalize(vector);
+        } catch (final IllegalArgumentException exception) {
+            throw new NumericalInstabilityException("Numerical instability detected for evidence: " + getEvidence(),
+                    exception);
+        }
+    }
+
+    /**
+     * @return an inferer for the same network, which shares the probability tables with this one but has its own
+     *         evidence and beliefs
+     */
+    public StarNetworkInferer copy() {
+        final StarNetworkInferer copy = new StarNetworkInferer();
+        copy.factory = factory;
+        copy.center = center;
+        copy.probabilities = probabilities;
+        copy.posterior = new double[posterior.length];
+        copy.beliefs = new double[beliefs.length][];
+        for (int i = 0; i < beliefs.length; i++) {
+            copy.beliefs[i] = new double[beliefs[i].length];
+        }
+        copy.isBeliefValid = new boolean[isBeliefValid.length];
+        copyEvidenceStructureTo(copy);
+        return copy;
+    }
+}
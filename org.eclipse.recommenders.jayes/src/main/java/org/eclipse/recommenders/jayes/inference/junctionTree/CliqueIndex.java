@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.junctionTree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the cliques of a triangulated graph together with an index from every variable to the cliques that contain it, in
+ * the order in which the cliques were added
+ */
+class CliqueIndex {
+
+    private final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+    private final List<List<Integer>> cliquesByVariable = new ArrayList<List<Integer>>();
+    private final boolean[] isMarked;
+
+    CliqueIndex(final int numVariables) {
+        for (int var = 0; var < numVariables; var++) {
+            cliquesByVariable.add(new ArrayList<Integer>());
+        }
+        isMarked = new boolean[numVariables];
+    }
+
+    void add(final List<Integer> clique) {
+        for (final int var : clique) {
+            cliquesByVariable.get(var).add(cliques.size());
+        }
+        cliques.add(clique);
+    }
+
+    List<List<Integer>> getCliques() {
+        return cliques;
+    }
+
+    List<Integer> getCliquesContaining(final int var) {
+        return cliquesByVariable.get(var);
+    }
+
+    /**
+     * a superset has to contain every variable of the clique, so only the cliques containing its least shared
+     * variable are compared
+     */
+    boolean containsSuperset(final List<Integer> clique) {
+        final List<Integer> candidates = getCliquesContaining(findLeastSharedVariable(clique));
+        mark(clique, true);
+        boolean isSubsetOfOther = false;
+        for (final int candidate : candidates) {
+            if (countMarked(cliques.get(candidate)) == clique.size()) {
+                isSubsetOfOther = true;
+                break;
+            }
+        }
+        mark(clique, false);
+        return isSubsetOfOther;
+    }
+
+    int findMostSharedVariable(final List<Integer> clique) {
+        int mostShared = clique.get(0);
+        for (final int var : clique) {
+            if (getCliquesContaining(var).size() > getCliquesContaining(mostShared).size()) {
+                mostShared = var;
+            }
+        }
+        return mostShared;
+    }
+
+    private int findLeastSharedVariable(final List<Integer> clique) {
+        int leastShared = clique.get(0);
+        for (final int var : clique) {
+            if (getCliquesContaining(var).size() < getCliquesContaining(leastShared).size()) {
+                leastShared = var;
+            }
+        }
+        return leastShared;
+    }
+
+    /**
+     * @return the variables of the first clique that are also contained in the second one, in the order of the first
+     *         clique
+     */
+    List<Integer> intersect(final List<Integer> clique1, final List<Integer> clique2) {
+        mark(clique2, true);
+        final List<Integer> intersection = new ArrayList<Integer>();
+        for (final int var : clique1) {
+            if (isMarked[var]) {
+                intersection.add(var);
+            }
+        }
+        mark(clique2, false);
+        return intersection;
+    }
+
+    private void mark(final List<Integer> clique, final boolean isMarked) {
+        for (final int var : clique) {
+            this.isMarked[var] = isMarked;
+        }
+    }
+
+    private int countMarked(final List<Integer> clique) {
+        int count = 0;
+        for (final int var : clique) {
+            if (isMarked[var]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -12,7 +12,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
@@ -32,13 +31,14 @@ import org.eclipse.recommenders.jayes.util.Graph.Edge;
 import org.eclipse.recommenders.jayes.util.MathUtils;
 import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
 import org.eclipse.recommenders.jayes.util.Pair;
-import org.eclipse.recommenders.jayes.util.sharing.CanonicalArrayWrapperManager;
-import org.eclipse.recommenders.jayes.util.sharing.CanonicalIntArrayManager;
+import org.eclipse.recommenders.jayes.util.sharing.CanonicalPools;
+import org.eclipse.recommenders.jayes.util.sharing.WeakCanonicalPool;
 import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
 
 public class JunctionTreeAlgorithm extends AbstractInferer {
 
     protected Map<Edge, AbstractFactor> sepSets;
+    protected JunctionTree jtree;
     protected Graph junctionTree;
     protected AbstractFactor[] nodePotentials;
     // need IdentityHashmap here because an Edge and
@@ -55,11 +55,35 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
 
     protected int[][] queryFactorReverseMapping;
 
-    // used for computing evidence collection skip
-    protected Set<Integer> clustersHavingEvidence;
+    // the directed edges of the junction tree, numbered so that message passing works on arrays only. Edge e leads
+    // from cluster edgeSources[e] to cluster edgeTargets[e], backEdges[e] is the edge in the opposite direction
+    protected int[][] outgoingEdges;
+    protected int[] edgeSources;
+    protected int[] edgeTargets;
+    protected int[] backEdges;
+    protected int[][] edgeMultiplications;
+    protected AbstractFactor[] edgeSepSets;
+
+    // the edges of the junction tree in breadth-first order from scheduleRoot, so every edge comes after the edge
+    // leading to its source cluster. Only recomputed if the propagation root changes
+    protected int[] schedule;
+    protected int scheduleLength;
+    protected int scheduleRoot = -1;
+    // used for computing the schedule, evidence collection skip and distribution skip
+    protected boolean[] isClusterMarked;
+
+    protected boolean[] clustersHavingEvidence;
     protected boolean[] isObserved;
+    protected int[] observedOutcomes;
 
     protected double[] scratchpad;
+    protected IArrayWrapper scratchpadWrapper;
+    protected IArrayWrapper beliefWrapper;
+
+    // the evidence for which all potentials are consistent, only valid if isCalibrated
+    protected int[] calibratedOutcomes;
+    protected boolean isCalibrated;
+    protected boolean isIncremental = false;
 
     protected JunctionTreeBuilder junctionTreeBuilder = JunctionTreeBuilder.forHeuristic(new MinFillIn());
 
@@ -76,11 +100,11 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         final int nodeId = node.getId();
         if (!isBeliefValid[nodeId]) {
             isBeliefValid[nodeId] = true;
-            if (!evidence.containsKey(node)) {
+            if (!isObserved[nodeId]) {
                 validateBelief(nodeId);
             } else {
                 Arrays.fill(beliefs[nodeId], 0);
-                beliefs[nodeId][node.getOutcomeIndex(evidence.get(node))] = 1;
+                beliefs[nodeId][observedOutcomes[nodeId]] = 1;
             }
         }
         return super.getBeliefs(node);
@@ -88,15 +112,15 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
 
     private void validateBelief(final int nodeId) {
         final AbstractFactor f = queryFactors[nodeId];
-        // TODO change beliefs to ArrayWrappers
-        f.sumPrepared(new DoubleArrayWrapper(beliefs[nodeId]), preparedQueries[nodeId]);
+        beliefWrapper.setArray(beliefs[nodeId]);
+        f.sumPrepared(beliefWrapper, preparedQueries[nodeId]);
         if (f.isLogScale()) {
             MathUtils.exp(beliefs[nodeId]);
         }
         try {
             beliefs[nodeId] = MathUtils.normalize(beliefs[nodeId]);
         } catch (final IllegalArgumentException exception) {
-            throw new NumericalInstabilityException("Numerical instability detected for evidence: " + evidence
+            throw new NumericalInstabilityException("Numerical instability detected for evidence: " + getEvidence()
                     + " and node : " + nodeId
                     + ", consider using logarithmic scale computation (configurable in FactorFactory)", exception);
         }
@@ -105,117 +129,223 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
     @Override
     protected void updateBeliefs() {
         Arrays.fill(isBeliefValid, false);
-        doUpdateBeliefs();
+        readEvidence();
+        if (isCalibratedForSubsetOfEvidence()) {
+            propagateAddedEvidence(isIncremental);
+        } else {
+            doUpdateBeliefs(isIncremental);
+        }
+    }
+
+    /*
+     * the evidence is only read here, afterwards everything works on the observed outcomes
+     */
+    private void readEvidence() {
+        System.arraycopy(evidenceOutcomes, 0, observedOutcomes, 0, observedOutcomes.length);
+        for (int n = 0; n < observedOutcomes.length; n++) {
+            isObserved[n] = observedOutcomes[n] != UNOBSERVED;
+        }
     }
 
-    private void doUpdateBeliefs() {
+    private void doUpdateBeliefs(final boolean calibrate) {
+        isCalibrated = false;
 
         incorporateAllEvidence();
-        int propagationRoot = findPropagationRoot();
+        int propagationRoot = markClustersHavingEvidence(false);
 
         replayFactorInitializations();
-        collectEvidence(propagationRoot, skipCollection(propagationRoot));
-        distributeEvidence(propagationRoot, skipDistribution(propagationRoot));
+        propagate(propagationRoot < 0 ? 0 : propagationRoot, calibrate);
+    }
+
+    private boolean isCalibratedForSubsetOfEvidence() {
+        if (!isCalibrated) {
+            return false;
+        }
+        for (int n = 0; n < calibratedOutcomes.length; n++) {
+            if (calibratedOutcomes[n] != UNOBSERVED && calibratedOutcomes[n] != observedOutcomes[n]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * the potentials are consistent for a subset of the current evidence, so it is sufficient to collect from the
+     * clusters of the added evidence, all other clusters already agree with their sepsets
+     */
+    private void propagateAddedEvidence(final boolean calibrate) {
+        incorporateAllEvidence();
+        int propagationRoot = markClustersHavingEvidence(true);
+        if (propagationRoot < 0) {
+            return;
+        }
+        isCalibrated = false;
+
+        propagate(propagationRoot, calibrate);
+    }
+
+    private void propagate(final int propagationRoot, final boolean calibrate) {
+        scheduleFrom(propagationRoot);
+        markCollectionClusters();
+        collectEvidence();
+        if (calibrate) {
+            // no distribution skip, all clusters have to be consistent
+            Arrays.fill(isClusterMarked, true);
+            distributeEvidence();
+            System.arraycopy(observedOutcomes, 0, calibratedOutcomes, 0, observedOutcomes.length);
+            isCalibrated = true;
+        } else {
+            markDistributionClusters();
+            distributeEvidence();
+        }
+    }
+
+    /**
+     * In incremental mode, every propagation updates all clusters, so that the potentials stay consistent. If
+     * evidence is only added afterwards, just the added evidence is propagated instead of starting from the initial
+     * potentials again. This pays off for interactive use, where evidence is entered step by step. Without
+     * incremental mode (the default), clusters that are irrelevant for the beliefs are skipped during distribution.
+     */
+    public void setIncremental(final boolean isIncremental) {
+        this.isIncremental = isIncremental;
+    }
+
+    public boolean isIncremental() {
+        return isIncremental;
+    }
+
+    /**
+     * propagates the current evidence through the whole junction tree and captures the resulting potentials. After
+     * restoring the state, only evidence that is added on top of the captured evidence needs to be propagated.
+     */
+    public PropagationState saveState() {
+        readEvidence();
+        if (!isCalibrated || !Arrays.equals(calibratedOutcomes, observedOutcomes)) {
+            Arrays.fill(isBeliefValid, false);
+            beliefsValid = true;
+            if (isCalibratedForSubsetOfEvidence()) {
+                propagateAddedEvidence(true);
+            } else {
+                doUpdateBeliefs(true);
+            }
+        }
+        final IArrayWrapper[] potentialValues = new IArrayWrapper[initializations.size()];
+        for (int i = 0; i < potentialValues.length; i++) {
+            potentialValues[i] = initializations.get(i).getFirst().getValues().clone();
+        }
+        return new PropagationState(calibratedOutcomes.clone(), potentialValues);
+    }
+
+    /**
+     * resets evidence and potentials to a state that was saved before by this inferer or by the inferer it was
+     * copied from
+     */
+    public void restoreState(final PropagationState state) {
+        final IArrayWrapper[] potentialValues = state.getPotentialValues();
+        for (int i = 0; i < potentialValues.length; i++) {
+            final IArrayWrapper values = initializations.get(i).getFirst().getValues();
+            values.arrayCopy(potentialValues[i], 0, 0, potentialValues[i].length());
+        }
+        restoreEvidenceOutcomes(state.getOutcomes());
+        System.arraycopy(state.getOutcomes(), 0, calibratedOutcomes, 0, calibratedOutcomes.length);
+        isCalibrated = true;
     }
 
     private void replayFactorInitializations() {
-        for (final Pair<AbstractFactor, IArrayWrapper> init : initializations) {
+        for (int i = 0; i < initializations.size(); i++) {
+            final Pair<AbstractFactor, IArrayWrapper> init = initializations.get(i);
             init.getFirst().copyValues(init.getSecond());
         }
     }
 
     private void incorporateAllEvidence() {
-        for (Pair<AbstractFactor, IArrayWrapper> init : initializations) {
-            init.getFirst().resetSelections();
+        for (int i = 0; i < initializations.size(); i++) {
+            initializations.get(i).getFirst().resetSelections();
         }
 
-        clustersHavingEvidence.clear();
-        Arrays.fill(isObserved, false);
-        for (BayesNode n : evidence.keySet()) {
-            incorporateEvidence(n);
+        for (int n = 0; n < observedOutcomes.length; n++) {
+            if (isObserved[n]) {
+                incorporateEvidence(n);
+            }
         }
 
     }
 
-    private void incorporateEvidence(final BayesNode node) {
-        int n = node.getId();
-        isObserved[n] = true;
+    private void incorporateEvidence(final int n) {
         // get evidence to all concerned factors (includes home cluster)
-        for (final Integer concernedCluster : concernedClusters[n]) {
-            nodePotentials[concernedCluster].select(n, node.getOutcomeIndex(evidence.get(node)));
-            clustersHavingEvidence.add(concernedCluster);
+        for (final int concernedCluster : concernedClusters[n]) {
+            nodePotentials[concernedCluster].select(n, observedOutcomes[n]);
         }
     }
 
-    private int findPropagationRoot() {
-        int propagationRoot = 0;
-        for (BayesNode n : evidence.keySet()) {
-            propagationRoot = concernedClusters[n.getId()][0];
+    /**
+     * @return a cluster having evidence, which can be used as propagation root, or -1 if there is no such cluster
+     */
+    private int markClustersHavingEvidence(final boolean onlyAddedEvidence) {
+        Arrays.fill(clustersHavingEvidence, false);
+        int propagationRoot = -1;
+        for (int n = 0; n < observedOutcomes.length; n++) {
+            final boolean isAdded = !onlyAddedEvidence || calibratedOutcomes[n] == UNOBSERVED;
+            if (isObserved[n] && isAdded) {
+                for (final int concernedCluster : concernedClusters[n]) {
+                    clustersHavingEvidence[concernedCluster] = true;
+                }
+                propagationRoot = concernedClusters[n][0];
+            }
         }
         return propagationRoot;
     }
 
-    /**
-     * checks which nodes need not be processed during collectEvidence (because of preprocessing). These are those nodes
-     * without evidence which are leaves or which only have non-evidence descendants
-     * 
-     * @param root
-     *            the node to start the check from
-     * @return a set of the nodes not needing a call of collectEvidence
-     */
-    private Set<Integer> skipCollection(final int root) {
-        final Set<Integer> skipped = new HashSet<Integer>(nodePotentials.length);
-        recursiveSkipCollection(root, new HashSet<Integer>(nodePotentials.length), skipped);
-        return skipped;
-    }
-
-    private void recursiveSkipCollection(final int node, final Set<Integer> visited, final Set<Integer> skipped) {
-        visited.add(node);
-        boolean areAllDescendantsSkipped = true;
-        for (final Edge e : junctionTree.getIncidentEdges(node)) {
-            if (!visited.contains(e.getSecond())) {
-                recursiveSkipCollection(e.getSecond(), visited, skipped);
-                if (!skipped.contains(e.getSecond())) {
-                    areAllDescendantsSkipped = false;
+    private void scheduleFrom(final int root) {
+        if (root == scheduleRoot) {
+            return;
+        }
+        Arrays.fill(isClusterMarked, false);
+        isClusterMarked[root] = true;
+        scheduleLength = 0;
+        int cluster = root;
+        for (int next = 0; cluster >= 0; next++) {
+            for (final int e : outgoingEdges[cluster]) {
+                if (!isClusterMarked[edgeTargets[e]]) {
+                    isClusterMarked[edgeTargets[e]] = true;
+                    schedule[scheduleLength++] = e;
                 }
             }
+            cluster = next < scheduleLength ? edgeTargets[schedule[next]] : -1;
         }
-        if (areAllDescendantsSkipped && !clustersHavingEvidence.contains(node)) {
-            skipped.add(node);
-        }
+        scheduleRoot = root;
+    }
 
+    /**
+     * marks the clusters that need to be processed during collectEvidence. Unmarked are those clusters without
+     * evidence which are leaves or which only have non-evidence descendants (because of preprocessing).
+     */
+    private void markCollectionClusters() {
+        System.arraycopy(clustersHavingEvidence, 0, isClusterMarked, 0, isClusterMarked.length);
+        markAncestorsOfMarkedClusters();
     }
 
     /**
-     * checks which nodes do not need to be visited during evidence distribution. These are exactly those nodes which
+     * marks the clusters that need to be visited during evidence distribution. These are exactly those clusters which
      * are
      * <ul>
-     * <li>not the query factor of a non-evidence variable</li>
-     * <li>AND have no descendants that cannot be skipped</li>
+     * <li>the query factor of a non-evidence variable</li>
+     * <li>OR have descendants that need to be visited</li>
      * </ul>
-     * 
-     * @param distNode
-     * @return
      */
-    private Set<Integer> skipDistribution(final int distNode) {
-        final Set<Integer> skipped = new HashSet<Integer>(nodePotentials.length);
-        recursiveSkipDistribution(distNode, new HashSet<Integer>(nodePotentials.length), skipped);
-        return skipped;
-    }
-
-    private void recursiveSkipDistribution(final int node, final Set<Integer> visited, final Set<Integer> skipped) {
-        visited.add(node);
-        boolean areAllDescendantsSkipped = true;
-        for (final Edge e : junctionTree.getIncidentEdges(node)) {
-            if (!visited.contains(e.getSecond())) {
-                recursiveSkipDistribution(e.getSecond(), visited, skipped);
-                if (!skipped.contains(e.getSecond())) {
-                    areAllDescendantsSkipped = false;
-                }
-            }
+    private void markDistributionClusters() {
+        for (int cluster = 0; cluster < isClusterMarked.length; cluster++) {
+            isClusterMarked[cluster] = isQueryFactorOfUnobservedVariable(cluster);
         }
-        if (areAllDescendantsSkipped && !isQueryFactorOfUnobservedVariable(node)) {
-            skipped.add(node);
+        markAncestorsOfMarkedClusters();
+    }
+
+    private void markAncestorsOfMarkedClusters() {
+        for (int i = scheduleLength - 1; i >= 0; i--) {
+            final int e = schedule[i];
+            if (isClusterMarked[edgeTargets[e]]) {
+                isClusterMarked[edgeSources[e]] = true;
+            }
         }
     }
 
@@ -228,54 +358,57 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         return false;
     }
 
-    private void collectEvidence(final int cluster, final Set<Integer> marked) {
-        marked.add(cluster);
-        for (final Edge e : junctionTree.getIncidentEdges(cluster)) {
-            if (!marked.contains(e.getSecond())) {
-                collectEvidence(e.getSecond(), marked);
-                messagePass(e.getBackEdge());
+    /*
+     * children come after their parents in the schedule, so going backwards every cluster has collected from its
+     * children before it passes on to its parent
+     */
+    private void collectEvidence() {
+        for (int i = scheduleLength - 1; i >= 0; i--) {
+            final int e = schedule[i];
+            if (isClusterMarked[edgeTargets[e]]) {
+                messagePass(backEdges[e]);
             }
         }
     }
 
-    private void distributeEvidence(final int cluster, final Set<Integer> marked) {
-        marked.add(cluster);
-        for (final Edge e : junctionTree.getIncidentEdges(cluster)) {
-            if (!marked.contains(e.getSecond())) {
+    private void distributeEvidence() {
+        for (int i = 0; i < scheduleLength; i++) {
+            final int e = schedule[i];
+            if (isClusterMarked[edgeTargets[e]]) {
                 messagePass(e);
-                distributeEvidence(e.getSecond(), marked);
             }
         }
     }
 
-    private void messagePass(final Edge sepSetEdge) {
+    private void messagePass(final int edge) {
 
-        final AbstractFactor sepSet = sepSets.get(sepSetEdge);
+        final AbstractFactor sepSet = edgeSepSets[edge];
         if (!needMessagePass(sepSet)) {
             return;
         }
 
         final IArrayWrapper newSepValues = sepSet.getValues();
-        System.arraycopy(newSepValues.toDoubleArray(), 0, scratchpad, 0, newSepValues.length());
+        for (int i = 0; i < newSepValues.length(); i++) {
+            scratchpad[i] = newSepValues.getDouble(i);
+        }
 
-        final int[] preparedOp = preparedMultiplications.get(sepSetEdge.getBackEdge());
-        nodePotentials[sepSetEdge.getFirst()].sumPrepared(newSepValues, preparedOp);
+        final AbstractFactor source = nodePotentials[edgeSources[edge]];
+        final AbstractFactor target = nodePotentials[edgeTargets[edge]];
+        source.sumPrepared(newSepValues, edgeMultiplications[backEdges[edge]]);
 
-        if (isOnlyFirstLogScale(sepSetEdge)) {
+        if (source.isLogScale() && !target.isLogScale()) {
             MathUtils.exp(newSepValues);
         }
-        if (areBothEndsLogScale(sepSetEdge)) {
-            MathUtils.secureSubtract(newSepValues.toDoubleArray(), scratchpad, scratchpad);
+        if (source.isLogScale() && target.isLogScale()) {
+            MathUtils.secureSubtract(newSepValues, scratchpad, scratchpad);
         } else {
-            MathUtils.secureDivide(newSepValues.toDoubleArray(), scratchpad, scratchpad);
+            MathUtils.secureDivide(newSepValues, scratchpad, scratchpad);
         }
 
-        if (isOnlySecondLogScale(sepSetEdge)) {
+        if (!source.isLogScale() && target.isLogScale()) {
             MathUtils.log(scratchpad);
         }
-        // TODO scratchpad -> ArrayWrapper
-        nodePotentials[sepSetEdge.getSecond()].multiplyPrepared(new DoubleArrayWrapper(scratchpad),
-                preparedMultiplications.get(sepSetEdge));
+        target.multiplyPrepared(scratchpadWrapper, edgeMultiplications[edge]);
 
     }
 
@@ -292,19 +425,21 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         return false;
     }
 
-    private boolean isOnlyFirstLogScale(final Edge edge) {
-        return nodePotentials[edge.getFirst()].isLogScale() && !nodePotentials[edge.getSecond()].isLogScale();
-    }
-
-    private boolean isOnlySecondLogScale(final Edge edge) {
-        return !nodePotentials[edge.getFirst()].isLogScale() && nodePotentials[edge.getSecond()].isLogScale();
-    }
-
     @Override
     public void setNetwork(final BayesNet net) {
+        setNetwork(net, junctionTreeBuilder.buildJunctionTree(net));
+    }
+
+    /**
+     * sets the network together with a junction tree that was built for it before, e.g. by a
+     * {@link JunctionTreeBuilder} when the network was stored, so the triangulation is skipped. The junction tree is
+     * not modified and can be shared between inferers.
+     */
+    public void setNetwork(final BayesNet net, final JunctionTree jtree) {
         super.setNetwork(net);
         initializeFields(net.getNodes().size());
-        JunctionTree jtree = buildJunctionTree(net);
+        this.jtree = jtree;
+        this.junctionTree = jtree.getGraph();
         int[] homeClusters = computeHomeClusters(net, jtree.getClusters());
         initializeClusterFactors(net, jtree.getClusters(), homeClusters);
         initializeSepsetFactors(jtree.getSepSets());
@@ -313,12 +448,120 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         initializePotentialValues();
         multiplyCPTsIntoPotentials(net, homeClusters);
         prepareMultiplications();
+        prepareTraversal();
         prepareScratch();
         invokeInitialBeliefUpdate();
         storePotentialValues();
 
     }
 
+    /**
+     * sets the network together with a junction tree that was prepared for it before, e.g. by
+     * {@link #getPreparedJunctionTree()} when the network was stored. The factors are created as usual, but their
+     * initial values and prepared operations are taken from the prepared junction tree instead of being computed. The
+     * values are converted if the factory uses another floating point type.
+     *
+     * @throws IllegalArgumentException
+     *             if the prepared junction tree does not fit the factors created for the network
+     */
+    public void setNetwork(final BayesNet net, final PreparedJunctionTree prepared) {
+        super.setNetwork(net);
+        initializeFields(net.getNodes().size());
+        this.jtree = prepared.getJunctionTree();
+        this.junctionTree = jtree.getGraph();
+        int[] homeClusters = computeHomeClusters(net, jtree.getClusters());
+        initializeClusterFactors(net, jtree.getClusters(), homeClusters);
+        initializeSepsetFactors(jtree.getSepSets());
+        determineConcernedClusters();
+        setQueryFactors();
+        restorePreparedMultiplications(prepared);
+        prepareTraversal();
+        prepareScratch();
+        restorePotentialValues(prepared);
+    }
+
+    /**
+     * @return the junction tree of the current network together with the prepared operations and initial potential
+     *         values, to be passed to {@link #setNetwork(BayesNet, PreparedJunctionTree)} later on
+     */
+    public PreparedJunctionTree getPreparedJunctionTree() {
+        final boolean isLogScale = nodePotentials[0].isLogScale();
+        for (final AbstractFactor pot : nodePotentials) {
+            if (pot.isLogScale() != isLogScale) {
+                throw new IllegalStateException("cannot prepare junction trees with mixed log scale potentials");
+            }
+        }
+        final List<Pair<Edge, List<Integer>>> sepSetList = jtree.getSepSets();
+        final int[][] sepSetMultiplications = new int[2 * sepSetList.size()][];
+        for (int i = 0; i < sepSetList.size(); i++) {
+            final Edge edge = findEdge(sepSetList.get(i).getFirst());
+            sepSetMultiplications[2 * i] = preparedMultiplications.get(edge);
+            sepSetMultiplications[2 * i + 1] = preparedMultiplications.get(edge.getBackEdge());
+        }
+        final IArrayWrapper[] potentialValues = new IArrayWrapper[initializations.size()];
+        for (int i = 0; i < potentialValues.length; i++) {
+            potentialValues[i] = initializations.get(i).getSecond();
+        }
+        return new PreparedJunctionTree(jtree, sepSetMultiplications, preparedQueries.clone(), potentialValues,
+                isLogScale);
+    }
+
+    /*
+     * the edges of the sepset list are not necessarily the edges of the graph, which are needed to tell the directions
+     * apart
+     */
+    private Edge findEdge(final Edge sepSetEdge) {
+        for (final Edge e : junctionTree.getIncidentEdges(sepSetEdge.getFirst())) {
+            if (e.getSecond().equals(sepSetEdge.getSecond())) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException("sepset " + sepSetEdge + " is not an edge of the junction tree");
+    }
+
+    private void restorePreparedMultiplications(final PreparedJunctionTree prepared) {
+        final List<Pair<Edge, List<Integer>>> sepSetList = jtree.getSepSets();
+        final int[][] sepSetMultiplications = prepared.getSepSetMultiplications();
+        final int[][] queries = prepared.getQueries();
+        if (sepSetMultiplications.length != 2 * sepSetList.size() || queries.length != queryFactors.length) {
+            throw new IllegalArgumentException("prepared junction tree does not match the network");
+        }
+        final WeakCanonicalPool<int[]> flyWeight = CanonicalPools.intArrays();
+        for (int i = 0; i < sepSetList.size(); i++) {
+            final Edge edge = findEdge(sepSetList.get(i).getFirst());
+            preparedMultiplications.put(edge, flyWeight.getInstance(sepSetMultiplications[2 * i]));
+            preparedMultiplications.put(edge.getBackEdge(), flyWeight.getInstance(sepSetMultiplications[2 * i + 1]));
+        }
+        for (int i = 0; i < queries.length; i++) {
+            preparedQueries[i] = flyWeight.getInstance(queries[i]);
+        }
+    }
+
+    private void restorePotentialValues(final PreparedJunctionTree prepared) {
+        final IArrayWrapper[] potentialValues = prepared.getPotentialValues();
+        final List<AbstractFactor> potentials = getPotentialsInCanonicalOrder();
+        if (potentialValues.length != potentials.size()) {
+            throw new IllegalArgumentException("prepared junction tree does not match the network");
+        }
+        final WeakCanonicalPool<IArrayWrapper> flyweight = CanonicalPools.arrayWrappers();
+        for (int i = 0; i < potentialValues.length; i++) {
+            final AbstractFactor pot = potentials.get(i);
+            final IArrayWrapper values = potentialValues[i];
+            final boolean isCluster = i < nodePotentials.length;
+            if (values.length() != pot.getValues().length() || isCluster && pot.isLogScale() != prepared.isLogScale()) {
+                throw new IllegalArgumentException("prepared potential " + i + " does not match the factor");
+            }
+            final IArrayWrapper converted;
+            if (values.getClass() == pot.getValues().getClass()) {
+                converted = values;
+            } else {
+                converted = pot.getValues().clone();
+                converted.copy(values);
+            }
+            initializations.add(newPair(pot, flyweight.getInstance(converted)));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void determineConcernedClusters() {
         concernedClusters = new int[queryFactors.length][];
@@ -348,14 +591,15 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         sepSets = new HashMap<Edge, AbstractFactor>();
         preparedMultiplications = new IdentityHashMap<Graph.Edge, int[]>();
         initializations = new ArrayList<Pair<AbstractFactor, IArrayWrapper>>();
-        clustersHavingEvidence = new HashSet<Integer>();
         isObserved = new boolean[numNodes];
+        observedOutcomes = new int[numNodes];
+        calibratedOutcomes = new int[numNodes];
     }
 
-    private JunctionTree buildJunctionTree(BayesNet net) {
-        final JunctionTree jtree = junctionTreeBuilder.buildJunctionTree(net);
-        this.junctionTree = jtree.getGraph();
-
+    /**
+     * @return the junction tree of the current network, e.g. to store it together with the network
+     */
+    public JunctionTree getJunctionTree() {
         return jtree;
     }
 
@@ -438,13 +682,13 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
     }
 
     private void prepareMultiplications() {
-        // compress by combining equal prepared statements, thus saving memory
-        final CanonicalIntArrayManager flyWeight = new CanonicalIntArrayManager();
+        // compress by combining equal prepared statements, also across networks, thus saving memory
+        final WeakCanonicalPool<int[]> flyWeight = CanonicalPools.intArrays();
         prepareSepsetMultiplications(flyWeight);
         prepareQueries(flyWeight);
     }
 
-    private void prepareSepsetMultiplications(final CanonicalIntArrayManager flyWeight) {
+    private void prepareSepsetMultiplications(final WeakCanonicalPool<int[]> flyWeight) {
         for (int node = 0; node < nodePotentials.length; node++) {
             for (final Edge e : junctionTree.getIncidentEdges(node)) {
                 final int[] preparedMultiplication = nodePotentials[e.getSecond()]
@@ -454,7 +698,7 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         }
     }
 
-    private void prepareQueries(final CanonicalIntArrayManager flyWeight) {
+    private void prepareQueries(final WeakCanonicalPool<int[]> flyWeight) {
         for (int i = 0; i < queryFactors.length; i++) {
             final AbstractFactor beliefFactor = factory.create(Arrays.asList(i),
                     Collections.<AbstractFactor>emptyList());
@@ -463,19 +707,62 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         }
     }
 
+    private void prepareTraversal() {
+        final List<Edge> edges = new ArrayList<Edge>();
+        final Map<Edge, Integer> edgeIds = new IdentityHashMap<Edge, Integer>();
+        outgoingEdges = new int[nodePotentials.length][];
+        for (int node = 0; node < nodePotentials.length; node++) {
+            final Set<Edge> incidentEdges = junctionTree.getIncidentEdges(node);
+            outgoingEdges[node] = new int[incidentEdges.size()];
+            int i = 0;
+            for (final Edge e : incidentEdges) {
+                edgeIds.put(e, edges.size());
+                outgoingEdges[node][i++] = edges.size();
+                edges.add(e);
+            }
+        }
+
+        edgeSources = new int[edges.size()];
+        edgeTargets = new int[edges.size()];
+        backEdges = new int[edges.size()];
+        edgeMultiplications = new int[edges.size()][];
+        edgeSepSets = new AbstractFactor[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            final Edge e = edges.get(i);
+            edgeSources[i] = e.getFirst();
+            edgeTargets[i] = e.getSecond();
+            backEdges[i] = edgeIds.get(e.getBackEdge());
+            edgeMultiplications[i] = preparedMultiplications.get(e);
+            edgeSepSets[i] = sepSets.get(e);
+        }
+    }
+
     private void prepareScratch() {
         int maxSize = 0;
         for (AbstractFactor sepSet : sepSets.values()) {
             maxSize = Math.max(maxSize, sepSet.getValues().length());
         }
-        scratchpad = new double[maxSize];
+        initializeScratch(maxSize);
+    }
 
+    /*
+     * everything the query path writes to, allocated once per inferer
+     */
+    private void initializeScratch(final int scratchpadSize) {
+        scratchpad = new double[scratchpadSize];
+        scratchpadWrapper = new DoubleArrayWrapper(scratchpad);
+        beliefWrapper = new DoubleArrayWrapper(0.0);
+        schedule = new int[edgeSources.length];
+        scheduleRoot = -1;
+        isClusterMarked = new boolean[nodePotentials.length];
+        clustersHavingEvidence = new boolean[nodePotentials.length];
     }
 
     private void invokeInitialBeliefUpdate() {
-
-        collectEvidence(0, new HashSet<Integer>());
-        distributeEvidence(0, new HashSet<Integer>());
+        scheduleFrom(0);
+        Arrays.fill(isClusterMarked, true);
+        collectEvidence();
+        distributeEvidence();
     }
 
     private void initializePotentialValues() {
@@ -511,15 +798,97 @@ public class JunctionTreeAlgorithm extends AbstractInferer {
         return nodePotentials[edge.getFirst()].isLogScale() && nodePotentials[edge.getSecond()].isLogScale();
     }
 
+    /**
+     * creates an inferer for the same network that shares all immutable state (junction tree, prepared operations and
+     * initial potential values) with this one, but has its own evidence, potentials and beliefs. The copy is
+     * independent of this inferer, so both can be used concurrently from different threads. The network must have
+     * been set before.
+     */
+    public JunctionTreeAlgorithm copy() {
+        final JunctionTreeAlgorithm copy = new JunctionTreeAlgorithm();
+        copy.factory = factory;
+        copy.junctionTreeBuilder = junctionTreeBuilder;
+        copy.isIncremental = isIncremental;
+        copy.jtree = jtree;
+        copy.junctionTree = junctionTree;
+        copy.preparedMultiplications = preparedMultiplications;
+        copy.concernedClusters = concernedClusters;
+        copy.preparedQueries = preparedQueries;
+        copy.queryFactorReverseMapping = queryFactorReverseMapping;
+        copy.outgoingEdges = outgoingEdges;
+        copy.edgeSources = edgeSources;
+        copy.edgeTargets = edgeTargets;
+        copy.backEdges = backEdges;
+        copy.edgeMultiplications = edgeMultiplications;
+
+        copy.beliefs = new double[beliefs.length][];
+        for (int i = 0; i < beliefs.length; i++) {
+            copy.beliefs[i] = new double[beliefs[i].length];
+        }
+        copy.isBeliefValid = new boolean[isBeliefValid.length];
+        copy.isObserved = new boolean[isObserved.length];
+        copy.observedOutcomes = new int[observedOutcomes.length];
+        copy.calibratedOutcomes = new int[calibratedOutcomes.length];
+        copyEvidenceStructureTo(copy);
+
+        copyPotentials(copy);
+        copy.initializeScratch(scratchpad.length);
+        return copy;
+    }
+
+    /*
+     * the potential values are overwritten by replaying the initializations before they are read again, so it is not
+     * important which values the clones start with
+     */
+    private void copyPotentials(final JunctionTreeAlgorithm copy) {
+        final Map<AbstractFactor, AbstractFactor> clones = new IdentityHashMap<AbstractFactor, AbstractFactor>();
+
+        copy.nodePotentials = new AbstractFactor[nodePotentials.length];
+        for (int i = 0; i < nodePotentials.length; i++) {
+            copy.nodePotentials[i] = nodePotentials[i].clone();
+            clones.put(nodePotentials[i], copy.nodePotentials[i]);
+        }
+
+        copy.sepSets = new HashMap<Edge, AbstractFactor>();
+        for (final Entry<Edge, AbstractFactor> sepSet : sepSets.entrySet()) {
+            final AbstractFactor clone = sepSet.getValue().clone();
+            copy.sepSets.put(sepSet.getKey(), clone);
+            clones.put(sepSet.getValue(), clone);
+        }
+
+        copy.edgeSepSets = new AbstractFactor[edgeSepSets.length];
+        for (int i = 0; i < edgeSepSets.length; i++) {
+            copy.edgeSepSets[i] = clones.get(edgeSepSets[i]);
+        }
+
+        copy.queryFactors = new AbstractFactor[queryFactors.length];
+        for (int i = 0; i < queryFactors.length; i++) {
+            copy.queryFactors[i] = clones.get(queryFactors[i]);
+        }
+
+        copy.initializations = new ArrayList<Pair<AbstractFactor, IArrayWrapper>>(initializations.size());
+        for (final Pair<AbstractFactor, IArrayWrapper> init : initializations) {
+            copy.initializations.add(newPair(clones.get(init.getFirst()), init.getSecond()));
+        }
+    }
+
     private void storePotentialValues() {
-        CanonicalArrayWrapperManager flyweight = new CanonicalArrayWrapperManager();
-        for (final AbstractFactor pot : nodePotentials) {
+        // the initial values are only copied from, so they can be shared with other networks
+        final WeakCanonicalPool<IArrayWrapper> flyweight = CanonicalPools.arrayWrappers();
+        for (final AbstractFactor pot : getPotentialsInCanonicalOrder()) {
             initializations.add(newPair(pot, flyweight.getInstance(pot.getValues().clone())));
         }
+    }
 
-        for (final AbstractFactor sep : sepSets.values()) {
-            initializations.add(newPair(sep, flyweight.getInstance(sep.getValues().clone())));
+    /*
+     * the clusters followed by the sepsets in the order of the junction tree, which does not depend on hashing
+     */
+    private List<AbstractFactor> getPotentialsInCanonicalOrder() {
+        final List<AbstractFactor> potentials = new ArrayList<AbstractFactor>(Arrays.asList(nodePotentials));
+        for (final Pair<Edge, List<Integer>> sep : jtree.getSepSets()) {
+            potentials.add(sepSets.get(sep.getFirst()));
         }
+        return potentials;
     }
 
 }
@@ -14,7 +14,7 @@ import static org.eclipse.recommenders.jayes.util.Pair.newPair;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -29,6 +29,10 @@ import org.eclipse.recommenders.jayes.util.Pair;
 import org.eclipse.recommenders.jayes.util.triangulation.GraphElimination;
 import org.eclipse.recommenders.jayes.util.triangulation.IEliminationHeuristic;
 
+/**
+ * builds a junction tree from a triangulation of the moral graph. Cliques and candidate sepsets are found through an
+ * index from every variable to the cliques that contain it, so only cliques that share variables are compared.
+ */
 public class JunctionTreeBuilder {
     private IEliminationHeuristic heuristic;
 
@@ -42,9 +46,10 @@ public class JunctionTreeBuilder {
 
     public JunctionTree buildJunctionTree(BayesNet net) {
         JunctionTree junctionTree = new JunctionTree(new Graph());
-        junctionTree.setClusters(triangulateGraphAndFindCliques(buildMoralGraph(net), weightNodesByOutcomes(net),
-                heuristic));
-        junctionTree.setSepSets(computeSepsets(junctionTree, net));
+        final CliqueIndex cliques = triangulateGraphAndFindCliques(buildMoralGraph(net), weightNodesByOutcomes(net),
+                heuristic);
+        junctionTree.setClusters(cliques.getCliques());
+        junctionTree.setSepSets(computeSepsets(junctionTree, cliques, net));
         return junctionTree;
     }
 
@@ -70,13 +75,13 @@ public class JunctionTreeBuilder {
         }
     }
 
-    private List<List<Integer>> triangulateGraphAndFindCliques(Graph graph, double[] weights,
+    private CliqueIndex triangulateGraphAndFindCliques(Graph graph, double[] weights,
             IEliminationHeuristic eliminationHeuristic) {
         GraphElimination triangulate = new GraphElimination(graph, weights, eliminationHeuristic);
 
-        final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+        final CliqueIndex cliques = new CliqueIndex(graph.getAdjacency().size());
         for (List<Integer> nextClique : triangulate) {
-            if (!containsSuperset(cliques, nextClique)) {
+            if (!cliques.containsSuperset(nextClique)) {
                 cliques.add(nextClique);
             }
         }
@@ -93,34 +98,49 @@ public class JunctionTreeBuilder {
         return weights;
     }
 
-    private boolean containsSuperset(final Collection<? extends Collection<Integer>> sets, final Collection<Integer> set) {
-        boolean isSubsetOfOther = false;
-        for (final Collection<Integer> superset : sets) {
-            if (superset.containsAll(set)) {
-                isSubsetOfOther = true;
-                break;
-            }
-        }
-        return isSubsetOfOther;
-    }
-
-    private List<Pair<Edge, List<Integer>>> computeSepsets(JunctionTree junctionTree, BayesNet net) {
-        final List<Pair<Edge, List<Integer>>> candidates = enumerateCandidateSepSets(junctionTree.getClusters());
+    private List<Pair<Edge, List<Integer>>> computeSepsets(JunctionTree junctionTree, CliqueIndex cliques,
+            BayesNet net) {
+        final List<Pair<Edge, List<Integer>>> candidates = enumerateCandidateSepSets(cliques);
         Collections.sort(candidates, new SepsetComparator(net));
         return computeMaxSpanningTree(junctionTree.getGraph(), candidates);
 
     }
 
-    private List<Pair<Edge, List<Integer>>> enumerateCandidateSepSets(List<List<Integer>> clusters) {
+    /**
+     * The candidates are the pairs of cliques that share more than one variable. Pairs that share exactly one variable
+     * have the same sepset as all other pairs that share only this variable, so for every variable it is sufficient to
+     * connect the first clique containing it to the other cliques containing it. A maximum spanning tree over these
+     * candidates is as good as one over all pairs, but the number of candidates does not grow quadratically with the
+     * number of cliques that share a variable.
+     */
+    private List<Pair<Edge, List<Integer>>> enumerateCandidateSepSets(CliqueIndex index) {
+        final List<List<Integer>> cliques = index.getCliques();
         final List<Pair<Edge, List<Integer>>> sepSets = new ArrayList<Pair<Edge, List<Integer>>>();
-        final ListIterator<List<Integer>> it = clusters.listIterator();
-        while (it.hasNext()) {
-            final List<Integer> clique1 = it.next();
-            final ListIterator<List<Integer>> remainingIt = clusters.listIterator(it.nextIndex());
-            while (remainingIt.hasNext()) { // generate sepSets
-                final List<Integer> clique2 = new ArrayList<Integer>(remainingIt.next());
-                clique2.retainAll(clique1);
-                sepSets.add(newPair(new Edge(it.nextIndex() - 1, remainingIt.nextIndex() - 1), clique2));
+        final int[] lastVisitor = new int[cliques.size()];
+        Arrays.fill(lastVisitor, -1);
+        for (int clique1 = 0; clique1 < cliques.size(); clique1++) {
+            final List<Integer> members = cliques.get(clique1);
+            // every pair that shares more than this variable is also found through one of the other variables
+            final int mostShared = index.findMostSharedVariable(members);
+            final List<Integer> partners = new ArrayList<Integer>();
+            for (final int var : members) {
+                final List<Integer> containingCliques = index.getCliquesContaining(var);
+                if (var == mostShared && containingCliques.get(0) != clique1) {
+                    continue;
+                }
+                for (final int clique2 : containingCliques) {
+                    if (clique2 > clique1 && lastVisitor[clique2] != clique1) {
+                        lastVisitor[clique2] = clique1;
+                        partners.add(clique2);
+                    }
+                }
+            }
+            Collections.sort(partners);
+            for (final int clique2 : partners) { // generate sepSets
+                final List<Integer> sepSet = index.intersect(cliques.get(clique2), members);
+                if (sepSet.size() > 1 || index.getCliquesContaining(sepSet.get(0)).get(0) == clique1) {
+                    sepSets.add(newPair(new Edge(clique1, clique2), sepSet));
+                }
             }
         }
         return sepSets;
@@ -136,19 +156,28 @@ public class JunctionTreeBuilder {
         final UnionFind[] sets = UnionFind.createArray(vertexCount);
 
         final List<Pair<Edge, List<Integer>>> leftSepSets = new ArrayList<Pair<Edge, List<Integer>>>();
-        while (leftSepSets.size() < (vertexCount - 1)) {
-            final Pair<Edge, List<Integer>> sep = pq.poll();
-            final boolean bothEndsInSameTree = sets[sep.getFirst().getFirst()].find() == sets[sep.getFirst()
-                    .getSecond()].find();
-            if (!bothEndsInSameTree) {
-                sets[sep.getFirst().getFirst()].merge(sets[sep.getFirst().getSecond()]);
-                leftSepSets.add(sep);
-                graph.addEdge(sep.getFirst().getFirst(), sep.getFirst().getSecond());
-            }
+        while (leftSepSets.size() < (vertexCount - 1) && !pq.isEmpty()) {
+            addIfNotInSameTree(graph, sets, leftSepSets, pq.poll());
+        }
+        // cliques that do not share any variable, the network consists of independent parts
+        for (int clique = 1; leftSepSets.size() < (vertexCount - 1); clique++) {
+            final List<Integer> noSharedVariables = new ArrayList<Integer>();
+            addIfNotInSameTree(graph, sets, leftSepSets, newPair(new Edge(0, clique), noSharedVariables));
         }
         return leftSepSets;
     }
 
+    private void addIfNotInSameTree(Graph graph, final UnionFind[] sets,
+            final List<Pair<Edge, List<Integer>>> leftSepSets, final Pair<Edge, List<Integer>> sep) {
+        final boolean bothEndsInSameTree = sets[sep.getFirst().getFirst()].find() == sets[sep.getFirst().getSecond()]
+                .find();
+        if (!bothEndsInSameTree) {
+            sets[sep.getFirst().getFirst()].merge(sets[sep.getFirst().getSecond()]);
+            leftSepSets.add(sep);
+            graph.addEdge(sep.getFirst().getFirst(), sep.getFirst().getSecond());
+        }
+    }
+
     private final class SepsetComparator implements Comparator<Pair<Edge, List<Integer>>> {
 
         private final BayesNet net;
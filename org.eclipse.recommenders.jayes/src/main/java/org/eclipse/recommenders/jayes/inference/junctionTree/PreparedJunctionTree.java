@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.junctionTree;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * a junction tree together with everything the {@link JunctionTreeAlgorithm} derives from it for a network: the
+ * prepared multiplications and queries and the initial potential values. Setting a network together with a prepared
+ * junction tree skips the initial propagation, so it can be stored with the network to make loading cheaper. It is
+ * only valid for the network it was prepared for and for factories that create the same factors.
+ */
+public class PreparedJunctionTree {
+
+    private final JunctionTree junctionTree;
+    private final int[][] sepSetMultiplications;
+    private final int[][] queries;
+    private final IArrayWrapper[] potentialValues;
+    private final boolean isLogScale;
+
+    /**
+     * @param sepSetMultiplications
+     *            for the i-th sepset of the junction tree, the element 2i is the multiplication into the second
+     *            cluster of its edge and the element 2i+1 the multiplication into the first cluster
+     * @param queries
+     *            the prepared query of every node
+     * @param potentialValues
+     *            the initial values of all clusters, followed by those of all sepsets
+     */
+    public PreparedJunctionTree(final JunctionTree junctionTree, final int[][] sepSetMultiplications,
+            final int[][] queries, final IArrayWrapper[] potentialValues, final boolean isLogScale) {
+        this.junctionTree = junctionTree;
+        this.sepSetMultiplications = sepSetMultiplications;
+        this.queries = queries;
+        this.potentialValues = potentialValues;
+        this.isLogScale = isLogScale;
+    }
+
+    public JunctionTree getJunctionTree() {
+        return junctionTree;
+    }
+
+    public int[][] getSepSetMultiplications() {
+        return sepSetMultiplications;
+    }
+
+    public int[][] getQueries() {
+        return queries;
+    }
+
+    public IArrayWrapper[] getPotentialValues() {
+        return potentialValues;
+    }
+
+    public boolean isLogScale() {
+        return isLogScale;
+    }
+}
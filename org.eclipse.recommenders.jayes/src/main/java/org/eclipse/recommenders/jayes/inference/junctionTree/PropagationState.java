@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.junctionTree;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * the potentials of a junction tree after the propagation of some evidence. A state can only be restored into the
+ * {@link JunctionTreeAlgorithm} it was taken from or into one of its copies.
+ */
+public class PropagationState {
+
+    private final int[] outcomes;
+    private final IArrayWrapper[] potentialValues;
+
+    PropagationState(final int[] outcomes, final IArrayWrapper[] potentialValues) {
+        this.outcomes = outcomes;
+        this.potentialValues = potentialValues;
+    }
+
+    /**
+     * @return the observed outcome index for each node, -1 for unobserved nodes
+     */
+    int[] getOutcomes() {
+        return outcomes;
+    }
+
+    IArrayWrapper[] getPotentialValues() {
+        return potentialValues;
+    }
+}
@@ -81,6 +81,26 @@ public class MathUtils {
         }
     }
 
+    /**
+     * computes c := a / b , like {@link #secureDivide(double[], double[], double[])}, for the first a.length()
+     * entries of b and c
+     */
+    public static void secureDivide(IArrayWrapper a, double[] b, double[] c) {
+        for (int i = 0; i < a.length(); i++) {
+            if (b[i] != 0) {
+                c[i] = a.getDouble(i) / b[i];
+            }
+        }
+    }
+
+    public static void secureSubtract(IArrayWrapper a, double[] b, double[] c) {
+        for (int i = 0; i < a.length(); i++) {
+            if (b[i] != Double.NEGATIVE_INFINITY) {
+                c[i] = a.getDouble(i) - b[i];
+            }
+        }
+    }
+
     public static double[] normalizeLog(double[] vector) {
         double normFactor = MathUtils.logsumexp(vector);
         if (normFactor == Double.NEGATIVE_INFINITY) {
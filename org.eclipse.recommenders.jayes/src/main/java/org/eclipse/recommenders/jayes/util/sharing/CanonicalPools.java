@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.util.sharing;
+
+import java.util.Arrays;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * process-wide pools that let equal factor values and prepared operations of different networks share one array
+ */
+public final class CanonicalPools {
+
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int WRAPPER_BYTES = 16;
+
+    private static final WeakCanonicalPool<int[]> INT_ARRAYS = new WeakCanonicalPool<int[]>() {
+
+        @Override
+        protected int computeHash(final int[] array) {
+            return Arrays.hashCode(array);
+        }
+
+        @Override
+        protected boolean equals(final int[] array, final int[] other) {
+            return Arrays.equals(array, other);
+        }
+
+        @Override
+        protected long sizeOf(final int[] array) {
+            return ARRAY_HEADER_BYTES + 4L * array.length;
+        }
+    };
+
+    private static final WeakCanonicalPool<IArrayWrapper> ARRAY_WRAPPERS = new WeakCanonicalPool<IArrayWrapper>() {
+
+        @Override
+        protected int computeHash(final IArrayWrapper array) {
+            if (array instanceof FloatArrayWrapper) {
+                return Arrays.hashCode(array.toFloatArray());
+            }
+            return Arrays.hashCode(array.toDoubleArray());
+        }
+
+        @Override
+        protected boolean equals(final IArrayWrapper array, final IArrayWrapper other) {
+            if (array instanceof FloatArrayWrapper) {
+                return Arrays.equals(array.toFloatArray(), other.toFloatArray());
+            }
+            return Arrays.equals(array.toDoubleArray(), other.toDoubleArray());
+        }
+
+        @Override
+        protected long sizeOf(final IArrayWrapper array) {
+            // the wrapper object is shared together with its array
+            return WRAPPER_BYTES + ARRAY_HEADER_BYTES + (long) array.sizeOfElement() * array.length();
+        }
+    };
+
+    private CanonicalPools() {
+    }
+
+    /**
+     * the pool for prepared operations, like the index arrays of prepared multiplications
+     */
+    public static WeakCanonicalPool<int[]> intArrays() {
+        return INT_ARRAYS;
+    }
+
+    /**
+     * the pool for factor values
+     */
+    public static WeakCanonicalPool<IArrayWrapper> arrayWrappers() {
+        return ARRAY_WRAPPERS;
+    }
+
+    /**
+     * @return the estimated number of bytes that all pools saved so far
+     */
+    public static long getSavedBytes() {
+        return INT_ARRAYS.getSavedBytes() + ARRAY_WRAPPERS.getSavedBytes();
+    }
+
+}
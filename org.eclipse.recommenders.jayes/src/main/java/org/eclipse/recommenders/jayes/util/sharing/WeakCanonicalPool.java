@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.util.sharing;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * a thread-safe pool of canonical instances that only holds weak references to them, so an instance leaves the pool
+ * once nobody uses it anymore. Instances obtained from the pool may be shared with other users and must not be
+ * modified.
+ */
+public abstract class WeakCanonicalPool<T> {
+
+    private final Map<Key, Key> canonicals = new HashMap<Key, Key>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<T>();
+
+    private long requestCount;
+    private long sharedCount;
+    private long savedBytes;
+
+    /**
+     * @return an instance equal to the given one that was registered before, or the given instance, which is then
+     *         registered
+     */
+    public synchronized T getInstance(final T instance) {
+        expungeCollected();
+        requestCount++;
+        final Key existing = canonicals.get(new Key(instance, null));
+        final T canonical = existing == null ? null : existing.get();
+        if (canonical != null) {
+            sharedCount++;
+            savedBytes += sizeOf(instance);
+            return canonical;
+        }
+        final Key key = new Key(instance, collected);
+        canonicals.put(key, key);
+        return instance;
+    }
+
+    /**
+     * @return the number of canonical instances that are still referenced
+     */
+    public synchronized int size() {
+        expungeCollected();
+        return canonicals.size();
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of requests that were answered with an instance registered before
+     */
+    public synchronized long getSharedCount() {
+        return sharedCount;
+    }
+
+    /**
+     * @return the estimated size in bytes of all instances that were replaced by a canonical instance
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d canonical instances, %d of %d requests shared, %d bytes saved", size(),
+                sharedCount, requestCount, savedBytes);
+    }
+
+    private void expungeCollected() {
+        Reference<? extends T> ref;
+        while ((ref = collected.poll()) != null) {
+            canonicals.remove(ref);
+        }
+    }
+
+    protected abstract int computeHash(T instance);
+
+    protected abstract boolean equals(T instance, T other);
+
+    /**
+     * @return the estimated size in bytes that an instance occupies on the heap
+     */
+    protected abstract long sizeOf(T instance);
+
+    private final class Key extends WeakReference<T> {
+
+        private final int hashcode;
+
+        Key(final T instance, final ReferenceQueue<T> queue) {
+            super(instance, queue);
+            this.hashcode = computeHash(instance);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashcode;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof WeakCanonicalPool.Key)) {
+                return false;
+            }
+            final T instance = get();
+            final T other = ((Key) obj).get();
+            if (instance == null || other == null || instance.getClass() != other.getClass()) {
+                return false;
+            }
+            return WeakCanonicalPool.this.equals(instance, other);
+        }
+    }
+
+}
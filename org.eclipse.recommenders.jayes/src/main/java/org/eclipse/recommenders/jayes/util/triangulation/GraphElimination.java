@@ -12,14 +12,20 @@ package org.eclipse.recommenders.jayes.util.triangulation;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.eclipse.recommenders.jayes.util.Graph;
 
 /**
  * Graph elimination based on greedy minimum fill-in heuristic. Tie-breaking is done by using weights on the nodes. On
- * tie, the node is chosen that will result in the cluster with a minimal sum of node weights
+ * tie, the node is chosen that will result in the cluster with a minimal sum of node weights, then the node with the
+ * lowest index.<br/>
+ * <br/>
+ * The nodes are kept in a priority queue ordered by their cost. After an elimination, the cost is only computed again
+ * for the neighbors of the eliminated node and, if fill-in edges were added, for the nodes adjacent to both ends of a
+ * fill-in edge. The costs of all other nodes cannot have changed.
  */
 public class GraphElimination implements Iterable<List<Integer>> {
 
@@ -33,79 +39,167 @@ public class GraphElimination implements Iterable<List<Integer>> {
         this.heuristic = heuristic;
     }
 
-    private List<Integer> getNodeList() {
-        final List<Integer> moralNodes = new LinkedList<Integer>();
-        for (int i = 0; i < graph.getAdjacency().size(); i++) {
-            moralNodes.add(i);
-        }
-        return moralNodes;
-    }
-
     @Override
     public Iterator<List<Integer>> iterator() {
-        return new Iterator<List<Integer>>() {
+        return new EliminationIterator();
+    }
 
-            private List<Integer> nodes = getNodeList();
-            private QuotientGraph graph = new QuotientGraph(GraphElimination.this.graph);
+    private final class EliminationIterator implements Iterator<List<Integer>> {
+
+        private final QuotientGraph graph = new QuotientGraph(GraphElimination.this.graph);
+        private final PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+        // a candidate is outdated if the cost of its node was computed again after it was queued
+        private final int[] versions;
+        private final boolean[] isEliminated;
+        private int remainingNodes;
+
+        // scratch space for finding the nodes that are affected by an elimination
+        private final boolean[] isCliqueMember;
+        private final int[] previousNeighborCounts;
+        private final int[] adjacentGainingNodes;
+
+        EliminationIterator() {
+            final int numNodes = GraphElimination.this.graph.getAdjacency().size();
+            versions = new int[numNodes];
+            isEliminated = new boolean[numNodes];
+            remainingNodes = numNodes;
+            isCliqueMember = new boolean[numNodes];
+            previousNeighborCounts = new int[numNodes];
+            adjacentGainingNodes = new int[numNodes];
+            for (int node = 0; node < numNodes; node++) {
+                enqueue(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remainingNodes > 0;
+        }
 
-            @Override
-            public boolean hasNext() {
-                return !nodes.isEmpty();
+        @Override
+        public List<Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int next = nextTriangulationNode();
+            final List<Integer> result = createClique(next);
+            final List<Integer> neighbors = result.subList(1, result.size());
+            for (final int neighbor : neighbors) {
+                previousNeighborCounts[neighbor] = graph.getNeighbors(neighbor).size();
             }
 
-            @Override
-            public List<Integer> next() {
-                int next = nextTriangulationNode();
-                nodes.remove(Integer.valueOf(next));
-                List<Integer> result = createClique(next);
-                graph.eliminate(next);
-                return result;
+            graph.eliminate(next);
+            isEliminated[next] = true;
+            remainingNodes--;
+
+            updateCosts(neighbors);
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+
+        }
+
+        private int nextTriangulationNode() {
+            Candidate candidate = candidates.poll();
+            while (isEliminated[candidate.node] || candidate.version != versions[candidate.node]) {
+                candidate = candidates.poll();
             }
+            return candidate.node;
+        }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
+        private void enqueue(final int node) {
+            versions[node]++;
+            candidates.add(new Candidate(node, heuristic.getHeuristicValue(graph, node), computeClusterWeight(node),
+                    versions[node]));
+        }
 
+        /*
+         * a neighbor that only lost the eliminated node did not gain fill-in edges. The neighbors of the eliminated
+         * node are a clique now, so a node outside of that clique is only affected if it is adjacent to two nodes that
+         * gained edges.
+         */
+        private void updateCosts(final List<Integer> neighbors) {
+            final List<Integer> gainingNodes = new ArrayList<Integer>();
+            for (final int neighbor : neighbors) {
+                isCliqueMember[neighbor] = true;
+                if (graph.getNeighbors(neighbor).size() >= previousNeighborCounts[neighbor]) {
+                    gainingNodes.add(neighbor);
+                }
             }
 
-            private int nextTriangulationNode() {
-                int minCost = Integer.MAX_VALUE;
-                Double nextClusterWeight = Double.MAX_VALUE;
-                int returnNode = 0;
-
-                for (final int node : nodes) {
-                    final int predictedCost = heuristic.getHeuristicValue(graph, node);
-                    if (predictedCost <= minCost) {
-                        final double clusterWeight = computeClusterWeight(node);
-                        if ((predictedCost < minCost) || (clusterWeight < nextClusterWeight)) {
-                            returnNode = node;
-                            minCost = predictedCost;
-                            nextClusterWeight = clusterWeight;
+            final List<Integer> affectedNodes = new ArrayList<Integer>(neighbors);
+            if (gainingNodes.size() >= 2) {
+                final List<Integer> touchedNodes = new ArrayList<Integer>();
+                for (final int gainingNode : gainingNodes) {
+                    for (final int node : graph.getNeighbors(gainingNode)) {
+                        if (!isCliqueMember[node] && adjacentGainingNodes[node]++ == 0) {
+                            touchedNodes.add(node);
                         }
                     }
                 }
+                for (final int node : touchedNodes) {
+                    if (adjacentGainingNodes[node] >= 2) {
+                        affectedNodes.add(node);
+                    }
+                    adjacentGainingNodes[node] = 0;
+                }
+            }
 
-                return returnNode;
+            for (final int neighbor : neighbors) {
+                isCliqueMember[neighbor] = false;
             }
+            for (final int node : affectedNodes) {
+                enqueue(node);
+            }
+        }
 
-            private double computeClusterWeight(final int node) {
-                double clSize = nodeWeights[node];
-                for (final int neighbor : graph.getNeighbors(node)) {
-                    clSize += nodeWeights[neighbor];
-                }
-                return clSize;
+        private double computeClusterWeight(final int node) {
+            double clSize = nodeWeights[node];
+            for (final int neighbor : graph.getNeighbors(node)) {
+                clSize += nodeWeights[neighbor];
             }
+            return clSize;
+        }
 
-            private List<Integer> createClique(final int centerNode) {
-                final List<Integer> clique = new ArrayList<Integer>();
-                clique.add(centerNode);
-                for (final int neighbor : graph.getNeighbors(centerNode)) {
-                    clique.add(neighbor);
-                }
-                return clique;
+        private List<Integer> createClique(final int centerNode) {
+            final List<Integer> clique = new ArrayList<Integer>();
+            clique.add(centerNode);
+            for (final int neighbor : graph.getNeighbors(centerNode)) {
+                clique.add(neighbor);
             }
+            return clique;
+        }
 
-        };
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final int node;
+        private final int cost;
+        private final double clusterWeight;
+        private final int version;
+
+        Candidate(final int node, final int cost, final double clusterWeight, final int version) {
+            this.node = node;
+            this.cost = cost;
+            this.clusterWeight = clusterWeight;
+            this.version = version;
+        }
+
+        @Override
+        public int compareTo(final Candidate other) {
+            if (cost != other.cost) {
+                return cost < other.cost ? -1 : 1;
+            }
+            final int compareWeights = Double.compare(clusterWeight, other.clusterWeight);
+            if (compareWeights != 0) {
+                return compareWeights;
+            }
+            return node - other.node;
+        }
     }
 
 }
@@ -10,6 +10,11 @@
  ******************************************************************************/
 package org.eclipse.recommenders.jayes.util.triangulation;
 
+/**
+ * the cost of eliminating a node next, the node with the lowest cost is eliminated first. The cost may only depend on
+ * the neighbors of the node and on the edges between them, because {@link GraphElimination} only computes it again for
+ * nodes whose neighborhood changed.
+ */
 public interface IEliminationHeuristic {
 
     int getHeuristicValue(QuotientGraph graph, int node);
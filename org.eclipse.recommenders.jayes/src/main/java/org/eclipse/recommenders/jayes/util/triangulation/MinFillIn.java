@@ -10,7 +10,6 @@
  ******************************************************************************/
 package org.eclipse.recommenders.jayes.util.triangulation;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class MinFillIn implements IEliminationHeuristic {
@@ -20,10 +19,9 @@ public class MinFillIn implements IEliminationHeuristic {
         int fillIn = 0;
         Set<Integer> neighborsOfNode = graph.getNeighbors(node);
         for (final int neighbor : neighborsOfNode) {
-            final Set<Integer> neighbors2 = new HashSet<Integer>(graph.getNeighbors(neighbor));
+            final Set<Integer> neighbors2 = graph.getNeighbors(neighbor);
 
-            neighbors2.retainAll(neighborsOfNode);
-            fillIn += neighborsOfNode.size() - 1 - neighbors2.size();
+            fillIn += neighborsOfNode.size() - 1 - countCommon(neighbors2, neighborsOfNode);
             // Edges are counted twice, but this is okay, since the
             // ordering is maintained
 
@@ -31,4 +29,17 @@ public class MinFillIn implements IEliminationHeuristic {
         return fillIn;
     }
 
+    private int countCommon(Set<Integer> set1, Set<Integer> set2) {
+        if (set1.size() > set2.size()) {
+            return countCommon(set2, set1);
+        }
+        int common = 0;
+        for (final int element : set1) {
+            if (set2.contains(element)) {
+                common++;
+            }
+        }
+        return common;
+    }
+
 }
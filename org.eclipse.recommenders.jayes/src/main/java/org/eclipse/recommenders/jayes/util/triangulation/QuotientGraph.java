@@ -12,10 +12,8 @@ package org.eclipse.recommenders.jayes.util.triangulation;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.recommenders.jayes.util.Graph;
@@ -33,29 +31,34 @@ public class QuotientGraph {
     private Graph variables;
     private Graph variablesToElements;
 
-    private final Map<Integer, Set<Integer>> neighborCache = new HashMap<Integer, Set<Integer>>();
+    // eliminating a variable only changes the neighbors of its neighbors, so cached neighbor sets are updated instead
+    // of being computed again
+    private final List<Set<Integer>> neighborCache;
 
     public QuotientGraph(Graph graph) {
         this.variables = graph.clone();
         this.variablesToElements = new Graph();
         variablesToElements.initialize(variables.getAdjacency().size());
+        neighborCache = new ArrayList<Set<Integer>>(Collections.<Set<Integer>> nCopies(variables.getAdjacency()
+                .size(), null));
     }
 
     public Set<Integer> getNeighbors(int variable) {
-        if (neighborCache.containsKey(variable)) {
-            return neighborCache.get(variable);
-        }
-        Set<Integer> neighbors = new HashSet<Integer>();
-        neighbors.addAll(getNeighbors(variables, variable));
-        for (Edge e : variablesToElements.getIncidentEdges(variable)) {
-            neighbors.addAll(getNeighbors(variablesToElements, e.getSecond()));
+        Set<Integer> neighbors = neighborCache.get(variable);
+        if (neighbors == null) {
+            neighbors = new HashSet<Integer>();
+            neighbors.addAll(getNeighbors(variables, variable));
+            for (Edge e : variablesToElements.getIncidentEdges(variable)) {
+                neighbors.addAll(getNeighbors(variablesToElements, e.getSecond()));
+            }
+            neighbors.remove(variable);
+            neighborCache.set(variable, neighbors);
         }
-        neighbors.remove(variable);
-        neighborCache.put(variable, Collections.unmodifiableSet(neighbors));
         return Collections.unmodifiableSet(neighbors);
     }
 
     public void eliminate(int variable) {
+        updateNeighborCache(variable);
         for (int elementNeighbor : getNeighbors(variablesToElements, variable)) { // merge eliminated nodes
             merge(variablesToElements, variable, elementNeighbor);
         }
@@ -63,7 +66,25 @@ public class QuotientGraph {
             variablesToElements.addEdge(variable, e.getSecond());
         }
         virtualRemoveNode(variables, variable);
-        neighborCache.clear();
+    }
+
+    /*
+     * the neighbors of the variable become a clique and lose the variable
+     */
+    private void updateNeighborCache(int variable) {
+        final Set<Integer> eliminatedNeighbors = neighborCache.set(variable, null);
+        if (eliminatedNeighbors == null) {
+            Collections.fill(neighborCache, null);
+            return;
+        }
+        for (int neighbor : eliminatedNeighbors) {
+            final Set<Integer> neighbors = neighborCache.get(neighbor);
+            if (neighbors != null) {
+                neighbors.remove(variable);
+                neighbors.addAll(eliminatedNeighbors);
+                neighbors.remove(neighbor);
+            }
+        }
     }
 
     private List<Integer> getNeighbors(Graph graph, int var) {
@@ -85,8 +106,8 @@ public class QuotientGraph {
 
     // isolating node = virtually removing it
     private void virtualRemoveNode(Graph graph, final int node) {
-        while (!graph.getIncidentEdges(node).isEmpty()) {
-            graph.removeEdge(graph.getIncidentEdges(node).iterator().next());
+        for (Edge e : new ArrayList<Edge>(graph.getIncidentEdges(node))) {
+            graph.removeEdge(e);
         }
     }
 
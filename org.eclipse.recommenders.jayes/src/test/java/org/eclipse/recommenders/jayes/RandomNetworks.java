@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * random networks for tests. Every node gets up to maxParents random parents among the nodes created before it, so the
+ * networks are not star-shaped and usually contain undirected cycles.
+ */
+public class RandomNetworks {
+
+    public static BayesNet create(final Random random, final int numNodes, final int maxParents) {
+        final BayesNet net = new BayesNet();
+        for (int i = 0; i < numNodes; i++) {
+            final BayesNode node = net.createNode("n" + i);
+            final int numOutcomes = 2 + random.nextInt(2);
+            for (int j = 0; j < numOutcomes; j++) {
+                node.addOutcome("o" + j);
+            }
+            final List<BayesNode> parents = new ArrayList<BayesNode>();
+            final int numParents = Math.min(i, random.nextInt(maxParents + 1));
+            while (parents.size() < numParents) {
+                final BayesNode parent = net.getNode(random.nextInt(i));
+                if (!parents.contains(parent)) {
+                    parents.add(parent);
+                }
+            }
+            node.setParents(parents);
+            node.setProbabilities(randomDistributions(random, node));
+        }
+        return net;
+    }
+
+    private static double[] randomDistributions(final Random random, final BayesNode node) {
+        int numRows = 1;
+        for (final BayesNode parent : node.getParents()) {
+            numRows *= parent.getOutcomeCount();
+        }
+        final int numOutcomes = node.getOutcomeCount();
+        final double[] probabilities = new double[numRows * numOutcomes];
+        for (int row = 0; row < numRows; row++) {
+            double sum = 0;
+            for (int j = 0; j < numOutcomes; j++) {
+                probabilities[row * numOutcomes + j] = 0.05 + random.nextDouble();
+                sum += probabilities[row * numOutcomes + j];
+            }
+            for (int j = 0; j < numOutcomes; j++) {
+                probabilities[row * numOutcomes + j] /= sum;
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * @return the exact marginal of the node given the evidence (outcome index per node, -1 if unobserved), computed
+     *         by enumerating the full joint distribution
+     */
+    public static double[] enumerateMarginal(final BayesNet net, final BayesNode node, final int[] evidence) {
+        final List<BayesNode> nodes = net.getNodes();
+        final int[] assignment = new int[nodes.size()];
+        final double[] marginal = new double[node.getOutcomeCount()];
+        while (true) {
+            if (isConsistent(assignment, evidence)) {
+                marginal[assignment[node.getId()]] += jointProbability(net, assignment);
+            }
+            int i = 0;
+            while (i < assignment.length && ++assignment[i] == nodes.get(i).getOutcomeCount()) {
+                assignment[i++] = 0;
+            }
+            if (i == assignment.length) {
+                break;
+            }
+        }
+        double sum = 0;
+        for (final double p : marginal) {
+            sum += p;
+        }
+        for (int i = 0; i < marginal.length; i++) {
+            marginal[i] /= sum;
+        }
+        return marginal;
+    }
+
+    private static boolean isConsistent(final int[] assignment, final int[] evidence) {
+        for (int i = 0; i < assignment.length; i++) {
+            if (evidence[i] != -1 && evidence[i] != assignment[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double jointProbability(final BayesNet net, final int[] assignment) {
+        double p = 1;
+        for (final BayesNode node : net.getNodes()) {
+            // the rows of a CPT are ordered by the parents, the first parent varying slowest
+            int row = 0;
+            for (final BayesNode parent : node.getParents()) {
+                row = row * parent.getOutcomeCount() + assignment[parent.getId()];
+            }
+            p *= node.getProbabilities()[row * node.getOutcomeCount() + assignment[node.getId()]];
+        }
+        return p;
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.factor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.junit.Test;
+
+public class FactorKernelTest {
+
+    private static final int LENGTH = 97;
+    private static final int TARGET_LENGTH = 13;
+
+    @Test
+    public void kernelIsChosenByValueType() {
+        assertSame(FactorKernel.DOUBLE, FactorKernel.forValues(new DoubleArrayWrapper(0.0)));
+        assertSame(FactorKernel.FLOAT, FactorKernel.forValues(new FloatArrayWrapper(0.0f)));
+    }
+
+    @Test
+    public void multiplicationIsTheSameAsTheNaiveLoop() {
+        final Random random = new Random(1);
+        for (final boolean isFloat : new boolean[] { false, true }) {
+            for (final boolean isFactorFloat : new boolean[] { false, true }) {
+                for (int i = 0; i < 200; i++) {
+                    final IArrayWrapper values = randomValues(random, isFloat, LENGTH);
+                    final IArrayWrapper factor = randomValues(random, isFactorFloat, TARGET_LENGTH);
+                    final int[] positions = randomPositions(random, LENGTH, TARGET_LENGTH);
+                    final int shift = random.nextInt(10);
+                    final int start = random.nextInt(LENGTH - shift);
+                    final int end = start + random.nextInt(LENGTH - shift - start + 1);
+                    final int step = 1 + random.nextInt(5);
+
+                    final IArrayWrapper expected = values.clone();
+                    for (int j = start + shift; j < end + shift; j += step) {
+                        expected.mulAssign(j, factor, positions[j]);
+                    }
+                    FactorKernel.forValues(values).multiply(values, start, end, step, shift, factor, positions);
+
+                    assertArrayEquals(expected.toDoubleArray(), values.toDoubleArray(), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void summationIsTheSameAsTheNaiveLoop() {
+        final Random random = new Random(2);
+        for (final boolean isFloat : new boolean[] { false, true }) {
+            for (final boolean isTargetFloat : new boolean[] { false, true }) {
+                for (int i = 0; i < 200; i++) {
+                    final IArrayWrapper values = randomValues(random, isFloat, LENGTH);
+                    final IArrayWrapper target = randomValues(random, isTargetFloat, TARGET_LENGTH);
+                    final int[] positions = randomPositions(random, LENGTH, TARGET_LENGTH);
+                    final int shift = random.nextInt(10);
+                    final int start = random.nextInt(LENGTH - shift);
+                    final int end = start + random.nextInt(LENGTH - shift - start + 1);
+                    final int step = 1 + random.nextInt(5);
+
+                    final IArrayWrapper expected = target.clone();
+                    for (int j = start + shift; j < end + shift; j += step) {
+                        expected.addAssign(positions[j], values, j);
+                    }
+                    FactorKernel.forValues(values).sum(values, start, end, step, shift, target, positions);
+
+                    assertArrayEquals(expected.toDoubleArray(), target.toDoubleArray(), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void denseRangesAreTheSameAsTheNaiveLoop() {
+        final Random random = new Random(3);
+        for (final boolean isFloat : new boolean[] { false, true }) {
+            for (final boolean isOtherFloat : new boolean[] { false, true }) {
+                for (int i = 0; i < 100; i++) {
+                    final DenseFactor factor = createFactor(random, isFloat, new int[] { 3, 4, 5 }, 0, 1, 2);
+                    final DenseFactor compatible = createFactor(random, isOtherFloat, new int[] { 3, 5 }, 0, 2);
+                    final int[] positions = factor.prepareMultiplication(compatible);
+                    final int start = random.nextInt(60);
+                    final int end = start + random.nextInt(61 - start);
+                    final int step = 1 + random.nextInt(5);
+
+                    final DenseFactor expected = (DenseFactor) factor.clone();
+                    naiveMultiplyRange(expected, start, end, step, compatible.getValues(), positions);
+                    factor.multiplyRange(start, end, step, compatible.getValues(), positions);
+                    assertArrayEquals(expected.getValues().toDoubleArray(), factor.getValues().toDoubleArray(), 0.0);
+
+                    final IArrayWrapper expectedSum = compatible.getValues().clone();
+                    final IArrayWrapper sum = compatible.getValues().clone();
+                    naiveSumRange(expected, start, end, step, expectedSum, positions);
+                    factor.sumRange(start, end, step, sum, positions);
+                    assertArrayEquals(expectedSum.toDoubleArray(), sum.toDoubleArray(), 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * the range operations as {@link AbstractFactor} implements them, element by element through the wrappers
+     */
+    static void naiveMultiplyRange(final AbstractFactor factor, final int start, final int end, final int step,
+            final IArrayWrapper compatibleValues, final int[] positions) {
+        for (int i = start; i < end; i += step) {
+            final int j = factor.getRealPosition(i);
+            factor.getValues().mulAssign(j, compatibleValues, positions[j]);
+        }
+    }
+
+    static void naiveSumRange(final AbstractFactor factor, final int start, final int end, final int step,
+            final IArrayWrapper compatibleValues, final int[] positions) {
+        for (int i = start; i < end; i += step) {
+            final int j = factor.getRealPosition(i);
+            compatibleValues.addAssign(positions[j], factor.getValues(), j);
+        }
+    }
+
+    static IArrayWrapper createValues(final boolean isFloat) {
+        return isFloat ? new FloatArrayWrapper(0.0f) : new DoubleArrayWrapper(0.0);
+    }
+
+    private static DenseFactor createFactor(final Random random, final boolean isFloat, final int[] dimensions,
+            final int... ids) {
+        final DenseFactor factor = new DenseFactor();
+        factor.setValues(createValues(isFloat));
+        factor.setDimensions(dimensions);
+        factor.setDimensionIDs(ids);
+        for (int i = 0; i < factor.getValues().length(); i++) {
+            factor.getValues().set(i, random.nextDouble());
+        }
+        return factor;
+    }
+
+    private static IArrayWrapper randomValues(final Random random, final boolean isFloat, final int length) {
+        final IArrayWrapper values = createValues(isFloat);
+        values.newArray(length);
+        for (int i = 0; i < length; i++) {
+            values.set(i, random.nextDouble());
+        }
+        return values;
+    }
+
+    private static int[] randomPositions(final Random random, final int length, final int targetLength) {
+        final int[] positions = new int[length];
+        for (int i = 0; i < length; i++) {
+            positions[i] = random.nextInt(targetLength);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.factor;
+
+import static org.eclipse.recommenders.jayes.factor.FactorKernelTest.createValues;
+import static org.eclipse.recommenders.jayes.factor.FactorKernelTest.naiveMultiplyRange;
+import static org.eclipse.recommenders.jayes.factor.FactorKernelTest.naiveSumRange;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.junit.Test;
+
+public class SparseFactorTest {
+
+    private static final int[] DIMENSIONS = { 3, 4, 5 };
+    private static final int LENGTH = 60;
+
+    @Test
+    public void blockwiseRangesAreTheSameAsTheNaiveLoop() {
+        final Random random = new Random(5);
+        int droppedBlocks = 0;
+        int partiallyZeroBlocks = 0;
+        for (final boolean isFloat : new boolean[] { false, true }) {
+            for (final boolean isOtherFloat : new boolean[] { false, true }) {
+                for (int i = 0; i < 100; i++) {
+                    final DenseFactor compatible = createSparseDenseFactor(random, isOtherFloat, new int[] { 3, 5 },
+                            0, 2);
+                    final DenseFactor other = createSparseDenseFactor(random, isOtherFloat, new int[] { 4 }, 1);
+                    final SparseFactor factor = new SparseFactor();
+                    factor.setValues(createValues(isFloat));
+                    factor.setDimensions(DIMENSIONS);
+                    factor.setDimensionIDs(0, 1, 2);
+                    factor.sparsify(compatible, other);
+                    final int[] positions = factor.prepareMultiplication(compatible);
+
+                    // after filling, only the positions in dropped blocks are zero
+                    factor.fill(1);
+                    for (int v = 0; v < LENGTH; v++) {
+                        final int j = factor.getRealPosition(v);
+                        if (factor.getValue(v) == 0) {
+                            droppedBlocks++;
+                            continue;
+                        }
+                        if (compatible.getValues().getDouble(positions[j]) == 0) {
+                            partiallyZeroBlocks++;
+                        }
+                        factor.getValues().set(j, random.nextInt(4) == 0 ? 0 : random.nextDouble());
+                    }
+
+                    final int start = random.nextInt(LENGTH);
+                    final int end = start + random.nextInt(LENGTH + 1 - start);
+                    final int step = 1 + random.nextInt(5);
+                    assertSameRanges(factor, start, end, step, compatible, positions);
+                    assertSameRanges(factor, 0, LENGTH, step, compatible, positions);
+                }
+            }
+        }
+        assertTrue(droppedBlocks > 0);
+        assertTrue(partiallyZeroBlocks > 0);
+    }
+
+    private static void assertSameRanges(final SparseFactor factor, final int start, final int end, final int step,
+            final AbstractFactor compatible, final int[] positions) {
+        final SparseFactor expected = factor.clone();
+        final SparseFactor actual = factor.clone();
+        naiveMultiplyRange(expected, start, end, step, compatible.getValues(), positions);
+        actual.multiplyRange(start, end, step, compatible.getValues(), positions);
+        assertArrayEquals(expected.getValues().toDoubleArray(), actual.getValues().toDoubleArray(), 0.0);
+
+        final IArrayWrapper expectedSum = compatible.getValues().clone();
+        final IArrayWrapper sum = compatible.getValues().clone();
+        naiveSumRange(expected, start, end, step, expectedSum, positions);
+        actual.sumRange(start, end, step, sum, positions);
+        assertArrayEquals(expectedSum.toDoubleArray(), sum.toDoubleArray(), 0.0);
+    }
+
+    private static DenseFactor createSparseDenseFactor(final Random random, final boolean isFloat,
+            final int[] dimensions, final int... ids) {
+        final DenseFactor factor = new DenseFactor();
+        factor.setValues(createValues(isFloat));
+        factor.setDimensions(dimensions);
+        factor.setDimensionIDs(ids);
+        for (int i = 0; i < factor.getValues().length(); i++) {
+            factor.getValues().set(i, random.nextInt(3) == 0 ? 0 : 0.5 + random.nextDouble());
+        }
+        return factor;
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.junctionTree.PropagationState;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractInfererTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private BayesNet net;
+    private BayesNode a;
+    private BayesNode b;
+    private BayesNode c;
+    private JunctionTreeAlgorithm sut;
+
+    @Before
+    public void setup() {
+        net = new BayesNet();
+        a = net.createNode("a");
+        a.addOutcomes("t", "f");
+        a.setProbabilities(0.3, 0.7);
+        b = net.createNode("b");
+        b.addOutcomes("t", "f", "x");
+        b.setParents(Arrays.asList(a));
+        b.setProbabilities(0.6, 0.3, 0.1, 0.2, 0.2, 0.6);
+        c = net.createNode("c");
+        c.addOutcomes("t", "f");
+        c.setParents(Arrays.asList(a));
+        c.setProbabilities(0.9, 0.1, 0.4, 0.6);
+
+        sut = new JunctionTreeAlgorithm();
+        sut.setNetwork(net);
+    }
+
+    @Test
+    public void outcomeIndicesAndNamesCanBeMixed() {
+        sut.addEvidence(b.getId(), 2);
+        sut.addEvidence(c, "f");
+
+        final JunctionTreeAlgorithm expected = new JunctionTreeAlgorithm();
+        expected.setNetwork(net);
+        expected.addEvidence(b, "x");
+        expected.addEvidence(c, "f");
+
+        assertArrayEquals(expected.getBeliefs(a), sut.getBeliefs(a), TOLERANCE);
+    }
+
+    @Test
+    public void outcomeIndicesAreVisibleAsNames() {
+        sut.addEvidence(a, "t");
+        sut.addEvidence(b.getId(), 1);
+
+        final Map<BayesNode, String> expected = new HashMap<BayesNode, String>();
+        expected.put(a, "t");
+        expected.put(b, "f");
+        assertEquals(expected, sut.getEvidence());
+    }
+
+    @Test
+    public void namesAreUpToDateWhenIndicesAndNamesAreMixed() {
+        sut.addEvidence(a, "t");
+        sut.addEvidence(a.getId(), 1);
+        sut.addEvidence(b, "x");
+
+        final Map<BayesNode, String> expected = new HashMap<BayesNode, String>();
+        expected.put(a, "f");
+        expected.put(b, "x");
+        assertEquals(expected, sut.getEvidence());
+    }
+
+    @Test
+    public void restoredEvidenceIsVisibleAsNames() {
+        sut.addEvidence(b.getId(), 2);
+        final PropagationState state = sut.saveState();
+        sut.addEvidence(c, "f");
+        sut.getBeliefs(a);
+
+        sut.restoreState(state);
+        assertEquals(Collections.singletonMap(b, "x"), sut.getEvidence());
+    }
+
+    @Test
+    public void laterEvidenceReplacesEarlierEvidence() {
+        sut.addEvidence(a, "t");
+        sut.addEvidence(a.getId(), 1);
+        assertArrayEquals(new double[] { 0.0, 1.0 }, sut.getBeliefs(a), TOLERANCE);
+
+        sut.addEvidence(a, "t");
+        assertArrayEquals(new double[] { 1.0, 0.0 }, sut.getBeliefs(a), TOLERANCE);
+    }
+
+    @Test
+    public void beliefsAreUpdatedAfterEvidenceByIndex() {
+        final double[] prior = sut.getBeliefs(a).clone();
+        sut.addEvidence(c.getId(), 0);
+        assertEquals(0.3 * 0.9 / (0.3 * 0.9 + 0.7 * 0.4), sut.getBeliefs(a)[0], TOLERANCE);
+
+        sut.setEvidence(new HashMap<BayesNode, String>());
+        assertArrayEquals(prior, sut.getBeliefs(a), TOLERANCE);
+    }
+
+    @Test
+    public void clearingRemovesAllEvidence() {
+        final double[] prior = sut.getBeliefs(a).clone();
+        sut.addEvidence(c, "t");
+        sut.addEvidence(b.getId(), 2);
+        sut.getBeliefs(a);
+
+        sut.clearEvidence();
+        assertTrue(sut.getEvidence().isEmpty());
+        assertArrayEquals(prior, sut.getBeliefs(a), TOLERANCE);
+
+        sut.addEvidence(c.getId(), 0);
+        assertEquals(0.3 * 0.9 / (0.3 * 0.9 + 0.7 * 0.4), sut.getBeliefs(a)[0], TOLERANCE);
+    }
+
+    @Test
+    public void clearingDoesNotChangeEarlierSetEvidence() {
+        final Map<BayesNode, String> evidence = new HashMap<BayesNode, String>();
+        evidence.put(a, "t");
+        sut.setEvidence(evidence);
+        sut.clearEvidence();
+
+        assertEquals(1, evidence.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outcomeIndexMustExist() {
+        sut.addEvidence(a.getId(), 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outcomeIndexMustNotBeNegative() {
+        sut.addEvidence(a.getId(), -1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void evidenceIsReadOnly() {
+        sut.getEvidence().put(a, "t");
+    }
+
+    @Test
+    public void evidenceIsCopiedWhenSet() {
+        final Map<BayesNode, String> evidence = new HashMap<BayesNode, String>();
+        evidence.put(a, "t");
+        sut.setEvidence(evidence);
+        evidence.put(c, "f");
+
+        assertEquals(1, sut.getEvidence().size());
+        assertArrayEquals(new double[] { 0.9, 0.1 }, sut.getBeliefs(c), TOLERANCE);
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LikelihoodWeightedSamplingTest {
+
+    private BayesNet net;
+    private BayesNode a;
+    private BayesNode b;
+    private BayesNode c;
+    private BayesNode d;
+    private ExecutorService executor;
+    private LikelihoodWeightedSampling sut;
+
+    @Before
+    public void setup() {
+        // a -> b, a -> c, (b, c) -> d
+        net = new BayesNet();
+        a = net.createNode("a");
+        a.addOutcomes("t", "f");
+        a.setProbabilities(0.3, 0.7);
+        b = net.createNode("b");
+        b.addOutcomes("t", "f", "x");
+        b.setParents(Arrays.asList(a));
+        b.setProbabilities(0.6, 0.3, 0.1, 0.2, 0.2, 0.6);
+        c = net.createNode("c");
+        c.addOutcomes("t", "f");
+        c.setParents(Arrays.asList(a));
+        c.setProbabilities(0.9, 0.1, 0.4, 0.6);
+        d = net.createNode("d");
+        d.addOutcomes("t", "f");
+        d.setParents(Arrays.asList(b, c));
+        d.setProbabilities(0.99, 0.01, 0.5, 0.5, 0.7, 0.3, 0.1, 0.9, 0.2, 0.8, 0.0, 1.0);
+
+        executor = Executors.newFixedThreadPool(3);
+        sut = new LikelihoodWeightedSampling();
+        sut.setNetwork(net);
+        sut.seed(1234);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void beliefsConvergeToExactInference() {
+        sut.setSampleCount(200000);
+        sut.addEvidence(d, "t");
+        sut.addEvidence(c, "f");
+
+        final JunctionTreeAlgorithm exact = new JunctionTreeAlgorithm();
+        exact.setNetwork(net);
+        exact.addEvidence(d, "t");
+        exact.addEvidence(c, "f");
+
+        for (final BayesNode node : Arrays.asList(a, b)) {
+            assertArrayEquals(exact.getBeliefs(node), sut.getBeliefs(node), 0.01);
+        }
+        assertArrayEquals(new double[] { 1.0, 0.0 }, sut.getBeliefs(d), 0.0);
+    }
+
+    @Test
+    public void beliefsConvergeWithSeveralThreads() {
+        sut.setSampleCount(200000);
+        sut.setExecutor(executor, 4);
+        sut.addEvidence(d, "f");
+
+        final JunctionTreeAlgorithm exact = new JunctionTreeAlgorithm();
+        exact.setNetwork(net);
+        exact.addEvidence(d, "f");
+
+        assertArrayEquals(exact.getBeliefs(a), sut.getBeliefs(a), 0.01);
+        assertEquals(200000, sut.getDrawnSampleCount());
+    }
+
+    @Test
+    public void sameSeedAndNumberOfThreadsYieldSameBeliefs() {
+        final LikelihoodWeightedSampling other = new LikelihoodWeightedSampling();
+        other.setNetwork(net);
+        other.seed(1234);
+        for (final LikelihoodWeightedSampling sampling : Arrays.asList(sut, other)) {
+            sampling.setSampleCount(1000);
+            sampling.setExecutor(executor, 4);
+            sampling.addEvidence(c, "t");
+        }
+
+        for (final BayesNode node : net.getNodes()) {
+            assertArrayEquals(sut.getBeliefs(node), other.getBeliefs(node), 0.0);
+        }
+    }
+
+    @Test
+    public void timeBudgetLimitsDrawnSamples() {
+        sut.setSampleCount(Integer.MAX_VALUE);
+        sut.setExecutor(executor, 2);
+        sut.setTimeBudget(50, TimeUnit.MILLISECONDS);
+
+        sut.getBeliefs(a);
+
+        assertTrue(sut.getDrawnSampleCount() > 0);
+        assertTrue(sut.getDrawnSampleCount() < Integer.MAX_VALUE);
+    }
+
+    @Test(expected = NumericalInstabilityException.class)
+    public void impossibleEvidenceIsDetected() {
+        // d is never true if b is x and c is f
+        sut.addEvidence(b, "x");
+        sut.addEvidence(c, "f");
+        sut.addEvidence(d, "t");
+        sut.getBeliefs(a);
+    }
+
+    @Test
+    public void executorIsNotShutDown() {
+        sut.setExecutor(executor, 4);
+        sut.getBeliefs(a);
+        assertFalse(executor.isShutdown());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampleCountMustBePositive() {
+        sut.setSampleCount(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void numberOfThreadsMustBePositive() {
+        sut.setExecutor(executor, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void executorIsRequired() {
+        sut.setExecutor(null, 2);
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.junctionTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.RandomNetworks;
+import org.eclipse.recommenders.jayes.util.Graph;
+import org.eclipse.recommenders.jayes.util.Graph.Edge;
+import org.eclipse.recommenders.jayes.util.Pair;
+import org.eclipse.recommenders.jayes.util.triangulation.GraphElimination;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
+import org.junit.Test;
+
+public class JunctionTreeBuilderTest {
+
+    private static final int NUM_NETWORKS = 60;
+
+    private final JunctionTreeBuilder sut = JunctionTreeBuilder.forHeuristic(new MinFillIn());
+
+    @Test
+    public void cliquesAreTheMaximalEliminationCliques() {
+        final Random random = new Random(1);
+        for (int i = 0; i < NUM_NETWORKS; i++) {
+            // few nodes, so the cluster weights are summed up in the same order as before
+            final BayesNet net = RandomNetworks.create(random, 2 + random.nextInt(13), 3);
+            final JunctionTree jtree = sut.buildJunctionTree(net);
+
+            assertEquals(toSets(findMaximalCliquesByPairwiseComparison(net)), toSets(jtree.getClusters()));
+        }
+    }
+
+    @Test
+    public void junctionTreeHasRunningIntersectionProperty() {
+        final Random random = new Random(2);
+        for (int i = 0; i < NUM_NETWORKS; i++) {
+            final BayesNet net = RandomNetworks.create(random, 2 + random.nextInt(40), 3);
+            final JunctionTree jtree = sut.buildJunctionTree(net);
+
+            assertIsTree(jtree);
+            assertSepSetsAreIntersections(jtree);
+            for (final BayesNode node : net.getNodes()) {
+                assertClustersContainingAreConnected(jtree, node.getId());
+                assertFamilyIsContainedInACluster(jtree, node);
+            }
+        }
+    }
+
+    @Test
+    public void spanningTreeIsAsHeavyAsOverAllPairs() {
+        final Random random = new Random(3);
+        for (int i = 0; i < NUM_NETWORKS; i++) {
+            final BayesNet net = RandomNetworks.create(random, 2 + random.nextInt(40), 3);
+            final JunctionTree jtree = sut.buildJunctionTree(net);
+
+            int weight = 0;
+            for (final Pair<Edge, List<Integer>> sepSet : jtree.getSepSets()) {
+                weight += sepSet.getSecond().size();
+            }
+            assertEquals(computeMaximumSpanningTreeWeight(jtree.getClusters()), weight);
+        }
+    }
+
+    @Test
+    public void beliefsAreExact() {
+        final Random random = new Random(4);
+        for (int i = 0; i < NUM_NETWORKS; i++) {
+            final BayesNet net = RandomNetworks.create(random, 2 + random.nextInt(9), 3);
+            final int[] evidence = new int[net.getNodes().size()];
+            Arrays.fill(evidence, -1);
+
+            final JunctionTreeAlgorithm jta = new JunctionTreeAlgorithm();
+            jta.setNetwork(net);
+            for (final BayesNode node : net.getNodes()) {
+                if (random.nextInt(4) == 0) {
+                    evidence[node.getId()] = random.nextInt(node.getOutcomeCount());
+                    jta.addEvidence(node.getId(), evidence[node.getId()]);
+                }
+            }
+
+            for (final BayesNode node : net.getNodes()) {
+                assertArrayEquals(RandomNetworks.enumerateMarginal(net, node, evidence), jta.getBeliefs(node), 1e-9);
+            }
+        }
+    }
+
+    private static void assertIsTree(final JunctionTree jtree) {
+        final int numClusters = jtree.getClusters().size();
+        assertEquals(numClusters - 1, jtree.getSepSets().size());
+        final Set<Integer> reached = reachableClusters(jtree, 0, null);
+        assertEquals(numClusters, reached.size());
+    }
+
+    private static void assertSepSetsAreIntersections(final JunctionTree jtree) {
+        for (final Pair<Edge, List<Integer>> sepSet : jtree.getSepSets()) {
+            final Set<Integer> intersection = new HashSet<Integer>(jtree.getClusters().get(sepSet.getFirst()
+                    .getFirst()));
+            intersection.retainAll(jtree.getClusters().get(sepSet.getFirst().getSecond()));
+            assertEquals(intersection, new HashSet<Integer>(sepSet.getSecond()));
+        }
+    }
+
+    private static void assertClustersContainingAreConnected(final JunctionTree jtree, final int var) {
+        final Set<Integer> containing = new HashSet<Integer>();
+        for (int c = 0; c < jtree.getClusters().size(); c++) {
+            if (jtree.getClusters().get(c).contains(var)) {
+                containing.add(c);
+            }
+        }
+        assertTrue("variable " + var + " is in no cluster", !containing.isEmpty());
+        final int start = containing.iterator().next();
+        assertEquals("clusters containing " + var + " are not connected", containing,
+                reachableClusters(jtree, start, var));
+    }
+
+    private static void assertFamilyIsContainedInACluster(final JunctionTree jtree, final BayesNode node) {
+        final Set<Integer> family = new HashSet<Integer>();
+        family.add(node.getId());
+        for (final BayesNode parent : node.getParents()) {
+            family.add(parent.getId());
+        }
+        for (final List<Integer> cluster : jtree.getClusters()) {
+            if (cluster.containsAll(family)) {
+                return;
+            }
+        }
+        throw new AssertionError("no cluster contains the family of " + node.getName());
+    }
+
+    /*
+     * the clusters reachable from start, only passing through clusters that contain the variable if it is not null
+     */
+    private static Set<Integer> reachableClusters(final JunctionTree jtree, final int start, final Integer var) {
+        final Set<Integer> reached = new HashSet<Integer>();
+        final Queue<Integer> queue = new ArrayDeque<Integer>();
+        reached.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            final int cluster = queue.poll();
+            for (final Edge e : jtree.getGraph().getIncidentEdges(cluster)) {
+                final int other = e.getSecond();
+                final boolean isAllowed = var == null || jtree.getClusters().get(other).contains(var);
+                if (isAllowed && reached.add(other)) {
+                    queue.add(other);
+                }
+            }
+        }
+        return reached;
+    }
+
+    /*
+     * the cliques as they were found before: every elimination clique is compared with all cliques kept so far
+     */
+    private static List<List<Integer>> findMaximalCliquesByPairwiseComparison(final BayesNet net) {
+        final Graph moral = new Graph();
+        moral.initialize(net.getNodes().size());
+        final double[] weights = new double[net.getNodes().size()];
+        for (final BayesNode node : net.getNodes()) {
+            final List<BayesNode> parents = node.getParents();
+            for (int i = 0; i < parents.size(); i++) {
+                for (int j = i + 1; j < parents.size(); j++) {
+                    moral.addEdge(parents.get(i).getId(), parents.get(j).getId());
+                }
+                moral.addEdge(node.getId(), parents.get(i).getId());
+            }
+            weights[node.getId()] = Math.log(node.getOutcomeCount());
+        }
+
+        final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+        for (final List<Integer> clique : new GraphElimination(moral, weights, new MinFillIn())) {
+            boolean isSubset = false;
+            for (final List<Integer> other : cliques) {
+                if (other.containsAll(clique)) {
+                    isSubset = true;
+                    break;
+                }
+            }
+            if (!isSubset) {
+                cliques.add(clique);
+            }
+        }
+        return cliques;
+    }
+
+    /*
+     * Prim's algorithm over all pairs of clusters, weighted by the number of shared variables
+     */
+    private static int computeMaximumSpanningTreeWeight(final List<List<Integer>> clusters) {
+        final int n = clusters.size();
+        final boolean[] inTree = new boolean[n];
+        final int[] best = new int[n];
+        Arrays.fill(best, -1);
+        best[0] = 0;
+        int weight = 0;
+        for (int step = 0; step < n; step++) {
+            int next = -1;
+            for (int c = 0; c < n; c++) {
+                if (!inTree[c] && (next == -1 || best[c] > best[next])) {
+                    next = c;
+                }
+            }
+            inTree[next] = true;
+            weight += best[next];
+            for (int c = 0; c < n; c++) {
+                if (!inTree[c]) {
+                    final Set<Integer> shared = new HashSet<Integer>(clusters.get(c));
+                    shared.retainAll(clusters.get(next));
+                    best[c] = Math.max(best[c], shared.size());
+                }
+            }
+        }
+        return weight;
+    }
+
+    private static Set<Set<Integer>> toSets(final List<List<Integer>> lists) {
+        final Set<Set<Integer>> sets = new HashSet<Set<Integer>>();
+        for (final List<Integer> list : lists) {
+            sets.add(new HashSet<Integer>(list));
+        }
+        return sets;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.junctionTree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreparedJunctionTreeTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private BayesNet net;
+    private BayesNode a;
+    private BayesNode b;
+    private BayesNode c;
+    private BayesNode d;
+    private JunctionTreeAlgorithm original;
+
+    @Before
+    public void setup() {
+        // a -> b, a -> c, (b, c) -> d
+        net = new BayesNet();
+        a = net.createNode("a");
+        a.addOutcomes("t", "f");
+        a.setProbabilities(0.3, 0.7);
+        b = net.createNode("b");
+        b.addOutcomes("t", "f", "x");
+        b.setParents(Arrays.asList(a));
+        b.setProbabilities(0.6, 0.3, 0.1, 0.2, 0.2, 0.6);
+        c = net.createNode("c");
+        c.addOutcomes("t", "f");
+        c.setParents(Arrays.asList(a));
+        c.setProbabilities(0.9, 0.1, 0.4, 0.6);
+        d = net.createNode("d");
+        d.addOutcomes("t", "f");
+        d.setParents(Arrays.asList(b, c));
+        d.setProbabilities(0.99, 0.01, 0.5, 0.5, 0.7, 0.3, 0.1, 0.9, 0.2, 0.8, 0.0, 1.0);
+
+        original = new JunctionTreeAlgorithm();
+        original.setNetwork(net);
+    }
+
+    @Test
+    public void preparedNetworkYieldsSameBeliefs() {
+        final JunctionTreeAlgorithm sut = new JunctionTreeAlgorithm();
+        sut.setNetwork(net, original.getPreparedJunctionTree());
+
+        assertSameBeliefs(original, sut);
+        original.addEvidence(d, "t");
+        sut.addEvidence(d, "t");
+        assertSameBeliefs(original, sut);
+        original.addEvidence(c, "f");
+        sut.addEvidence(c, "f");
+        assertSameBeliefs(original, sut);
+    }
+
+    @Test
+    public void preparedNetworkSupportsIncrementalPropagation() {
+        final JunctionTreeAlgorithm sut = new JunctionTreeAlgorithm();
+        sut.setIncremental(true);
+        sut.setNetwork(net, original.getPreparedJunctionTree());
+
+        sut.addEvidence(c, "f");
+        sut.getBeliefs(a);
+        sut.addEvidence(d, "t");
+        original.addEvidence(c, "f");
+        original.addEvidence(d, "t");
+        assertSameBeliefs(original, sut);
+    }
+
+    @Test
+    public void preparedValuesAreConvertedToTheFloatingPointTypeOfTheFactory() {
+        final JunctionTreeAlgorithm sut = new JunctionTreeAlgorithm();
+        sut.getFactory().setFloatingPointType(float.class);
+        sut.setNetwork(net, original.getPreparedJunctionTree());
+
+        sut.addEvidence(d, "f");
+        original.addEvidence(d, "f");
+        for (final BayesNode node : net.getNodes()) {
+            assertArrayEquals(original.getBeliefs(node), sut.getBeliefs(node), 1e-6);
+        }
+    }
+
+    @Test
+    public void preparedOperationsAreShared() {
+        final PreparedJunctionTree prepared = original.getPreparedJunctionTree();
+        final JunctionTreeAlgorithm sut = new JunctionTreeAlgorithm();
+        sut.setNetwork(net, prepared);
+
+        final PreparedJunctionTree actual = sut.getPreparedJunctionTree();
+        assertSame(prepared.getJunctionTree(), actual.getJunctionTree());
+        for (int i = 0; i < prepared.getQueries().length; i++) {
+            assertSame(prepared.getQueries()[i], actual.getQueries()[i]);
+        }
+        for (int i = 0; i < prepared.getSepSetMultiplications().length; i++) {
+            assertSame(prepared.getSepSetMultiplications()[i], actual.getSepSetMultiplications()[i]);
+        }
+    }
+
+    @Test
+    public void potentialsFollowTheOrderOfTheJunctionTree() {
+        final PreparedJunctionTree prepared = original.getPreparedJunctionTree();
+        final JunctionTree jtree = prepared.getJunctionTree();
+
+        assertEquals(jtree.getClusters().size() + jtree.getSepSets().size(), prepared.getPotentialValues().length);
+        assertEquals(2 * jtree.getSepSets().size(), prepared.getSepSetMultiplications().length);
+        assertEquals(net.getNodes().size(), prepared.getQueries().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchingPotentialsAreRejected() {
+        final PreparedJunctionTree prepared = original.getPreparedJunctionTree();
+        final IArrayWrapper[] values = prepared.getPotentialValues().clone();
+        values[0] = values[0].clone();
+        values[0].newArray(values[0].length() + 1);
+
+        new JunctionTreeAlgorithm().setNetwork(net, new PreparedJunctionTree(prepared.getJunctionTree(),
+                prepared.getSepSetMultiplications(), prepared.getQueries(), values, prepared.isLogScale()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchingLogScaleIsRejected() {
+        final JunctionTreeAlgorithm sut = new JunctionTreeAlgorithm();
+        sut.getFactory().setUseLogScale(true);
+        sut.setNetwork(net, original.getPreparedJunctionTree());
+    }
+
+    private void assertSameBeliefs(final JunctionTreeAlgorithm expected, final JunctionTreeAlgorithm actual) {
+        for (final BayesNode node : net.getNodes()) {
+            assertArrayEquals(expected.getBeliefs(node), actual.getBeliefs(node), TOLERANCE);
+        }
+    }
+}
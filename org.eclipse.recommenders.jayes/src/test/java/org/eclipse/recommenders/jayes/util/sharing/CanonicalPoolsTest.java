@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.util.sharing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.RandomNetworks;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.junctionTree.PreparedJunctionTree;
+import org.junit.Test;
+
+public class CanonicalPoolsTest {
+
+    @Test
+    public void equalNetworksShareValuesAndPreparedOperations() {
+        final JunctionTreeAlgorithm first = createJunctionTreeAlgorithm(11);
+        final JunctionTreeAlgorithm second = createJunctionTreeAlgorithm(11);
+
+        final PreparedJunctionTree firstPrepared = first.getPreparedJunctionTree();
+        final PreparedJunctionTree secondPrepared = second.getPreparedJunctionTree();
+        assertTrue(firstPrepared.getSepSetMultiplications().length > 0);
+        for (int i = 0; i < firstPrepared.getSepSetMultiplications().length; i++) {
+            assertSame(firstPrepared.getSepSetMultiplications()[i], secondPrepared.getSepSetMultiplications()[i]);
+        }
+        for (int i = 0; i < firstPrepared.getQueries().length; i++) {
+            assertSame(firstPrepared.getQueries()[i], secondPrepared.getQueries()[i]);
+        }
+        for (int i = 0; i < firstPrepared.getPotentialValues().length; i++) {
+            assertSame(firstPrepared.getPotentialValues()[i], secondPrepared.getPotentialValues()[i]);
+        }
+    }
+
+    @Test
+    public void floatAndDoubleValuesAreNotShared() {
+        final WeakCanonicalPool<IArrayWrapper> sut = CanonicalPools.arrayWrappers();
+        final IArrayWrapper doubles = new DoubleArrayWrapper(0.5, 0.25, 0.125);
+        final IArrayWrapper floats = new FloatArrayWrapper(0.5f, 0.25f, 0.125f);
+
+        assertSame(doubles, sut.getInstance(doubles));
+        assertSame(floats, sut.getInstance(floats));
+        assertNotSame(doubles, sut.getInstance(new FloatArrayWrapper(0.5f, 0.25f, 0.125f)));
+        assertSame(floats, sut.getInstance(new FloatArrayWrapper(0.5f, 0.25f, 0.125f)));
+        assertSame(doubles, sut.getInstance(new DoubleArrayWrapper(0.5, 0.25, 0.125)));
+    }
+
+    @Test
+    public void savedBytesAreCountedForSharedArrays() {
+        final WeakCanonicalPool<int[]> sut = CanonicalPools.intArrays();
+        final int[] array = { 17, 4, 1982, 3 };
+        sut.getInstance(array);
+        final long requests = sut.getRequestCount();
+        final long shared = sut.getSharedCount();
+        final long savedBytes = CanonicalPools.getSavedBytes();
+
+        sut.getInstance(new int[] { 17, 4, 1982, 3 });
+
+        assertEquals(requests + 1, sut.getRequestCount());
+        assertEquals(shared + 1, sut.getSharedCount());
+        assertEquals(savedBytes + 16 + 4 * 4, CanonicalPools.getSavedBytes());
+    }
+
+    private static JunctionTreeAlgorithm createJunctionTreeAlgorithm(final long seed) {
+        final BayesNet net = RandomNetworks.create(new Random(seed), 10, 2);
+        final JunctionTreeAlgorithm jta = new JunctionTreeAlgorithm();
+        jta.setNetwork(net);
+        return jta;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.util.sharing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class WeakCanonicalPoolTest {
+
+    private final WeakCanonicalPool<int[]> sut = new WeakCanonicalPool<int[]>() {
+
+        @Override
+        protected int computeHash(final int[] array) {
+            return Arrays.hashCode(array);
+        }
+
+        @Override
+        protected boolean equals(final int[] array, final int[] other) {
+            return Arrays.equals(array, other);
+        }
+
+        @Override
+        protected long sizeOf(final int[] array) {
+            return array.length;
+        }
+    };
+
+    @Test
+    public void firstInstanceIsRegistered() {
+        final int[] array = { 1, 2, 3 };
+        assertSame(array, sut.getInstance(array));
+        assertEquals(1, sut.size());
+    }
+
+    @Test
+    public void equalInstancesAreShared() {
+        final int[] array = { 1, 2, 3 };
+        sut.getInstance(array);
+        assertSame(array, sut.getInstance(new int[] { 1, 2, 3 }));
+        assertEquals(1, sut.size());
+    }
+
+    @Test
+    public void differentInstancesAreNotShared() {
+        final int[] array = { 1, 2, 3 };
+        final int[] other = { 3, 2, 1 };
+        sut.getInstance(array);
+        assertSame(other, sut.getInstance(other));
+        assertEquals(2, sut.size());
+    }
+
+    @Test
+    public void countersOnlyCountSharedRequests() {
+        final int[] array = { 1, 2, 3 };
+        final int[] other = { 4, 5 };
+        sut.getInstance(array);
+        sut.getInstance(other);
+        sut.getInstance(new int[] { 1, 2, 3 });
+        sut.getInstance(new int[] { 1, 2, 3 });
+        sut.getInstance(new int[] { 4, 5 });
+
+        assertEquals(5, sut.getRequestCount());
+        assertEquals(3, sut.getSharedCount());
+        assertEquals(3 + 3 + 2, sut.getSavedBytes());
+    }
+
+    @Test
+    public void collectedInstancesAreExpunged() throws InterruptedException {
+        final int[] kept = { 1 };
+        sut.getInstance(kept);
+        registerUnreferenced();
+        assertEquals(2, sut.size());
+
+        for (int i = 0; i < 100 && sut.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, sut.size());
+        assertSame(kept, sut.getInstance(new int[] { 1 }));
+    }
+
+    @Test
+    public void collectedInstanceIsReplacedByTheNextRequest() throws InterruptedException {
+        registerUnreferenced();
+        for (int i = 0; i < 100 && sut.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, sut.size());
+
+        final int[] array = { 7, 8, 9 };
+        assertSame(array, sut.getInstance(array));
+        assertEquals(1, sut.size());
+    }
+
+    private void registerUnreferenced() {
+        sut.getInstance(new int[] { 7, 8, 9 });
+    }
+}
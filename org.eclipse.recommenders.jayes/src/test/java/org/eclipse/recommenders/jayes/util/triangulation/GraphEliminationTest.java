@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.util.triangulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.recommenders.jayes.util.Graph;
+import org.junit.Test;
+
+public class GraphEliminationTest {
+
+    @Test
+    public void eliminationOrderIsTheSameAsWithLinearScan() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            final int numNodes = 2 + random.nextInt(60);
+            final Graph graph = createRandomGraph(random, numNodes, random.nextDouble() * 0.3);
+            // integral weights, so the order in which they are summed up cannot break ties differently
+            final double[] weights = new double[numNodes];
+            for (int n = 0; n < numNodes; n++) {
+                weights[n] = 1 + random.nextInt(3);
+            }
+            assertSameElimination(graph, weights);
+        }
+    }
+
+    @Test
+    public void eliminationOrderIsTheSameWithLogarithmicWeights() {
+        final Random random = new Random(4711);
+        for (int i = 0; i < 100; i++) {
+            // few nodes, so the neighbors of a node are always summed up in ascending order
+            final int numNodes = 2 + random.nextInt(14);
+            final Graph graph = createRandomGraph(random, numNodes, random.nextDouble() * 0.5);
+            final double[] weights = new double[numNodes];
+            for (int n = 0; n < numNodes; n++) {
+                weights[n] = Math.log(2 + random.nextInt(3));
+            }
+            assertSameElimination(graph, weights);
+        }
+    }
+
+    @Test
+    public void starIsEliminatedFromTheLeaves() {
+        final Graph star = new Graph();
+        star.initialize(5);
+        for (int leaf = 1; leaf < 5; leaf++) {
+            star.addEdge(0, leaf);
+        }
+        final List<List<Integer>> cliques = eliminate(star, new double[] { 1, 1, 1, 1, 1 });
+        assertEquals(5, cliques.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, (int) cliques.get(i).get(0));
+            assertEquals(2, cliques.get(i).size());
+        }
+        // with a single leaf left, the hub wins the tie by its lower index
+        assertEquals(0, (int) cliques.get(3).get(0));
+        assertEquals(4, (int) cliques.get(4).get(0));
+    }
+
+    private static void assertSameElimination(final Graph graph, final double[] weights) {
+        final List<List<Integer>> expected = eliminateByLinearScan(graph, weights);
+        final List<List<Integer>> actual = eliminate(graph, weights);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            // the eliminated node comes first, the order of its neighbors is not specified
+            assertEquals(expected.get(i).get(0), actual.get(i).get(0));
+            assertEquals(new HashSet<Integer>(expected.get(i)), new HashSet<Integer>(actual.get(i)));
+        }
+    }
+
+    private static List<List<Integer>> eliminate(final Graph graph, final double[] weights) {
+        final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+        for (final List<Integer> clique : new GraphElimination(graph, weights, new MinFillIn())) {
+            cliques.add(clique);
+        }
+        return cliques;
+    }
+
+    private static Graph createRandomGraph(final Random random, final int numNodes, final double density) {
+        final Graph graph = new Graph();
+        graph.initialize(numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            for (int j = i + 1; j < numNodes; j++) {
+                if (random.nextDouble() < density) {
+                    graph.addEdge(i, j);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /*
+     * the elimination as it was implemented before: all remaining nodes are scanned in ascending order for the
+     * minimum fill-in, ties are broken by the cluster weight and then by the lower index. The fill-in is counted on a
+     * plain graph to which the fill-in edges are added.
+     */
+    private static List<List<Integer>> eliminateByLinearScan(final Graph graph, final double[] weights) {
+        final int numNodes = graph.getAdjacency().size();
+        final List<Set<Integer>> adjacency = new ArrayList<Set<Integer>>();
+        for (int n = 0; n < numNodes; n++) {
+            final Set<Integer> neighbors = new TreeSet<Integer>();
+            for (final Graph.Edge e : graph.getIncidentEdges(n)) {
+                neighbors.add(e.getSecond());
+            }
+            adjacency.add(neighbors);
+        }
+        final Set<Integer> remaining = new TreeSet<Integer>();
+        for (int n = 0; n < numNodes; n++) {
+            remaining.add(n);
+        }
+
+        final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+        while (!remaining.isEmpty()) {
+            int minCost = Integer.MAX_VALUE;
+            double minWeight = Double.MAX_VALUE;
+            int next = -1;
+            for (final int node : remaining) {
+                final int cost = fillIn(adjacency, node);
+                if (cost <= minCost) {
+                    final double weight = clusterWeight(adjacency, weights, node);
+                    if (cost < minCost || weight < minWeight) {
+                        next = node;
+                        minCost = cost;
+                        minWeight = weight;
+                    }
+                }
+            }
+
+            final List<Integer> clique = new ArrayList<Integer>();
+            clique.add(next);
+            clique.addAll(adjacency.get(next));
+            cliques.add(clique);
+
+            for (final int neighbor : adjacency.get(next)) {
+                adjacency.get(neighbor).remove(next);
+                adjacency.get(neighbor).addAll(adjacency.get(next));
+                adjacency.get(neighbor).remove(neighbor);
+            }
+            adjacency.get(next).clear();
+            remaining.remove(next);
+        }
+        return cliques;
+    }
+
+    private static int fillIn(final List<Set<Integer>> adjacency, final int node) {
+        final Set<Integer> neighbors = adjacency.get(node);
+        int fillIn = 0;
+        for (final int neighbor : neighbors) {
+            final Set<Integer> common = new HashSet<Integer>(adjacency.get(neighbor));
+            common.retainAll(neighbors);
+            fillIn += neighbors.size() - 1 - common.size();
+        }
+        return fillIn;
+    }
+
+    private static double clusterWeight(final List<Set<Integer>> adjacency, final double[] weights, final int node) {
+        double weight = weights[node];
+        for (final int neighbor : adjacency.get(node)) {
+            weight += weights[neighbor];
+        }
+        return weight;
+    }
+}